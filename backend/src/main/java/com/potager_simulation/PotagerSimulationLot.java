@@ -0,0 +1,55 @@
+package com.potager_simulation;
+
+import com.potager_simulation.dto.ResultatLotDTO;
+import com.potager_simulation.service.SimulationManager;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+/**
+ * Exécution en lot depuis la ligne de commande, sans navigateur :
+ * <pre>
+ * java -cp potager-simulation.jar -Dloader.main=com.potager_simulation.PotagerSimulationLot \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher --pas=100000 [--echantillon=1000] [--graine=42]
+ * </pre>
+ * Charge le potager de la base, exécute les pas, sauvegarde le résultat et s'arrête.
+ * <p>
+ * Le lot simule sur son propre modèle en mémoire et l'écrit dans la base : aucun serveur
+ * ne doit simuler sur la même base pendant ce temps, rien ne le vérifie. Les deux modèles
+ * réécriraient les mêmes lignes (âges, santé, positions) chacun avec ses valeurs, et les
+ * insectes morts d'un côté seraient encore mis à jour de l'autre. Lancer le lot serveur
+ * arrêté (ou simulation arrêtée), ou sur une base à part.
+ */
+public class PotagerSimulationLot {
+	public static void main(String[] args) {
+		// Port aléatoire : le lot ne prend pas le port d'un serveur (qui ne doit pas simuler
+		// sur la même base, voir plus haut)
+		ConfigurableApplicationContext contexte = new SpringApplicationBuilder(PotagerSimulationApplication.class)
+				.properties("server.port=0")
+				.run(args);
+
+		int code;
+		try {
+			Environment environnement = contexte.getEnvironment();
+			Integer pas = environnement.getProperty("pas", Integer.class);
+			if (pas == null) {
+				System.err.println("Usage: --pas=<nombre de pas> [--echantillon=<pas entre deux publications>] [--graine=<graine>]");
+				code = 2;
+			} else {
+				ResultatLotDTO resultat = contexte.getBean(SimulationManager.class).executerLot(
+						pas,
+						environnement.getProperty("echantillon", Integer.class, 0),
+						environnement.getProperty("graine", Long.class));
+				System.out.println("Pas " + resultat.getPasDebut() + " -> " + resultat.getPasFin()
+						+ " : " + resultat.getDureeMs() + " ms, " + Math.round(resultat.getPasParSeconde()) + " pas/s");
+				code = 0;
+			}
+		} catch (RuntimeException e) {
+			System.err.println("Échec du lot de simulation: " + e.getMessage());
+			code = 1;
+		}
+		int codeSortie = code;
+		System.exit(SpringApplication.exit(contexte, () -> codeSortie));
+	}
+}
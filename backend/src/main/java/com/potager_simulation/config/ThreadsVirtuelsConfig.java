@@ -0,0 +1,62 @@
+package com.potager_simulation.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+/**
+ * Profil "virtuel" (voir application-virtuel.properties) : requêtes HTTP, tâches asynchrones
+ * (flux NDJSON) et canaux STOMP sur des threads virtuels. Les threads de calcul restent des
+ * threads de plateforme : pas de la simulation, sessions, diffusion, écriture en base,
+ * répliques des scénarios.
+ */
+@Configuration
+@Profile("virtuel")
+public class ThreadsVirtuelsConfig implements WebSocketMessageBrokerConfigurer {
+
+    /**
+     * Avant Java 24, un thread virtuel bloqué dans un bloc synchronized (verrou de la
+     * simulation pendant un pas, chargement du modèle, cache de l'état) bloque aussi son
+     * thread porteur
+     */
+    @PostConstruct
+    public void verifierVersionJava() {
+        if (Runtime.version().feature() < 24) {
+            System.err.println("Profil virtuel sur Java " + Runtime.version().feature()
+                    + " : les sections synchronized des services bloquent les threads porteurs, Java 24 est recommandé");
+        }
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.executor(executeurVirtuel("potager-ws-entree-"));
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.executor(executeurVirtuel("potager-ws-sortie-"));
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        // Un thread par message : sans cela, deux différences destinées au même client
+        // pourraient partir dans le désordre
+        registry.setPreservePublishOrder(true);
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.setPreserveReceiveOrder(true);
+    }
+
+    private static SimpleAsyncTaskExecutor executeurVirtuel(String prefixe) {
+        SimpleAsyncTaskExecutor executeur = new SimpleAsyncTaskExecutor(prefixe);
+        executeur.setVirtualThreads(true);
+        return executeur;
+    }
+}
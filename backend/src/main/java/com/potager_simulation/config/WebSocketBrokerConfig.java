@@ -0,0 +1,34 @@
+package com.potager_simulation.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * Remplace @EnableWebSocketMessageBroker (les WebSocketMessageBrokerConfigurer sont toujours
+ * appliqués) pour choisir la stratégie de débordement des clients. Le gestionnaire STOMP
+ * enveloppe chaque session dans un ConcurrentWebSocketSessionDecorator qui, par défaut,
+ * ferme la connexion d'un client trop lent (TERMINATE) ; ici les messages les plus anciens
+ * sont abandonnés (DROP) et le client demandera une image complète, sans ralentir les autres.
+ */
+@Configuration(proxyBeanMethods = false)
+public class WebSocketBrokerConfig extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(AbstractSubscribableChannel clientInboundChannel,
+                                                        AbstractSubscribableChannel clientOutboundChannel) {
+        return new SubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel) {
+            @Override
+            protected WebSocketSession decorateSession(WebSocketSession session) {
+                return new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(),
+                        getSendBufferSizeLimit(), ConcurrentWebSocketSessionDecorator.OverflowStrategy.DROP);
+            }
+        };
+    }
+}
@@ -1,17 +1,28 @@
 package com.potager_simulation.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+/**
+ * Broker STOMP et points d'entrée ; activé par {@link WebSocketBrokerConfig}
+ */
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    // Messages en attente par client au-delà desquels les plus anciens sont abandonnés
+    @Value("${potager.websocket.tampon-client-octets:524288}")
+    private int tamponClientOctets;
+
+    @Value("${potager.websocket.delai-envoi-ms:10000}")
+    private int delaiEnvoiMs;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        // /queue : destinations propres à une session (vues, voir VuesSimulation)
+        config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
     }
 
@@ -25,4 +36,12 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.addEndpoint("/ws")
                 .setAllowedOrigins("http://localhost:3000");
     }
-}
\ No newline at end of file
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Limites de la file d'envoi de chaque client, appliquées avec la stratégie DROP
+        // (voir WebSocketBrokerConfig)
+        registration.setSendTimeLimit(delaiEnvoiMs);
+        registration.setSendBufferSizeLimit(tamponClientOctets);
+    }
+}
@@ -1,11 +1,14 @@
 package com.potager_simulation.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.potager_simulation.dto.PageDTO;
 import com.potager_simulation.dto.InsecteDTO;
 import com.potager_simulation.service.InsecteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -13,15 +16,26 @@ import java.util.List;
 @RequestMapping("/insectes")
 public class InsecteController {
     private final InsecteService insecteService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public InsecteController(InsecteService insecteService) {
+    public InsecteController(InsecteService insecteService, ObjectMapper objectMapper) {
         this.insecteService = insecteService;
+        this.objectMapper = objectMapper;
     }
 
+    // Liste paginée : ?apres=<dernier id reçu>&limite=<taille de page>
     @GetMapping
-    public ResponseEntity<List<InsecteDTO>> getAllInsectes() {
-        return ResponseEntity.ok(insecteService.getAllInsectes());
+    public ResponseEntity<PageDTO<InsecteDTO>> getInsectes(
+            @RequestParam(required = false) Long apres,
+            @RequestParam(defaultValue = "100") int limite) {
+        return ResponseEntity.ok(insecteService.getInsectes(apres, limite));
+    }
+
+    // Tous les éléments en NDJSON, écrits au fil de la lecture
+    @GetMapping("/flux")
+    public ResponseEntity<StreamingResponseBody> getFluxInsectes() {
+        return ReponseNdjson.flux(objectMapper, insecteService::parcourirInsectes);
     }
 
     @GetMapping("/{id}")
@@ -61,21 +75,11 @@ public class InsecteController {
 
     @GetMapping("/espece/{espece}")
     public ResponseEntity<List<InsecteDTO>> getInsectesByEspece(@PathVariable String espece) {
-        // Cette méthode nécessiterait d'ajouter une méthode correspondante dans InsecteService
-        // Pour l'instant, nous filtrons tous les insectes
-        List<InsecteDTO> insectes = insecteService.getAllInsectes().stream()
-                .filter(insecteDTO -> insecteDTO.getEspece().equalsIgnoreCase(espece))
-                .toList();
-        return ResponseEntity.ok(insectes);
+        return ResponseEntity.ok(insecteService.getInsectesByEspece(espece));
     }
 
     @GetMapping("/sexe/{sexe}")
     public ResponseEntity<List<InsecteDTO>> getInsectesBySexe(@PathVariable String sexe) {
-        // Cette méthode nécessiterait d'ajouter une méthode correspondante dans InsecteService
-        // Pour l'instant, nous filtrons tous les insectes
-        List<InsecteDTO> insectes = insecteService.getAllInsectes().stream()
-                .filter(insecteDTO -> insecteDTO.getSexe().equalsIgnoreCase(sexe))
-                .toList();
-        return ResponseEntity.ok(insectes);
+        return ResponseEntity.ok(insecteService.getInsectesBySexe(sexe));
     }
 }
\ No newline at end of file
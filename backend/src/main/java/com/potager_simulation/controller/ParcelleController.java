@@ -1,6 +1,8 @@
 package com.potager_simulation.controller;
 
+import com.potager_simulation.dto.PageDTO;
 import com.potager_simulation.dto.ParcelleDTO;
+import com.potager_simulation.dto.ParcelleResumeDTO;
 import com.potager_simulation.model.Parcelle;
 import com.potager_simulation.service.ParcelleService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +26,38 @@ public class ParcelleController {
         return ResponseEntity.ok(parcelleService.getAllParcelles());
     }
 
+    /**
+     * Parcelles du rectangle [x0, x1] x [y0, y1], bornes incluses, avec leurs plantes et insectes
+     */
+    @GetMapping("/region")
+    public ResponseEntity<List<ParcelleDTO>> getRegion(
+            @RequestParam int x0, @RequestParam int y0,
+            @RequestParam int x1, @RequestParam int y1) {
+        return ResponseEntity.ok(parcelleService.getRegion(x0, y0, x1, y1));
+    }
+
+    // Listes paginées : ?apres=<dernier id reçu>&limite=<taille de page>
+    @GetMapping("/avec-plantes")
+    public ResponseEntity<PageDTO<ParcelleResumeDTO>> getParcellesAvecPlantes(
+            @RequestParam(required = false) Long apres,
+            @RequestParam(defaultValue = "100") int limite) {
+        return ResponseEntity.ok(parcelleService.getParcellesWithPlantes(apres, limite));
+    }
+
+    @GetMapping("/avec-insectes")
+    public ResponseEntity<PageDTO<ParcelleResumeDTO>> getParcellesAvecInsectes(
+            @RequestParam(required = false) Long apres,
+            @RequestParam(defaultValue = "100") int limite) {
+        return ResponseEntity.ok(parcelleService.getParcellesWithInsectes(apres, limite));
+    }
+
+    @GetMapping("/avec-dispositifs")
+    public ResponseEntity<PageDTO<ParcelleResumeDTO>> getParcellesAvecDispositifs(
+            @RequestParam(required = false) Long apres,
+            @RequestParam(defaultValue = "100") int limite) {
+        return ResponseEntity.ok(parcelleService.getParcellesWithDispositifs(apres, limite));
+    }
+
     // Dans ParcelleController.java
     @GetMapping("/{id}/voisines")
     public ResponseEntity<List<ParcelleDTO>> getParcellesVoisines(@PathVariable Long id) {
@@ -1,11 +1,14 @@
 package com.potager_simulation.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.potager_simulation.dto.PageDTO;
 import com.potager_simulation.dto.PlanteDTO;
 import com.potager_simulation.service.PlanteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -13,15 +16,26 @@ import java.util.List;
 @RequestMapping("/plantes")
 public class PlanteController {
     private final PlanteService planteService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public PlanteController(PlanteService planteService) {
+    public PlanteController(PlanteService planteService, ObjectMapper objectMapper) {
         this.planteService = planteService;
+        this.objectMapper = objectMapper;
     }
 
+    // Liste paginée : ?apres=<dernier id reçu>&limite=<taille de page>
     @GetMapping
-    public ResponseEntity<List<PlanteDTO>> getAllPlantes() {
-        return ResponseEntity.ok(planteService.getAllPlantes());
+    public ResponseEntity<PageDTO<PlanteDTO>> getPlantes(
+            @RequestParam(required = false) Long apres,
+            @RequestParam(defaultValue = "100") int limite) {
+        return ResponseEntity.ok(planteService.getPlantes(apres, limite));
+    }
+
+    // Tous les éléments en NDJSON, écrits au fil de la lecture
+    @GetMapping("/flux")
+    public ResponseEntity<StreamingResponseBody> getFluxPlantes() {
+        return ReponseNdjson.flux(objectMapper, planteService::parcourirPlantes);
     }
 
     @GetMapping("/{id}")
@@ -63,12 +77,7 @@ public class PlanteController {
 
     @GetMapping("/drageonnantes")
     public ResponseEntity<List<PlanteDTO>> getPlantesDrageonnantes() {
-        // Cette méthode nécessiterait d'ajouter une méthode correspondante dans PlanteService
-        // Pour l'instant, nous filtrons tous les plantes
-        List<PlanteDTO> plantes = planteService.getAllPlantes().stream()
-                .filter(PlanteDTO::isEstDrageonnante)
-                .toList();
-        return ResponseEntity.ok(plantes);
+        return ResponseEntity.ok(planteService.getPlantesDrageonnantes());
     }
 
     @PostMapping("/bulk")
@@ -81,20 +90,6 @@ public class PlanteController {
 
     @GetMapping("/count-by-espece")
     public ResponseEntity<List<Object[]>> countPlantesByEspece() {
-        // Cette méthode nécessiterait d'ajouter une méthode correspondante dans PlanteService et Repository
-        // Pour l'instant, nous calculons manuellement
-        var plantes = planteService.getAllPlantes();
-
-        // Groupe et compte les plantes par espèce
-        var countByEspece = plantes.stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        PlanteDTO::getEspece,
-                        java.util.stream.Collectors.counting()
-                ))
-                .entrySet().stream()
-                .map(entry -> new Object[]{entry.getKey(), entry.getValue()})
-                .toList();
-
-        return ResponseEntity.ok(countByEspece);
+        return ResponseEntity.ok(planteService.countPlantesByEspece());
     }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package com.potager_simulation.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Réponse en JSON délimité par des retours à la ligne (un objet par ligne), écrite
+ * au fil du parcours : aucun élément n'est conservé une fois envoyé
+ */
+final class ReponseNdjson {
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private ReponseNdjson() {
+    }
+
+    /**
+     * @param parcours parcourt les éléments en les passant au consommateur fourni
+     */
+    static <T> ResponseEntity<StreamingResponseBody> flux(ObjectMapper objectMapper, Consumer<Consumer<T>> parcours) {
+        StreamingResponseBody corps = sortie -> {
+            OutputStream tampon = new BufferedOutputStream(sortie, 64 * 1024);
+            try {
+                parcours.accept(element -> {
+                    try {
+                        tampon.write(objectMapper.writeValueAsBytes(element));
+                        tampon.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // Client déconnecté en cours de route
+                throw e.getCause();
+            }
+            tampon.flush();
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(corps);
+    }
+}
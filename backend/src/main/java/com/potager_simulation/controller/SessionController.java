@@ -0,0 +1,77 @@
+package com.potager_simulation.controller;
+
+import com.potager_simulation.dto.EtatPotagerDTO;
+import com.potager_simulation.dto.SessionDTO;
+import com.potager_simulation.dto.SimulationConfigDTO;
+import com.potager_simulation.engine.StatistiquesPotager;
+import com.potager_simulation.service.SessionsSimulation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Sessions de simulation : un potager privé par session, copié du potager partagé
+ * à sa création (voir {@link SessionsSimulation})
+ */
+@RestController
+@RequestMapping("/sessions")
+public class SessionController {
+    private final SessionsSimulation sessions;
+
+    @Autowired
+    public SessionController(SessionsSimulation sessions) {
+        this.sessions = sessions;
+    }
+
+    @PostMapping
+    public ResponseEntity<SessionDTO> creerSession(@RequestParam(required = false) Long graine) {
+        return new ResponseEntity<>(sessions.creer(graine), HttpStatus.CREATED);
+    }
+
+    @GetMapping
+    public ResponseEntity<List<SessionDTO>> getSessions() {
+        return ResponseEntity.ok(sessions.lister());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<SessionDTO> getSession(@PathVariable String id) {
+        return ResponseEntity.ok(sessions.getSession(id));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> supprimerSession(@PathVariable String id) {
+        sessions.supprimer(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/{id}/start")
+    public ResponseEntity<String> demarrer(@PathVariable String id, @RequestBody SimulationConfigDTO config) {
+        sessions.demarrer(id, config.delaiEntrePassMs(), config.getGraine());
+        return ResponseEntity.ok("Session démarrée");
+    }
+
+    @PostMapping("/{id}/stop")
+    public ResponseEntity<String> arreter(@PathVariable String id) {
+        sessions.arreter(id);
+        return ResponseEntity.ok("Session arrêtée");
+    }
+
+    @PostMapping("/{id}/pas")
+    public ResponseEntity<String> avancerUnPas(@PathVariable String id) {
+        sessions.executerPas(id);
+        return ResponseEntity.ok("Pas de simulation exécuté");
+    }
+
+    @GetMapping("/{id}/state")
+    public ResponseEntity<EtatPotagerDTO> getEtat(@PathVariable String id) {
+        return ResponseEntity.ok(sessions.getEtat(id));
+    }
+
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<StatistiquesPotager> getStatistiques(@PathVariable String id) {
+        return ResponseEntity.ok(sessions.getStatistiques(id));
+    }
+}
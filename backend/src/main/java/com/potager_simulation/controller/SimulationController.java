@@ -1,43 +1,108 @@
 package com.potager_simulation.controller;
 
-import com.potager_simulation.dto.EtatPotagerDTO;
+import com.potager_simulation.dto.MesuresOrdonnanceurDTO;
+import com.potager_simulation.dto.ResultatLotDTO;
+import com.potager_simulation.dto.ResultatScenariosDTO;
+import com.potager_simulation.dto.ScenarioDTO;
 import com.potager_simulation.dto.SimulationConfigDTO;
+import com.potager_simulation.engine.StatistiquesPotager;
+import com.potager_simulation.service.CacheEtatSimulation;
+import com.potager_simulation.service.HistoriqueStatistiques;
+import com.potager_simulation.service.ScenariosSimulation;
 import com.potager_simulation.service.SimulationDataService;
 import com.potager_simulation.service.SimulationManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/simulation")
 public class SimulationController {
     private final SimulationManager simulationManager;
     private final SimulationDataService dataService;
+    private final HistoriqueStatistiques historique;
+    private final CacheEtatSimulation cacheEtat;
+    private final ScenariosSimulation scenarios;
 
     @Autowired
     public SimulationController(
             SimulationManager simulationManager,
-            SimulationDataService dataService) {
+            SimulationDataService dataService,
+            HistoriqueStatistiques historique,
+            CacheEtatSimulation cacheEtat,
+            ScenariosSimulation scenarios) {
         this.simulationManager = simulationManager;
         this.dataService = dataService;
+        this.historique = historique;
+        this.cacheEtat = cacheEtat;
+        this.scenarios = scenarios;
     }
 
     @PostMapping("/start")
     public ResponseEntity<String> startSimulation(@RequestBody SimulationConfigDTO config) {
-        int delaiMs = 1000 / config.getSpeed(); // Convertir la vitesse en délai
-        simulationManager.demarrerSimulation(delaiMs);
+        simulationManager.demarrerSimulation(config.delaiEntrePassMs(), config.getGraine(), config.getPolitique());
         return ResponseEntity.ok("Simulation démarrée");
     }
 
+    /**
+     * Change la vitesse (et la politique si elle est précisée) sans arrêter la simulation
+     */
+    @PostMapping("/vitesse")
+    public ResponseEntity<String> modifierVitesse(@RequestBody SimulationConfigDTO config) {
+        simulationManager.modifierVitesse(config.delaiEntrePassMs(), config.getPolitique());
+        return ResponseEntity.ok("Vitesse modifiée");
+    }
+
+    /**
+     * Cadence réelle des pas : retard sur les échéances, durées, pas abandonnés
+     */
+    @GetMapping("/ordonnanceur")
+    public ResponseEntity<MesuresOrdonnanceurDTO> getMesuresOrdonnanceur() {
+        return ResponseEntity.ok(simulationManager.getMesuresOrdonnanceur());
+    }
+
     @PostMapping("/stop")
     public ResponseEntity<String> stopSimulation() {
         simulationManager.arreterSimulation();
         return ResponseEntity.ok("Simulation arrêtée");
     }
 
+    /**
+     * État du dernier pas, sérialisé une seule fois par pas ; un client qui renvoie
+     * l'ETag de l'état courant (If-None-Match) reçoit un 304 sans corps
+     */
     @GetMapping("/state")
-    public ResponseEntity<EtatPotagerDTO> getSimulationState() {
-        return ResponseEntity.ok(simulationManager.getEtatActuel());
+    public ResponseEntity<byte[]> getSimulationState(
+            @RequestHeader(value = "If-None-Match", required = false) String etagClient) {
+        CacheEtatSimulation.EtatSerialise etat = cacheEtat.obtenir(
+                simulationManager.getInstantane(), simulationManager.isSimulationEnCours());
+        // Le navigateur revalide à chaque requête, l'état change à chaque pas
+        CacheControl cacheControl = CacheControl.noCache();
+        // If-None-Match peut lister plusieurs ETags
+        if (etagClient != null && etagClient.contains(etat.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etat.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etat.etag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(etat.json());
+    }
+
+    /**
+     * Statistiques des derniers pas (voir potager.stats.historique), du plus ancien au plus récent
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<List<StatistiquesPotager>> getStatistiques() {
+        return ResponseEntity.ok(historique.derniers());
     }
 
     @PostMapping("/reset")
@@ -45,15 +110,35 @@ public class SimulationController {
         // 1. Arrêter la simulation en cours
         simulationManager.arreterSimulation();
 
-        // 2. Réinitialiser le compteur de pas dans SimulationManager
-        simulationManager.resetPasSimulation();
-
-        // 3. Nettoyer toutes les entités sans en recréer de nouvelles
-        dataService.reinitialiserPotager();
+        // 2. Nettoyer toutes les entités sans en recréer de nouvelles, puis réinitialiser
+        // le compteur de pas, sous le verrou de la simulation
+        simulationManager.reinitialiserPotager(dataService::reinitialiserPotager);
 
         return ResponseEntity.ok("Simulation réinitialisée");
     }
 
+    /**
+     * Exécute ticks pas aussi vite que possible ; l'état est publié tous les
+     * echantillon pas (0 : seulement à la fin). Répond quand le lot est terminé.
+     */
+    @PostMapping("/run")
+    public ResponseEntity<ResultatLotDTO> executerLot(
+            @RequestParam int ticks,
+            @RequestParam(defaultValue = "0") int echantillon,
+            @RequestParam(required = false) Long graine) {
+        return ResponseEntity.ok(simulationManager.executerLot(ticks, echantillon, graine));
+    }
+
+    /**
+     * Simule des répliques du potager actuel avec des graines différentes (et, au besoin,
+     * d'autres programmes) et renvoie la distribution des résultats ; la simulation
+     * en cours et la base ne sont pas modifiées
+     */
+    @PostMapping("/scenarios")
+    public ResponseEntity<ResultatScenariosDTO> executerScenarios(@RequestBody ScenarioDTO scenario) {
+        return ResponseEntity.ok(scenarios.executer(scenario));
+    }
+
     @PostMapping("/pas")
     public ResponseEntity<String> avancerUnPas() {
         simulationManager.executerPasSimulation();
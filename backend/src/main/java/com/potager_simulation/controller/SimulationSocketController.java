@@ -0,0 +1,65 @@
+package com.potager_simulation.controller;
+
+import com.potager_simulation.dto.VueDTO;
+import com.potager_simulation.service.SessionsSimulation;
+import com.potager_simulation.service.SimulationEventPublisher;
+import com.potager_simulation.service.SimulationManager;
+import com.potager_simulation.service.VuesSimulation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.stereotype.Controller;
+
+/**
+ * Messages STOMP envoyés par les clients sur /app
+ */
+@Controller
+public class SimulationSocketController {
+    private final SimulationManager simulationManager;
+    private final SimulationEventPublisher eventPublisher;
+    private final VuesSimulation vues;
+    private final SessionsSimulation sessions;
+
+    @Autowired
+    public SimulationSocketController(
+            SimulationManager simulationManager,
+            SimulationEventPublisher eventPublisher,
+            VuesSimulation vues,
+            SessionsSimulation sessions) {
+        this.simulationManager = simulationManager;
+        this.eventPublisher = eventPublisher;
+        this.vues = vues;
+        this.sessions = sessions;
+    }
+
+    /**
+     * Un client a manqué un message (ou vient de se connecter) : image complète pour lui seul,
+     * sur /user/queue/potager-updates
+     */
+    @MessageMapping("/simulation/resync")
+    public void resynchroniser(@Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        eventPublisher.envoyerImageCle(sessionId, simulationManager.getInstantane(),
+                simulationManager.isSimulationEnCours());
+    }
+
+    /**
+     * Même chose pour une session, sur /user/queue/sessions/{id}/potager-updates
+     */
+    @MessageMapping("/sessions/{id}/resync")
+    public void resynchroniserSession(@DestinationVariable String id,
+                                      @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        sessions.envoyerImageCle(id, sessionId);
+    }
+
+    /**
+     * Déclare (ou déplace) le rectangle affiché par ce client ; il reçoit aussitôt
+     * son contenu sur /user/queue/potager-vue, puis à chaque diffusion
+     */
+    @MessageMapping("/simulation/vue")
+    public void definirVue(VueDTO vue, @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        vues.definirVue(sessionId, vue);
+        vues.diffuser(sessionId, simulationManager.getInstantane(), simulationManager.isSimulationEnCours());
+    }
+}
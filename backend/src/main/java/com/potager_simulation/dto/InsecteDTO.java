@@ -38,6 +38,16 @@ public class InsecteDTO {
         this.passSansManger = passSansManger;
     }
 
+    // Utilisé par les projections JPQL, qui lisent la parcelle dans la même requête
+    public InsecteDTO(Long id, String espece, String sexe, int sante, double mobilite,
+                      double resistanceInsecticide, int passSansManger,
+                      Long parcelleId, int parcelleCoordX, int parcelleCoordY) {
+        this(id, espece, sexe, sante, mobilite, resistanceInsecticide, passSansManger);
+        this.parcelleId = parcelleId;
+        this.parcelleCoordX = parcelleCoordX;
+        this.parcelleCoordY = parcelleCoordY;
+    }
+
     // Getter personnalisé pour adapter aux attentes du frontend
     public int getIndiceBonneSante() {
         return this.sante;
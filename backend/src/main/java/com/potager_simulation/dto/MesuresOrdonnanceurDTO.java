@@ -0,0 +1,29 @@
+package com.potager_simulation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cadence des pas depuis le dernier démarrage (GET /simulation/ordonnanceur) ; durées en ms
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MesuresOrdonnanceurDTO {
+    private boolean enCours;
+    private double periodeMs;
+    private String politique;
+    private long pasExecutes;
+    // Pas qui ont fini après l'échéance du suivant
+    private long depassements;
+    // Échéances abandonnées par SAUTER, ou au-delà du rattrapage maximal
+    private long pasAbandonnes;
+    // Retard : écart entre l'échéance d'un pas et son début réel
+    private double retardDernierMs;
+    private double retardMoyenMs;
+    private double retardMaxMs;
+    private double dureeDernierMs;
+    private double dureeMoyenneMs;
+    private double dureeMaxMs;
+}
@@ -0,0 +1,72 @@
+package com.potager_simulation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message WebSocket de la simulation : soit une image complète (imageCle = true, etat
+ * renseigné), soit les seules différences avec le message précédent.
+ * Les messages sont numérotés ; un client qui constate un trou dans la numérotation
+ * demande une nouvelle image complète.
+ */
+@Data
+public class MiseAJourPotagerDTO {
+    private long sequence;
+    private boolean imageCle;
+    private int pasSimulation;
+    private boolean enCours;
+
+    // Image complète
+    private EtatPotagerDTO etat;
+
+    // Différences : chaque plante non listée dans plantesModifiees a vieilli de
+    // "vieillissement" pas depuis le message précédent
+    private int vieillissement;
+    private List<ParcelleModifiee> parcellesModifiees = new ArrayList<>();
+    private List<PlanteDTO> plantesAjoutees = new ArrayList<>();
+    private List<AgePlante> plantesModifiees = new ArrayList<>();
+    private List<InsecteDTO> insectesAjoutes = new ArrayList<>();
+    private List<Long> insectesRetires = new ArrayList<>();
+    private List<DeplacementInsecte> insectesDeplaces = new ArrayList<>();
+    private List<SanteInsecte> insectesModifies = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ParcelleModifiee {
+        private Long id;
+        private double tauxHumidite;
+        private String categorieHumidite;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AgePlante {
+        private Long id;
+        private int age;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DeplacementInsecte {
+        private Long id;
+        private Long parcelleId;
+        private int parcelleCoordX;
+        private int parcelleCoordY;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SanteInsecte {
+        private Long id;
+        private int sante;
+        private int passSansManger;
+    }
+}
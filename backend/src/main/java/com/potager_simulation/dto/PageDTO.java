@@ -0,0 +1,51 @@
+package com.potager_simulation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page d'une liste triée par identifiant. Pour la page suivante, passer
+ * {@code suivant} en paramètre {@code apres} ; null sur la dernière page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageDTO<T> {
+    public static final int TAILLE_MAX = 500;
+
+    private List<T> elements;
+    private Long suivant;
+
+    /**
+     * @return la taille de page demandée, bornée à {@link #TAILLE_MAX}
+     */
+    public static int taille(int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("La taille de page doit être positive: " + limite);
+        }
+        return Math.min(limite, TAILLE_MAX);
+    }
+
+    /**
+     * @return l'identifiant à partir duquel lire (exclu), pour le paramètre apres
+     */
+    public static long debut(Long apres) {
+        return apres != null ? apres : Long.MIN_VALUE;
+    }
+
+    /**
+     * @param lus jusqu'à taille + 1 éléments : le dernier, s'il est là, indique qu'il reste une page
+     */
+    public static <T> PageDTO<T> depuis(List<T> lus, int taille, Function<T, Long> identifiant) {
+        if (lus.size() <= taille) {
+            return new PageDTO<>(lus, null);
+        }
+        List<T> elements = new ArrayList<>(lus.subList(0, taille));
+        return new PageDTO<>(elements, identifiant.apply(elements.get(taille - 1)));
+    }
+}
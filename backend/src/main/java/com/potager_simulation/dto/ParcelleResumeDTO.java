@@ -0,0 +1,23 @@
+package com.potager_simulation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Résumé d'une parcelle pour les listes : ses colonnes et le nombre de ses plantes
+ * et insectes, lus directement en base, sans charger les entités
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParcelleResumeDTO {
+    private Long id;
+    private int x;
+    private int y;
+    private double tauxHumidite;
+    private long nombrePlantes;
+    private long nombreInsectes;
+    // Null si la parcelle n'a pas de dispositif
+    private Long dispositifId;
+}
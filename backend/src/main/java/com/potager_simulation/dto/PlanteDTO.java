@@ -35,6 +35,16 @@ public class PlanteDTO {
         this.probabiliteColonisation = probabiliteColonisation;
     }
 
+    // Utilisé par les projections JPQL, qui lisent la parcelle dans la même requête
+    public PlanteDTO(Long id, String espece, int age, int ageMaturite,
+                     boolean estDrageonnante, double probabiliteColonisation,
+                     Long parcelleId, int parcelleCoordX, int parcelleCoordY) {
+        this(id, espece, age, ageMaturite, estDrageonnante, probabiliteColonisation);
+        this.parcelleId = parcelleId;
+        this.parcelleCoordX = parcelleCoordX;
+        this.parcelleCoordY = parcelleCoordY;
+    }
+
     /**
      * Calcule le pourcentage de maturité de la plante
      * @return un pourcentage de maturité (de 0 à 100)
@@ -0,0 +1,21 @@
+package com.potager_simulation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Bilan d'une exécution en lot (POST /simulation/run)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultatLotDTO {
+    // Dernier pas avant le lot, et dernier pas exécuté
+    private int pasDebut;
+    private int pasFin;
+    private long dureeMs;
+    private double pasParSeconde;
+    // Nombre d'états publiés pendant le lot, le dernier compris
+    private int publications;
+}
@@ -0,0 +1,42 @@
+package com.potager_simulation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distribution des résultats des répliques d'un scénario, à la fin de leur dernier pas
+ */
+@Data
+public class ResultatScenariosDTO {
+    private int repliques;
+    private int pasDebut;
+    private int pasFin;
+    private long dureeMs;
+    // Graine de chaque réplique, pour en rejouer une
+    private List<Long> graines;
+
+    private Distribution nombreInsectes;
+    private Map<String, Distribution> insectesParEspece;
+    private Distribution nombrePlantes;
+    private Distribution plantesMatures;
+    private Distribution humiditeMoyenne;
+
+    /**
+     * Moyenne et quantiles d'un résultat sur l'ensemble des répliques
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Distribution {
+        private double moyenne;
+        private double min;
+        private double p10;
+        private double p50;
+        private double p90;
+        private double max;
+    }
+}
@@ -0,0 +1,20 @@
+package com.potager_simulation.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Demande de scénario : le potager actuel est copié en autant de répliques,
+ * simulées chacune avec sa propre graine
+ */
+@Data
+public class ScenarioDTO {
+    private int repliques = 100;
+    private int pas = 100;
+    // Graine dont sont tirées celles des répliques, tirée au hasard si absente
+    private Long graine;
+    // Programmes remplaçant, dans les répliques, ceux des dispositifs cités (dispositifId) ;
+    // les autres dispositifs gardent les leurs
+    private List<ProgrammeDTO> programmes;
+}
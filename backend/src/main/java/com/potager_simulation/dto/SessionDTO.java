@@ -0,0 +1,21 @@
+package com.potager_simulation.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Session de simulation : un potager privé, avec son propre pas et son propre topic
+ * (/topic/sessions/{id}/...)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionDTO {
+    private String id;
+    private int pasSimulation;
+    private boolean enCours;
+    private long graine;
+    // Faux si la session inactive a été écrite sur disque ; elle est relue au prochain accès
+    private boolean enMemoire;
+}
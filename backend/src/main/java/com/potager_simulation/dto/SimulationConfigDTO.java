@@ -5,4 +5,16 @@ import lombok.Data;
 @Data
 public class SimulationConfigDTO {
     private int speed = 1; // Vitesse de la simulation (1 = normale)
+    private Long graine; // Graine du générateur aléatoire, tirée au hasard si absente
+    private String politique; // Politique en cas de pas trop long (RATTRAPER, SAUTER, ETIRER), celle de la configuration si absente
+
+    /**
+     * Délai entre deux pas correspondant à la vitesse, au moins 1 ms
+     */
+    public int delaiEntrePassMs() {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("La vitesse doit être positive: " + speed);
+        }
+        return Math.max(1, 1000 / speed);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.potager_simulation.dto;
+
+import lombok.Data;
+
+/**
+ * Rectangle du potager affiché par un client, bornes incluses
+ */
+@Data
+public class VueDTO {
+    private int x0;
+    private int y0;
+    private int x1;
+    private int y1;
+}
@@ -0,0 +1,64 @@
+package com.potager_simulation.engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Générateur aléatoire d'une simulation, initialisé par une graine.
+ * Chaque plante et chaque insecte porte une clé stable ; à chaque phase d'un pas,
+ * il tire ses valeurs dans son propre flux, dérivé de (graine, pas, phase, clé).
+ * Les tirages ne dépendent donc ni de l'ordre de traitement ni du découpage
+ * entre threads : deux exécutions de même graine à partir du même potager
+ * donnent le même état (hors identifiants attribués par la base).
+ */
+public class AleaSimulation {
+    public static final int PHASE_TRAITEMENTS = 1;
+    public static final int PHASE_PLANTES = 2;
+    public static final int PHASE_INSECTES = 3;
+    public static final int TRAITEMENT_MANUEL = 4;
+
+    // Espaces de clés des entités chargées depuis la base
+    public static final int CLES_PLANTES = 1;
+    public static final int CLES_INSECTES = 2;
+
+    private final long graine;
+
+    public AleaSimulation(long graine) {
+        this.graine = graine;
+    }
+
+    public long getGraine() {
+        return graine;
+    }
+
+    /**
+     * @return le flux de l'entité de clé donnée pour une phase d'un pas
+     */
+    public SplittableRandom flux(int pas, int phase, long cle) {
+        return new SplittableRandom(melanger(melanger(graine, ((long) pas << 8) | phase), cle));
+    }
+
+    /**
+     * Clé d'une entité chargée depuis la base, dérivée de son identifiant
+     */
+    public static long cleEntite(long id, int espace) {
+        return melanger(espace, id);
+    }
+
+    /**
+     * Clé d'une entité née pendant la simulation : ne dépend que de son parent,
+     * du pas et de son rang parmi les naissances de ce parent au même pas
+     */
+    public static long cleDescendant(long cleParent, int pas, int rang) {
+        return melanger(cleParent, ((long) pas << 16) | rang);
+    }
+
+    /**
+     * Combine deux valeurs (finaliseur de SplitMix64)
+     */
+    public static long melanger(long a, long b) {
+        long z = a * 0x9E3779B97F4A7C15L + b;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,66 @@
+package com.potager_simulation.engine;
+
+import java.util.Arrays;
+
+/**
+ * Nombre d'insectes par cellule et par espèce, et par couple (espèce, sexe) pour
+ * les sexes M et F, tenu à jour au fil des naissances, déplacements et morts.
+ * Un insecte M ou F a un partenaire possible dans une cellule s'il existe un insecte
+ * de même espèce et de sexe différent, soit total(espèce) - nombre(espèce, sexe) > 0.
+ * Les insectes sans espèce ou sans sexe ne sont pas comptés, comme ils n'étaient
+ * jamais retenus par la requête findByParcelleAndEspeceAndSexeNot.
+ */
+class ComptageInsectes {
+    private final int[][] parEspece;
+    private final int[][] parSexe;
+
+    ComptageInsectes(int nombreCellules) {
+        this.parEspece = new int[nombreCellules][];
+        this.parSexe = new int[nombreCellules][];
+    }
+
+    void ajouter(int cellule, short espece, byte sexe) {
+        modifier(cellule, espece, sexe, 1);
+    }
+
+    void retirer(int cellule, short espece, byte sexe) {
+        modifier(cellule, espece, sexe, -1);
+    }
+
+    /**
+     * @return le nombre d'insectes de l'espèce ayant un sexe renseigné
+     */
+    int total(int cellule, short espece) {
+        return valeur(parEspece[cellule], espece);
+    }
+
+    /**
+     * @param sexe MALE ou FEMELLE
+     */
+    int nombre(int cellule, short espece, byte sexe) {
+        return valeur(parSexe[cellule], 2 * espece + sexe);
+    }
+
+    private void modifier(int cellule, short espece, byte sexe, int delta) {
+        if (espece < 0 || sexe == PopulationInsectes.SEXE_ABSENT) {
+            return;
+        }
+        parEspece[cellule] = agrandir(parEspece[cellule], espece + 1);
+        parEspece[cellule][espece] += delta;
+        if (sexe == PopulationInsectes.MALE || sexe == PopulationInsectes.FEMELLE) {
+            parSexe[cellule] = agrandir(parSexe[cellule], 2 * espece + 2);
+            parSexe[cellule][2 * espece + sexe] += delta;
+        }
+    }
+
+    private static int valeur(int[] compteurs, int indice) {
+        return compteurs == null || indice < 0 || indice >= compteurs.length ? 0 : compteurs[indice];
+    }
+
+    private static int[] agrandir(int[] compteurs, int taille) {
+        if (compteurs == null) {
+            return new int[taille];
+        }
+        return compteurs.length >= taille ? compteurs : Arrays.copyOf(compteurs, taille);
+    }
+}
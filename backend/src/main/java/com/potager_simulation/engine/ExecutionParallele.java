@@ -0,0 +1,92 @@
+package com.potager_simulation.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Découpe une phase du pas en bandes contiguës traitées en parallèle.
+ * Chaque bande écrit dans sa propre boîte de sortie ; les résultats sont rendus
+ * dans l'ordre des bandes, leur fusion reproduit donc exactement le parcours
+ * séquentiel. Avec un parallélisme de 1, tout s'exécute dans le thread appelant.
+ */
+public class ExecutionParallele {
+    // En dessous, le découpage coûte plus qu'il ne rapporte
+    private static final int TAILLE_MIN_BANDE = 4096;
+
+    private final ForkJoinPool pool;
+    private final int parallelisme;
+    private final int tailleMinBande;
+
+    /**
+     * @param pool pool d'exécution, null pour une exécution séquentielle
+     */
+    public ExecutionParallele(ForkJoinPool pool) {
+        this(pool, TAILLE_MIN_BANDE);
+    }
+
+    ExecutionParallele(ForkJoinPool pool, int tailleMinBande) {
+        this.pool = pool;
+        this.parallelisme = pool == null ? 1 : pool.getParallelism();
+        this.tailleMinBande = tailleMinBande;
+    }
+
+    public static ExecutionParallele sequentielle() {
+        return new ExecutionParallele(null);
+    }
+
+    @FunctionalInterface
+    public interface TacheBande<R> {
+        R executer(int debut, int fin);
+    }
+
+    /**
+     * Bornes d'un découpage de [0, nombre) en bandes de tailles égales :
+     * la bande b est [bornes[b], bornes[b + 1])
+     */
+    public int[] bornes(int nombre) {
+        int bandes = Math.max(1, Math.min(parallelisme * 4, nombre / tailleMinBande));
+        int[] bornes = new int[bandes + 1];
+        for (int b = 1; b < bandes; b++) {
+            bornes[b] = (int) ((long) nombre * b / bandes);
+        }
+        bornes[bandes] = nombre;
+        return bornes;
+    }
+
+    /**
+     * Exécute la tâche sur chaque bande [bornes[b], bornes[b + 1])
+     * @return les résultats des bandes, dans l'ordre des bandes
+     */
+    public <R> List<R> executer(int[] bornes, TacheBande<R> tache) {
+        int bandes = bornes.length - 1;
+        List<R> resultats = new ArrayList<>(bandes);
+        if (pool == null || bandes == 1) {
+            for (int b = 0; b < bandes; b++) {
+                resultats.add(tache.executer(bornes[b], bornes[b + 1]));
+            }
+            return resultats;
+        }
+
+        List<Callable<R>> taches = new ArrayList<>(bandes);
+        for (int b = 0; b < bandes; b++) {
+            int debut = bornes[b];
+            int fin = bornes[b + 1];
+            taches.add(() -> tache.executer(debut, fin));
+        }
+        try {
+            for (Future<R> resultat : pool.invokeAll(taches)) {
+                resultats.add(resultat.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Pas de simulation interrompu", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Erreur dans une bande de la simulation", e.getCause());
+        }
+        return resultats;
+    }
+}
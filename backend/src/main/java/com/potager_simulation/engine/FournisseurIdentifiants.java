@@ -0,0 +1,11 @@
+package com.potager_simulation.engine;
+
+/**
+ * Attribue les identifiants des plantes et insectes nés pendant la simulation,
+ * sans aller-retour vers la base à chaque naissance.
+ */
+public interface FournisseurIdentifiants {
+    long prochainIdPlante();
+
+    long prochainIdInsecte();
+}
@@ -0,0 +1,237 @@
+package com.potager_simulation.engine;
+
+import com.potager_simulation.model.Parcelle;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Topologie du potager : position de chaque parcelle dans une grille dense
+ * et table des voisins précalculée.
+ * Une cellule est repérée par son indice (x - origineX) * hauteur + (y - origineY) ;
+ * les voisins de la cellule c sont voisins[debutVoisins[c] .. debutVoisins[c + 1]).
+ * Les bords et les trous de la grille sont traités à la construction, la recherche
+ * d'un voisin se réduit donc à un accès tableau.
+ */
+public class GrillePotager {
+    private final int origineX;
+    private final int origineY;
+    private final int largeur;
+    private final int hauteur;
+    private final int nombreParcelles;
+    private final boolean[] presente;
+    private final int[] debutVoisins;
+    private final int[] voisins;
+
+    private GrillePotager(int origineX, int origineY, int largeur, int hauteur, List<Parcelle> parcelles) {
+        this.origineX = origineX;
+        this.origineY = origineY;
+        this.largeur = largeur;
+        this.hauteur = hauteur;
+        this.nombreParcelles = parcelles.size();
+        this.presente = new boolean[largeur * hauteur];
+        for (Parcelle p : parcelles) {
+            presente[(p.getX() - origineX) * hauteur + (p.getY() - origineY)] = true;
+        }
+
+        this.debutVoisins = new int[presente.length + 1];
+        int[] tampon = new int[presente.length * 8];
+        int n = 0;
+        for (int c = 0; c < presente.length; c++) {
+            debutVoisins[c] = n;
+            if (!presente[c]) {
+                continue;
+            }
+            int i = c / hauteur;
+            int j = c % hauteur;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) {
+                        continue;
+                    }
+                    int vi = i + dx;
+                    int vj = j + dy;
+                    if (vi < 0 || vj < 0 || vi >= largeur || vj >= hauteur) {
+                        continue;
+                    }
+                    int v = vi * hauteur + vj;
+                    if (presente[v]) {
+                        tampon[n++] = v;
+                    }
+                }
+            }
+        }
+        debutVoisins[presente.length] = n;
+        this.voisins = Arrays.copyOf(tampon, n);
+    }
+
+    /**
+     * Taille au-delà de laquelle la table des voisins (huit entrées par cellule)
+     * ne tient plus dans un tableau
+     */
+    public static final long CELLULES_MAX = (Integer.MAX_VALUE - 8) / 8;
+
+    public static GrillePotager depuis(List<Parcelle> parcelles) {
+        return depuis(parcelles, CELLULES_MAX);
+    }
+
+    /**
+     * @param cellulesMax nombre de cellules au plus du rectangle qui englobe les parcelles
+     *                    (voir {@link #nombreCellules(int, int, int, int)}), borné par CELLULES_MAX
+     * @throws IllegalStateException si les parcelles sont trop éloignées les unes des autres
+     */
+    public static GrillePotager depuis(List<Parcelle> parcelles, long cellulesMax) {
+        if (parcelles.isEmpty()) {
+            return new GrillePotager(0, 0, 0, 0, parcelles);
+        }
+        // Origine au coin des parcelles et non en (0, 0) : un potager éloigné de l'origine
+        // n'alloue pas les cellules vides qui l'en séparent
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (Parcelle p : parcelles) {
+            minX = Math.min(minX, p.getX());
+            minY = Math.min(minY, p.getY());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+        }
+        long cellules = nombreCellules(minX, minY, maxX, maxY);
+        if (cellules > Math.min(cellulesMax, CELLULES_MAX)) {
+            throw new IllegalStateException("Potager trop étendu: " + cellules + " cellules de (" + minX + "," + minY
+                    + ") à (" + maxX + "," + maxY + "), au plus " + Math.min(cellulesMax, CELLULES_MAX));
+        }
+        return new GrillePotager(minX, minY, maxX - minX + 1, maxY - minY + 1, parcelles);
+    }
+
+    /**
+     * Cellules de la grille dense du rectangle [minX, maxX] x [minY, maxY], calculées
+     * sans débordement (Long.MAX_VALUE au-delà)
+     */
+    public static long nombreCellules(int minX, int minY, int maxX, int maxY) {
+        long largeur = (long) maxX - minX + 1;
+        long hauteur = (long) maxY - minY + 1;
+        try {
+            return Math.multiplyExact(largeur, hauteur);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Vérifie que la grille décrit exactement ces parcelles (mêmes coordonnées)
+     */
+    public boolean correspondA(List<Parcelle> parcelles) {
+        if (parcelles.size() != nombreParcelles) {
+            return false;
+        }
+        for (Parcelle p : parcelles) {
+            if (indice(p.getX(), p.getY()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return l'indice de la cellule (x, y), ou -1 si aucune parcelle n'y existe
+     */
+    public int indice(int x, int y) {
+        int i = x - origineX;
+        int j = y - origineY;
+        if (i < 0 || j < 0 || i >= largeur || j >= hauteur) {
+            return -1;
+        }
+        int c = i * hauteur + j;
+        return presente[c] ? c : -1;
+    }
+
+    /**
+     * Cellules dont la distance à (x, y) est inférieure ou égale au rayon,
+     * équivalent en mémoire de ParcelleRepository.findParcellesDansRayon.
+     * Seule la partie du carré englobant qui recouvre la grille est parcourue.
+     */
+    public int[] cellulesDansRayon(int x, int y, int rayon) {
+        if (rayon < 0) {
+            return new int[0];
+        }
+        int i0 = (int) Math.max((long) x - rayon - origineX, 0);
+        int j0 = (int) Math.max((long) y - rayon - origineY, 0);
+        int i1 = (int) Math.min((long) x + rayon - origineX, largeur - 1);
+        int j1 = (int) Math.min((long) y + rayon - origineY, hauteur - 1);
+        if (i1 < i0 || j1 < j0) {
+            return new int[0];
+        }
+        long rayonCarre = (long) rayon * rayon;
+        int[] tampon = new int[(i1 - i0 + 1) * (j1 - j0 + 1)];
+        int n = 0;
+        for (int i = i0; i <= i1; i++) {
+            long dx = (long) i + origineX - x;
+            for (int j = j0; j <= j1; j++) {
+                long dy = (long) j + origineY - y;
+                int c = i * hauteur + j;
+                if (dx * dx + dy * dy <= rayonCarre && presente[c]) {
+                    tampon[n++] = c;
+                }
+            }
+        }
+        return Arrays.copyOf(tampon, n);
+    }
+
+    /**
+     * Cellules du rectangle [x0, x1] x [y0, y1] (bornes incluses) où une parcelle existe,
+     * en ne parcourant que la partie du rectangle qui recouvre la grille
+     */
+    public int[] cellulesDansRectangle(int x0, int y0, int x1, int y1) {
+        int i0 = Math.max(x0 - origineX, 0);
+        int j0 = Math.max(y0 - origineY, 0);
+        int i1 = Math.min(x1 - origineX, largeur - 1);
+        int j1 = Math.min(y1 - origineY, hauteur - 1);
+        if (i1 < i0 || j1 < j0) {
+            return new int[0];
+        }
+        int[] tampon = new int[(i1 - i0 + 1) * (j1 - j0 + 1)];
+        int n = 0;
+        for (int i = i0; i <= i1; i++) {
+            for (int j = j0; j <= j1; j++) {
+                int c = i * hauteur + j;
+                if (presente[c]) {
+                    tampon[n++] = c;
+                }
+            }
+        }
+        return Arrays.copyOf(tampon, n);
+    }
+
+    public int getX(int cellule) {
+        return origineX + cellule / hauteur;
+    }
+
+    public int getY(int cellule) {
+        return origineY + cellule % hauteur;
+    }
+
+    public int nombreVoisins(int cellule) {
+        return debutVoisins[cellule + 1] - debutVoisins[cellule];
+    }
+
+    /**
+     * @return l'indice du k-ième voisin de la cellule, 0 <= k < nombreVoisins(cellule)
+     */
+    public int voisin(int cellule, int k) {
+        return voisins[debutVoisins[cellule] + k];
+    }
+
+    /**
+     * @return le nombre de cellules de la grille, trous compris
+     */
+    public int getTaille() {
+        return presente.length;
+    }
+
+    public int getLargeur() {
+        return largeur;
+    }
+
+    public int getHauteur() {
+        return hauteur;
+    }
+}
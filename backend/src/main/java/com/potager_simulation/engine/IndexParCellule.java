@@ -0,0 +1,37 @@
+package com.potager_simulation.engine;
+
+import java.util.Arrays;
+
+/**
+ * Regroupement des éléments d'une population par cellule (tri par comptage) :
+ * les éléments de la cellule c sont ordre[debut[c] .. debut[c + 1]).
+ */
+public record IndexParCellule(int[] debut, int[] ordre) {
+
+    static IndexParCellule depuis(int[] cellules, int taille, int nombreCellules) {
+        int[] debut = new int[nombreCellules + 1];
+        for (int i = 0; i < taille; i++) {
+            debut[cellules[i] + 1]++;
+        }
+        for (int c = 0; c < nombreCellules; c++) {
+            debut[c + 1] += debut[c];
+        }
+        int[] position = Arrays.copyOf(debut, nombreCellules);
+        int[] ordre = new int[taille];
+        for (int i = 0; i < taille; i++) {
+            ordre[position[cellules[i]]++] = i;
+        }
+        return new IndexParCellule(debut, ordre);
+    }
+
+    public int nombre(int cellule) {
+        return debut[cellule + 1] - debut[cellule];
+    }
+
+    /**
+     * @return le k-ième élément de la cellule, 0 <= k < nombre(cellule)
+     */
+    public int element(int cellule, int k) {
+        return ordre[debut[cellule] + k];
+    }
+}
@@ -0,0 +1,205 @@
+package com.potager_simulation.engine;
+
+import com.potager_simulation.model.DispositifTraitement;
+import com.potager_simulation.model.Parcelle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * État du potager à la fin d'un pas, figé : le moteur continue de modifier le
+ * {@link MondeSimulation} pendant que les lecteurs (API REST, WebSocket) parcourent
+ * cette copie sans verrou. Les populations sont copiées colonne par colonne et ne
+ * sont jamais exposées ; les dispositifs sont partagés, le moteur ne les modifie pas.
+ */
+public final class InstantaneMonde {
+    private final int pas;
+    // Monde d'origine, seulement comparé : deux états du même monde gardent les mêmes
+    // parcelles et les mêmes positions de plantes
+    private final MondeSimulation source;
+    private final GrillePotager grille;
+    // Cellules des parcelles, dans l'ordre de chargement
+    private final int[] cellulesParcelles;
+    private final long[] idParcelles;
+    private final double[] humidite;
+    private final DispositifTraitement[] dispositifs;
+    private final PopulationPlantes plantes;
+    private final PopulationInsectes insectes;
+    private final StatistiquesPotager statistiques;
+    // Index par cellule, calculés à la première demande (en O(population), hors du pas)
+    // puis partagés par tous les lecteurs
+    private volatile IndexParCellule plantesParCellule;
+    private volatile IndexParCellule insectesParCellule;
+
+    InstantaneMonde(int pas, MondeSimulation monde) {
+        this.pas = pas;
+        this.source = monde;
+        this.grille = monde.getGrille();
+
+        List<Parcelle> parcelles = monde.getParcelles();
+        this.cellulesParcelles = new int[parcelles.size()];
+        this.idParcelles = new long[grille.getTaille()];
+        this.humidite = new double[grille.getTaille()];
+        this.dispositifs = new DispositifTraitement[grille.getTaille()];
+        // L'histogramme d'humidité est calculé pendant la copie des parcelles
+        int[] histogramme = new int[5];
+        double humiditeTotale = 0;
+        for (int k = 0; k < parcelles.size(); k++) {
+            Parcelle parcelle = parcelles.get(k);
+            int cellule = monde.indiceDe(parcelle);
+            cellulesParcelles[k] = cellule;
+            idParcelles[cellule] = parcelle.getId();
+            humidite[cellule] = parcelle.getTauxHumidite();
+            dispositifs[cellule] = parcelle.getDispositifTraitement();
+            histogramme[Math.max(0, Math.min(4, (int) (parcelle.getTauxHumidite() / 20)))]++;
+            humiditeTotale += parcelle.getTauxHumidite();
+        }
+
+        this.plantes = new PopulationPlantes(monde.getPlantes());
+        this.insectes = new PopulationInsectes(monde.getInsectes());
+
+        List<Integer> tranches = new ArrayList<>(histogramme.length);
+        for (int nombre : histogramme) {
+            tranches.add(nombre);
+        }
+        this.statistiques = new StatistiquesPotager(pas, parcelles.size(),
+                plantes.getTaille(), plantes.getNombreMatures(), insectes.getTaille(),
+                Collections.unmodifiableMap(plantes.effectifsParEspece()),
+                Collections.unmodifiableMap(insectes.effectifsParEspece()),
+                monde.getNaissancesDuPas(), monde.getMortsDuPas(), monde.getPoussesDuPas(),
+                monde.getDispositifsActifs(),
+                parcelles.isEmpty() ? 0 : humiditeTotale / parcelles.size(),
+                Collections.unmodifiableList(tranches));
+    }
+
+    public int getPas() {
+        return pas;
+    }
+
+    /**
+     * @return vrai si les deux états viennent du même modèle en mémoire (sans rechargement entre eux)
+     */
+    public boolean memeMonde(InstantaneMonde autre) {
+        return autre != null && autre.source == source;
+    }
+
+    public StatistiquesPotager getStatistiques() {
+        return statistiques;
+    }
+
+    public GrillePotager getGrille() {
+        return grille;
+    }
+
+    public int getNombreParcelles() {
+        return cellulesParcelles.length;
+    }
+
+    /**
+     * @return la cellule de la k-ième parcelle, dans l'ordre de chargement
+     */
+    public int getCelluleParcelle(int k) {
+        return cellulesParcelles[k];
+    }
+
+    public long getIdParcelle(int cellule) {
+        return idParcelles[cellule];
+    }
+
+    public double getTauxHumidite(int cellule) {
+        return humidite[cellule];
+    }
+
+    /**
+     * @return le dispositif de la parcelle, ou null
+     */
+    public DispositifTraitement getDispositif(int cellule) {
+        return dispositifs[cellule];
+    }
+
+    /**
+     * @return les plantes regroupées par cellule ; calculé une fois par état
+     */
+    public IndexParCellule indexerPlantes() {
+        IndexParCellule index = plantesParCellule;
+        if (index == null) {
+            // Deux lecteurs simultanés peuvent le calculer chacun : le résultat est le même
+            index = plantes.indexerParCellule();
+            plantesParCellule = index;
+        }
+        return index;
+    }
+
+    public int getNombrePlantes() {
+        return plantes.getTaille();
+    }
+
+    public long getIdPlante(int i) {
+        return plantes.getId(i);
+    }
+
+    public TypePlante getTypePlante(int i) {
+        return plantes.getType(i);
+    }
+
+    public int getAgePlante(int i) {
+        return plantes.getAge(i);
+    }
+
+    public boolean estMature(int i) {
+        return plantes.estMature(i);
+    }
+
+    public int getCellulePlante(int i) {
+        return plantes.getCellule(i);
+    }
+
+    /**
+     * @return les insectes regroupés par cellule ; calculé une fois par état
+     */
+    public IndexParCellule indexerInsectes() {
+        IndexParCellule index = insectesParCellule;
+        if (index == null) {
+            index = insectes.indexerParCellule(grille.getTaille());
+            insectesParCellule = index;
+        }
+        return index;
+    }
+
+    public int getNombreInsectes() {
+        return insectes.getTaille();
+    }
+
+    public long getIdInsecte(int i) {
+        return insectes.getId(i);
+    }
+
+    public String getEspeceInsecte(int i) {
+        return insectes.getEspece(i);
+    }
+
+    public String getSexeInsecte(int i) {
+        return insectes.getSexe(i);
+    }
+
+    public int getSanteInsecte(int i) {
+        return insectes.getSante(i);
+    }
+
+    public int getPassSansManger(int i) {
+        return insectes.getPassSansManger(i);
+    }
+
+    public double getMobiliteInsecte(int i) {
+        return insectes.getMobilite(i);
+    }
+
+    public double getResistanceInsecticide(int i) {
+        return insectes.getResistanceInsecticide(i);
+    }
+
+    public int getCelluleInsecte(int i) {
+        return insectes.getCellule(i);
+    }
+}
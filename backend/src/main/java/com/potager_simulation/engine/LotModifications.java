@@ -0,0 +1,40 @@
+package com.potager_simulation.engine;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Modifications du modèle en mémoire accumulées depuis la dernière écriture en base.
+ * Les lignes sont des copies des valeurs au moment de la collecte : le lot peut être
+ * écrit par un autre thread pendant que la simulation continue.
+ */
+public record LotModifications(
+        List<LigneParcelle> parcelles,
+        List<LignePlante> plantesInserees,
+        List<LignePlante> plantesModifiees,
+        List<LigneInsecte> insectesInseres,
+        List<LigneInsecte> insectesModifies,
+        List<Long> insectesSupprimes,
+        CompletableFuture<Void> ecrit) {
+
+    public record LigneParcelle(long id, double tauxHumidite) {
+    }
+
+    public record LignePlante(long id, String espece, int age, int ageMaturite, boolean estDrageonnante,
+                              double probabiliteColonisation, long parcelleId) {
+    }
+
+    public record LigneInsecte(long id, String espece, String sexe, int sante, double mobilite,
+                               double resistanceInsecticide, int passSansManger, long parcelleId) {
+    }
+
+    public boolean estVide() {
+        return parcelles.isEmpty() && plantesInserees.isEmpty() && plantesModifiees.isEmpty()
+                && insectesInseres.isEmpty() && insectesModifies.isEmpty() && insectesSupprimes.isEmpty();
+    }
+
+    public int taille() {
+        return parcelles.size() + plantesInserees.size() + plantesModifiees.size()
+                + insectesInseres.size() + insectesModifies.size() + insectesSupprimes.size();
+    }
+}
@@ -0,0 +1,505 @@
+package com.potager_simulation.engine;
+
+import com.potager_simulation.model.DispositifTraitement;
+import com.potager_simulation.model.Insecte;
+import com.potager_simulation.model.Parcelle;
+import com.potager_simulation.model.Plante;
+import com.potager_simulation.model.Programme;
+import com.potager_simulation.model.enums.TypeTraitement;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Modèle du potager résident en mémoire pendant la simulation.
+ * Les parcelles sont rangées dans une grille dense indexée par {@link GrillePotager} ;
+ * plantes et insectes sont dans une {@link PopulationPlantes} et une
+ * {@link PopulationInsectes} qui repèrent leur parcelle par son indice de cellule.
+ * Le moteur ne fait aucun appel JPA : la base n'est alimentée que par
+ * {@link com.potager_simulation.service.SimulationPersistenceService}.
+ */
+public class MondeSimulation {
+    // Format de ecrire / lire
+    private static final int VERSION_FORMAT = 1;
+
+    private final GrillePotager grille;
+    private final Parcelle[] cellules;
+
+    private final List<Parcelle> parcelles;
+    private final List<Parcelle> parcellesAvecDispositif = new ArrayList<>();
+    private final PopulationPlantes plantes;
+    private final PopulationInsectes insectes;
+    private final FournisseurIdentifiants identifiants;
+    private final ComptageInsectes comptage;
+
+    // Suivi des modifications depuis la dernière collecte (voir collecterModifications)
+    private final BitSet parcellesModifiees = new BitSet();
+    private final List<Long> insectesSupprimes = new ArrayList<>();
+
+    // Compteurs du pas en cours (statistiques), remis à zéro par commencerPas
+    private int naissancesDuPas = 0;
+    private int mortsDuPas = 0;
+    private int poussesDuPas = 0;
+    private int dispositifsActifs = 0;
+
+    /**
+     * Construit le modèle à partir de parcelles dont les plantes, insectes
+     * et dispositifs sont déjà chargés, placées selon une grille qui leur correspond.
+     */
+    public MondeSimulation(GrillePotager grille, List<Parcelle> parcelles, FournisseurIdentifiants identifiants) {
+        this.grille = grille;
+        this.identifiants = identifiants;
+        this.parcelles = new ArrayList<>(parcelles);
+        this.cellules = new Parcelle[grille.getTaille()];
+        this.comptage = new ComptageInsectes(grille.getTaille());
+        this.plantes = new PopulationPlantes(grille.getTaille(),
+                parcelles.stream().mapToInt(p -> p.getPlantes().size()).sum());
+        this.insectes = new PopulationInsectes(parcelles.stream().mapToInt(p -> p.getInsectes().size()).sum());
+
+        for (Parcelle p : parcelles) {
+            int cellule = grille.indice(p.getX(), p.getY());
+            cellules[cellule] = p;
+            for (Plante plante : p.getPlantes()) {
+                TypePlante type = new TypePlante(plante.getEspece(), plante.getAgeMaturite(),
+                        plante.isEstDrageonnante(), plante.getProbabiliteColonisation());
+                plantes.ajouter(plante.getId(), AleaSimulation.cleEntite(plante.getId(), AleaSimulation.CLES_PLANTES),
+                        type, plante.getAge(), cellule, false);
+            }
+            for (Insecte insecte : p.getInsectes()) {
+                int i = insectes.ajouter(insecte.getId(),
+                        AleaSimulation.cleEntite(insecte.getId(), AleaSimulation.CLES_INSECTES), insecte.getEspece(), insecte.getSexe(),
+                        insecte.getSante(), insecte.getMobilite(), insecte.getResistanceInsecticide(),
+                        insecte.getPassSansManger(), cellule, false);
+                comptage.ajouter(cellule, insectes.getIndiceEspece(i), insectes.getCodeSexe(i));
+            }
+            // Les populations font foi pendant la simulation : les entités ne sont plus retenues
+            p.getPlantes().clear();
+            p.getInsectes().clear();
+            if (p.getDispositifTraitement() != null) {
+                parcellesAvecDispositif.add(p);
+            }
+        }
+    }
+
+    /**
+     * Copie indépendante du monde, pour simuler un autre avenir sans toucher à celui-ci
+     * (scénarios). Parcelles, dispositifs et populations sont copiés ; les programmes,
+     * que le moteur ne fait que lire, sont partagés. La copie n'a pas de modifications
+     * en attente d'écriture.
+     */
+    public MondeSimulation copier(FournisseurIdentifiants identifiantsCopie) {
+        return new MondeSimulation(this, identifiantsCopie);
+    }
+
+    private MondeSimulation(MondeSimulation source, FournisseurIdentifiants identifiants) {
+        this.grille = source.grille;
+        this.identifiants = identifiants;
+        this.parcelles = new ArrayList<>(source.parcelles.size());
+        this.cellules = new Parcelle[grille.getTaille()];
+        this.comptage = new ComptageInsectes(grille.getTaille());
+        this.plantes = new PopulationPlantes(grille.getTaille(), source.plantes.getTaille());
+        this.insectes = new PopulationInsectes(source.insectes.getTaille());
+
+        for (Parcelle p : source.parcelles) {
+            Parcelle copie = new Parcelle();
+            copie.setId(p.getId());
+            copie.setX(p.getX());
+            copie.setY(p.getY());
+            copie.setTauxHumidite(p.getTauxHumidite());
+            DispositifTraitement dispositif = p.getDispositifTraitement();
+            if (dispositif != null) {
+                DispositifTraitement copieDispositif = new DispositifTraitement();
+                copieDispositif.setId(dispositif.getId());
+                copieDispositif.setRayon(dispositif.getRayon());
+                copieDispositif.setProgrammes(new ArrayList<>(dispositif.getProgrammes()));
+                copieDispositif.setParcelle(copie);
+                copie.setDispositifTraitement(copieDispositif);
+                parcellesAvecDispositif.add(copie);
+            }
+            parcelles.add(copie);
+            cellules[indiceDe(copie)] = copie;
+        }
+
+        PopulationPlantes plantesSource = source.plantes;
+        for (int i = 0; i < plantesSource.getTaille(); i++) {
+            plantes.ajouter(plantesSource.getId(i), plantesSource.getCle(i), plantesSource.getType(i),
+                    plantesSource.getAge(i), plantesSource.getCellule(i), false);
+        }
+        PopulationInsectes insectesSource = source.insectes;
+        for (int i = 0; i < insectesSource.getTaille(); i++) {
+            int j = insectes.ajouter(insectesSource.getId(i), insectesSource.getCle(i),
+                    insectesSource.getEspece(i), insectesSource.getSexe(i), insectesSource.getSante(i),
+                    insectesSource.getMobilite(i), insectesSource.getResistanceInsecticide(i),
+                    insectesSource.getPassSansManger(i), insectesSource.getCellule(i), false);
+            comptage.ajouter(insectesSource.getCellule(i), insectes.getIndiceEspece(j), insectes.getCodeSexe(j));
+        }
+    }
+
+    public GrillePotager getGrille() {
+        return grille;
+    }
+
+    /**
+     * @return la parcelle aux coordonnées (x, y), ou null s'il n'y en a pas
+     */
+    public Parcelle getParcelle(int x, int y) {
+        int cellule = grille.indice(x, y);
+        return cellule < 0 ? null : cellules[cellule];
+    }
+
+    public Parcelle getParcelle(int cellule) {
+        return cellules[cellule];
+    }
+
+    public int indiceDe(Parcelle parcelle) {
+        return grille.indice(parcelle.getX(), parcelle.getY());
+    }
+
+    /**
+     * @return le dispositif d'identifiant donné, ou null s'il n'est pas dans le potager
+     */
+    public DispositifTraitement getDispositif(Long id) {
+        for (Parcelle parcelle : parcellesAvecDispositif) {
+            if (parcelle.getDispositifTraitement().getId().equals(id)) {
+                return parcelle.getDispositifTraitement();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remet à zéro les compteurs du pas (naissances, morts, pousses, dispositifs actifs)
+     */
+    public void commencerPas() {
+        naissancesDuPas = 0;
+        mortsDuPas = 0;
+        poussesDuPas = 0;
+        dispositifsActifs = 0;
+    }
+
+    public void setDispositifsActifs(int nombre) {
+        dispositifsActifs = nombre;
+    }
+
+    /**
+     * Fait pousser une plante de même type que le parent dans une cellule
+     * et lui attribue son identifiant
+     * @param rang rang de la pousse parmi celles du même parent à ce pas
+     */
+    public void ajouterPousse(int parent, int cellule, int pas, int rang) {
+        plantes.ajouterPousse(identifiants.prochainIdPlante(),
+                AleaSimulation.cleDescendant(plantes.getCle(parent), pas, rang), parent, cellule);
+        poussesDuPas++;
+    }
+
+    /**
+     * Fait naître le petit de l'insecte parent dans une cellule et lui attribue son identifiant
+     */
+    public void ajouterNaissance(int parent, byte sexe, int cellule, int pas) {
+        int i = insectes.ajouterNaissance(identifiants.prochainIdInsecte(),
+                AleaSimulation.cleDescendant(insectes.getCle(parent), pas, 0), parent, sexe, cellule);
+        comptage.ajouter(cellule, insectes.getIndiceEspece(i), sexe);
+        naissancesDuPas++;
+    }
+
+    public void deplacerInsecte(int i, int destination) {
+        comptage.retirer(insectes.getCellule(i), insectes.getIndiceEspece(i), insectes.getCodeSexe(i));
+        insectes.setCellule(i, destination);
+        comptage.ajouter(destination, insectes.getIndiceEspece(i), insectes.getCodeSexe(i));
+        insectes.marquerModifie(i);
+    }
+
+    /**
+     * @param morts positions des insectes à retirer, dans l'ordre croissant
+     */
+    public void retirerInsectes(int[] morts, int nombre) {
+        // Du plus grand au plus petit : le dernier insecte, déplacé à la place
+        // d'un mort, n'est jamais lui-même dans la suite de la liste
+        for (int k = nombre - 1; k >= 0; k--) {
+            int i = morts[k];
+            comptage.retirer(insectes.getCellule(i), insectes.getIndiceEspece(i), insectes.getCodeSexe(i));
+            // Un insecte né et mort entre deux écritures n'a jamais existé en base
+            if (!insectes.estNouveau(i)) {
+                insectesSupprimes.add(insectes.getId(i));
+            }
+            insectes.retirer(i);
+        }
+        mortsDuPas += nombre;
+    }
+
+    /**
+     * @return vrai si la cellule contient un insecte de la même espèce que l'insecte i
+     * et de sexe différent
+     */
+    public boolean aUnPartenaire(int i, int cellule) {
+        short espece = insectes.getIndiceEspece(i);
+        byte sexe = insectes.getCodeSexe(i);
+        if (espece < 0 || sexe == PopulationInsectes.SEXE_ABSENT) {
+            return false;
+        }
+        int total = comptage.total(cellule, espece);
+        if (sexe != PopulationInsectes.SEXE_AUTRE) {
+            return total - comptage.nombre(cellule, espece, sexe) > 0;
+        }
+        // Sexe saisi hors "M" / "F" par l'API : cas rare, comptage direct
+        String valeur = insectes.getSexe(i);
+        int memeSexe = 0;
+        for (int j = 0; j < insectes.getTaille(); j++) {
+            if (insectes.getCellule(j) == cellule && insectes.getIndiceEspece(j) == espece
+                    && valeur.equals(insectes.getSexe(j))) {
+                memeSexe++;
+            }
+        }
+        return total - memeSexe > 0;
+    }
+
+    public void marquerModifiee(Parcelle parcelle) {
+        parcellesModifiees.set(indiceDe(parcelle));
+    }
+
+
+    /**
+     * Copie dans un lot tout ce qui a changé depuis la collecte précédente,
+     * puis remet le suivi à zéro. Plusieurs pas modifiant la même entité
+     * ne produisent qu'une ligne.
+     */
+    public LotModifications collecterModifications() {
+        List<LotModifications.LigneParcelle> lignesParcelles = new ArrayList<>(parcellesModifiees.cardinality());
+        for (int c = parcellesModifiees.nextSetBit(0); c >= 0; c = parcellesModifiees.nextSetBit(c + 1)) {
+            Parcelle parcelle = cellules[c];
+            lignesParcelles.add(new LotModifications.LigneParcelle(parcelle.getId(), parcelle.getTauxHumidite()));
+        }
+
+        List<LotModifications.LignePlante> plantesInserees = new ArrayList<>();
+        List<LotModifications.LignePlante> lignesPlantes = new ArrayList<>();
+        for (int i = 0; i < plantes.getTaille(); i++) {
+            if (plantes.estNouvelle(i)) {
+                plantesInserees.add(lignePlante(i));
+            } else if (plantes.estModifiee(i)) {
+                lignesPlantes.add(lignePlante(i));
+            }
+            plantes.effacerEtat(i);
+        }
+
+        List<LotModifications.LigneInsecte> insectesInseres = new ArrayList<>();
+        List<LotModifications.LigneInsecte> lignesInsectes = new ArrayList<>();
+        for (int i = 0; i < insectes.getTaille(); i++) {
+            if (insectes.estNouveau(i)) {
+                insectesInseres.add(ligneInsecte(i));
+            } else if (insectes.estModifie(i)) {
+                lignesInsectes.add(ligneInsecte(i));
+            }
+            insectes.effacerEtat(i);
+        }
+
+        LotModifications lot = new LotModifications(
+                lignesParcelles, plantesInserees, lignesPlantes,
+                insectesInseres, lignesInsectes, new ArrayList<>(insectesSupprimes),
+                new CompletableFuture<>());
+
+        parcellesModifiees.clear();
+        insectesSupprimes.clear();
+        return lot;
+    }
+
+    /**
+     * Remet le suivi des modifications à zéro sans rien collecter, pour un monde
+     * qui n'est jamais écrit en base (sessions)
+     */
+    public void oublierModifications() {
+        for (int i = 0; i < plantes.getTaille(); i++) {
+            plantes.effacerEtat(i);
+        }
+        for (int i = 0; i < insectes.getTaille(); i++) {
+            insectes.effacerEtat(i);
+        }
+        parcellesModifiees.clear();
+        insectesSupprimes.clear();
+    }
+
+    /**
+     * Écrit le monde (parcelles, dispositifs et leurs programmes, populations avec leurs clés)
+     * dans un format binaire relu par {@link #lire(DataInput, FournisseurIdentifiants)}.
+     * Le suivi des modifications n'est pas écrit.
+     */
+    public void ecrire(DataOutput sortie) throws IOException {
+        sortie.writeByte(VERSION_FORMAT);
+        sortie.writeInt(parcelles.size());
+        for (Parcelle p : parcelles) {
+            sortie.writeLong(p.getId());
+            sortie.writeInt(p.getX());
+            sortie.writeInt(p.getY());
+            sortie.writeDouble(p.getTauxHumidite());
+            DispositifTraitement dispositif = p.getDispositifTraitement();
+            sortie.writeBoolean(dispositif != null);
+            if (dispositif != null) {
+                sortie.writeLong(dispositif.getId());
+                sortie.writeInt(dispositif.getRayon());
+                sortie.writeInt(dispositif.getProgrammes().size());
+                for (Programme programme : dispositif.getProgrammes()) {
+                    sortie.writeInt(programme.getInstantDebut());
+                    sortie.writeInt(programme.getDuree());
+                    sortie.writeUTF(programme.getTypeTraitement().name());
+                }
+            }
+        }
+
+        sortie.writeInt(plantes.getTaille());
+        for (int i = 0; i < plantes.getTaille(); i++) {
+            TypePlante type = plantes.getType(i);
+            sortie.writeLong(plantes.getId(i));
+            sortie.writeLong(plantes.getCle(i));
+            ecrireTexte(sortie, type.espece());
+            sortie.writeInt(type.ageMaturite());
+            sortie.writeBoolean(type.estDrageonnante());
+            sortie.writeDouble(type.probabiliteColonisation());
+            sortie.writeInt(plantes.getAge(i));
+            sortie.writeInt(plantes.getCellule(i));
+        }
+
+        sortie.writeInt(insectes.getTaille());
+        for (int i = 0; i < insectes.getTaille(); i++) {
+            sortie.writeLong(insectes.getId(i));
+            sortie.writeLong(insectes.getCle(i));
+            ecrireTexte(sortie, insectes.getEspece(i));
+            ecrireTexte(sortie, insectes.getSexe(i));
+            sortie.writeInt(insectes.getSante(i));
+            sortie.writeDouble(insectes.getMobilite(i));
+            sortie.writeDouble(insectes.getResistanceInsecticide(i));
+            sortie.writeInt(insectes.getPassSansManger(i));
+            sortie.writeInt(insectes.getCellule(i));
+        }
+    }
+
+    /**
+     * Relit un monde écrit par {@link #ecrire(DataOutput)} ; la grille est recalculée
+     * à partir des parcelles, dans le même ordre, les cellules sont donc les mêmes
+     */
+    public static MondeSimulation lire(DataInput entree, FournisseurIdentifiants identifiants) throws IOException {
+        int version = entree.readUnsignedByte();
+        if (version != VERSION_FORMAT) {
+            throw new IOException("Version de format du monde non prise en charge: " + version);
+        }
+        int nombreParcelles = entree.readInt();
+        List<Parcelle> parcelles = new ArrayList<>(nombreParcelles);
+        for (int k = 0; k < nombreParcelles; k++) {
+            Parcelle parcelle = new Parcelle();
+            parcelle.setId(entree.readLong());
+            parcelle.setX(entree.readInt());
+            parcelle.setY(entree.readInt());
+            parcelle.setTauxHumidite(entree.readDouble());
+            if (entree.readBoolean()) {
+                DispositifTraitement dispositif = new DispositifTraitement();
+                dispositif.setId(entree.readLong());
+                dispositif.setRayon(entree.readInt());
+                int nombreProgrammes = entree.readInt();
+                for (int j = 0; j < nombreProgrammes; j++) {
+                    Programme programme = new Programme();
+                    programme.setInstantDebut(entree.readInt());
+                    programme.setDuree(entree.readInt());
+                    programme.setTypeTraitement(TypeTraitement.valueOf(entree.readUTF()));
+                    programme.setDispositifTraitement(dispositif);
+                    dispositif.getProgrammes().add(programme);
+                }
+                dispositif.setParcelle(parcelle);
+                parcelle.setDispositifTraitement(dispositif);
+            }
+            parcelles.add(parcelle);
+        }
+
+        MondeSimulation monde = new MondeSimulation(GrillePotager.depuis(parcelles), parcelles, identifiants);
+        int nombrePlantes = entree.readInt();
+        for (int i = 0; i < nombrePlantes; i++) {
+            long id = entree.readLong();
+            long cle = entree.readLong();
+            TypePlante type = new TypePlante(lireTexte(entree), entree.readInt(), entree.readBoolean(),
+                    entree.readDouble());
+            monde.plantes.ajouter(id, cle, type, entree.readInt(), entree.readInt(), false);
+        }
+        int nombreInsectes = entree.readInt();
+        for (int i = 0; i < nombreInsectes; i++) {
+            long id = entree.readLong();
+            long cle = entree.readLong();
+            String espece = lireTexte(entree);
+            String sexe = lireTexte(entree);
+            int j = monde.insectes.ajouter(id, cle, espece, sexe, entree.readInt(), entree.readDouble(),
+                    entree.readDouble(), entree.readInt(), entree.readInt(), false);
+            monde.comptage.ajouter(monde.insectes.getCellule(j), monde.insectes.getIndiceEspece(j),
+                    monde.insectes.getCodeSexe(j));
+        }
+        return monde;
+    }
+
+    // Chaîne éventuellement nulle (espèce, sexe)
+    private static void ecrireTexte(DataOutput sortie, String texte) throws IOException {
+        sortie.writeBoolean(texte != null);
+        if (texte != null) {
+            sortie.writeUTF(texte);
+        }
+    }
+
+    private static String lireTexte(DataInput entree) throws IOException {
+        return entree.readBoolean() ? entree.readUTF() : null;
+    }
+
+    private LotModifications.LignePlante lignePlante(int i) {
+        TypePlante type = plantes.getType(i);
+        return new LotModifications.LignePlante(
+                plantes.getId(i), type.espece(), plantes.getAge(i), type.ageMaturite(),
+                type.estDrageonnante(), type.probabiliteColonisation(), cellules[plantes.getCellule(i)].getId());
+    }
+
+    private LotModifications.LigneInsecte ligneInsecte(int i) {
+        return new LotModifications.LigneInsecte(
+                insectes.getId(i), insectes.getEspece(i), insectes.getSexe(i), insectes.getSante(i),
+                insectes.getMobilite(i), insectes.getResistanceInsecticide(i), insectes.getPassSansManger(i),
+                cellules[insectes.getCellule(i)].getId());
+    }
+
+    /**
+     * Copie figée de l'état courant, lisible sans verrou pendant que la simulation continue
+     */
+    public InstantaneMonde figer(int pas) {
+        return new InstantaneMonde(pas, this);
+    }
+
+    /**
+     * @return les parcelles dans l'ordre de chargement
+     */
+    public List<Parcelle> getParcelles() {
+        return parcelles;
+    }
+
+    public List<Parcelle> getParcellesAvecDispositif() {
+        return parcellesAvecDispositif;
+    }
+
+    public int getNaissancesDuPas() {
+        return naissancesDuPas;
+    }
+
+    public int getMortsDuPas() {
+        return mortsDuPas;
+    }
+
+    public int getPoussesDuPas() {
+        return poussesDuPas;
+    }
+
+    public int getDispositifsActifs() {
+        return dispositifsActifs;
+    }
+
+    public PopulationPlantes getPlantes() {
+        return plantes;
+    }
+
+    public PopulationInsectes getInsectes() {
+        return insectes;
+    }
+}
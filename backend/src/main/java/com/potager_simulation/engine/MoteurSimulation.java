@@ -0,0 +1,359 @@
+package com.potager_simulation.engine;
+
+import com.potager_simulation.model.DispositifTraitement;
+import com.potager_simulation.model.Parcelle;
+import com.potager_simulation.model.Programme;
+import com.potager_simulation.model.enums.TypeTraitement;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Exécute les pas de simulation sur un {@link MondeSimulation}.
+ * Toutes les phases travaillent sur le modèle en mémoire, sans accès à la base.
+ * Les tirages aléatoires viennent de {@link AleaSimulation} : un flux par entité et par phase.
+ * Les phases sur les populations sont découpées en bandes par {@link ExecutionParallele} ;
+ * une bande ne modifie que ses propres entités et dépose pousses, naissances, déplacements
+ * et morts dans sa boîte de sortie, fusionnée dans l'ordre des bandes à la fin de la phase.
+ * Le résultat ne dépend donc pas du nombre de threads.
+ */
+public class MoteurSimulation {
+    private final MondeSimulation monde;
+    private final AleaSimulation alea;
+    private final ExecutionParallele execution;
+    private int pasCourant = 0;
+    private int traitementsManuels = 0;
+
+    public MoteurSimulation(MondeSimulation monde, AleaSimulation alea, ExecutionParallele execution) {
+        this.monde = monde;
+        this.alea = alea;
+        this.execution = execution;
+    }
+
+    public MondeSimulation getMonde() {
+        return monde;
+    }
+
+    public AleaSimulation getAlea() {
+        return alea;
+    }
+
+    public void executerPas(int pasSimulation) {
+        pasCourant = pasSimulation;
+        monde.commencerPas();
+
+        // 1. Appliquer les traitements programmés
+        appliquerTraitements(pasSimulation);
+
+        // 2. Mettre à jour les plantes
+        mettreAJourPlantes(pasSimulation);
+
+        // 3. Mettre à jour les insectes
+        mettreAJourInsectes(pasSimulation);
+
+        // 4. Mettre à jour l'environnement naturel (évaporation, etc.)
+        mettreAJourEnvironnement();
+    }
+
+    private void appliquerTraitements(int pasSimulation) {
+        // Nombre d'applications d'insecticide et d'engrais par cellule, appliquées
+        // en un seul parcours de chaque population à la fin de la phase
+        int[] insecticide = null;
+        int[] engrais = null;
+        int dispositifsActifs = 0;
+
+        for (Parcelle parcelle : monde.getParcellesAvecDispositif()) {
+            DispositifTraitement dispositif = parcelle.getDispositifTraitement();
+
+            List<Programme> programmesActifs = dispositif.getProgrammesActifs(pasSimulation);
+            if (!programmesActifs.isEmpty()) {
+                dispositifsActifs++;
+            }
+            for (Programme programme : programmesActifs) {
+                switch (programme.getTypeTraitement()) {
+                    case EAU:
+                        arroser(dispositif, 20.0);
+                        break;
+                    case INSECTICIDE:
+                        insecticide = compterApplications(dispositif, insecticide);
+                        break;
+                    case ENGRAIS:
+                        engrais = compterApplications(dispositif, engrais);
+                        break;
+                }
+            }
+        }
+        monde.setDispositifsActifs(dispositifsActifs);
+
+        if (insecticide != null) {
+            appliquerInsecticide(insecticide, 5.0, pasSimulation, AleaSimulation.PHASE_TRAITEMENTS, 0);
+        }
+        if (engrais != null) {
+            appliquerEngrais(engrais, 0.5, pasSimulation, AleaSimulation.PHASE_TRAITEMENTS, 0);
+        }
+    }
+
+    /**
+     * Traitement manuel immédiat, moins dosé que les traitements programmés
+     */
+    public void appliquerTraitementManuel(DispositifTraitement dispositif, TypeTraitement typeTraitement) {
+        // Chaque traitement manuel a ses propres flux, même s'il y en a plusieurs entre deux pas
+        int numero = ++traitementsManuels;
+        switch (typeTraitement) {
+            case EAU:
+                arroser(dispositif, 15.0);
+                break;
+            case INSECTICIDE:
+                appliquerInsecticide(compterApplications(dispositif, null), 4.0,
+                        pasCourant, AleaSimulation.TRAITEMENT_MANUEL, numero);
+                break;
+            case ENGRAIS:
+                appliquerEngrais(compterApplications(dispositif, null), 0.4,
+                        pasCourant, AleaSimulation.TRAITEMENT_MANUEL, numero);
+                break;
+        }
+    }
+
+    private void arroser(DispositifTraitement dispositif, double quantiteEau) {
+        for (int cellule : dispositif.getEmpreinte(monde.getGrille())) {
+            Parcelle parcelle = monde.getParcelle(cellule);
+            parcelle.ajouterHumidite(quantiteEau);
+            monde.marquerModifiee(parcelle);
+        }
+    }
+
+    private int[] compterApplications(DispositifTraitement dispositif, int[] applications) {
+        if (applications == null) {
+            applications = new int[monde.getGrille().getTaille()];
+        }
+        for (int cellule : dispositif.getEmpreinte(monde.getGrille())) {
+            applications[cellule]++;
+        }
+        return applications;
+    }
+
+    private void appliquerInsecticide(int[] applications, double puissance, int pas, int phase, int variante) {
+        PopulationInsectes insectes = monde.getInsectes();
+        execution.executer(execution.bornes(insectes.getTaille()), (debut, fin) -> {
+            for (int i = debut; i < fin; i++) {
+                int nombre = applications[insectes.getCellule(i)];
+                if (nombre == 0) {
+                    continue;
+                }
+                SplittableRandom flux = alea.flux(pas, phase, AleaSimulation.melanger(insectes.getCle(i), variante));
+                boolean modifie = false;
+                for (int k = nombre; k > 0; k--) {
+                    modifie |= insectes.appliquerInsecticide(i, puissance, flux);
+                }
+                if (modifie) {
+                    insectes.marquerModifie(i);
+                }
+            }
+            return null;
+        });
+    }
+
+    private void appliquerEngrais(int[] applications, double probabilite, int pas, int phase, int variante) {
+        PopulationPlantes plantes = monde.getPlantes();
+        List<TamponEntiers> maturites = execution.executer(execution.bornes(plantes.getTaille()), (debut, fin) -> {
+            TamponEntiers matures = new TamponEntiers();
+            for (int i = debut; i < fin; i++) {
+                int nombre = applications[plantes.getCellule(i)];
+                if (nombre == 0) {
+                    continue;
+                }
+                SplittableRandom flux = alea.flux(pas, phase, AleaSimulation.melanger(plantes.getCle(i), variante));
+                for (int k = nombre; k > 0; k--) {
+                    // Accélération de la croissance (exemple simplifié)
+                    if (flux.nextDouble() < probabilite && plantes.vieillir(i)) {
+                        matures.ajouter(i);
+                    }
+                }
+            }
+            return matures;
+        });
+        rendreMatures(plantes, maturites);
+    }
+
+    private void mettreAJourPlantes(int pas) {
+        GrillePotager grille = monde.getGrille();
+        PopulationPlantes plantes = monde.getPlantes();
+
+        // Faire vieillir les plantes
+        List<TamponEntiers> maturites = execution.executer(execution.bornes(plantes.getTaille()), (debut, fin) -> {
+            TamponEntiers matures = new TamponEntiers();
+            for (int i = debut; i < fin; i++) {
+                if (plantes.vieillir(i)) {
+                    matures.ajouter(i);
+                }
+            }
+            return matures;
+        });
+        rendreMatures(plantes, maturites);
+
+        // Seules les plantes drageonnantes et matures tentent de coloniser les parcelles voisines
+        int[] bornes = execution.bornes(plantes.getNombreColonisatrices());
+        List<SortiePlantes> sorties = execution.executer(bornes, (debut, fin) -> {
+            SortiePlantes sortie = new SortiePlantes();
+            for (int k = debut; k < fin; k++) {
+                int plante = plantes.getColonisatrice(k);
+                SplittableRandom flux = alea.flux(pas, AleaSimulation.PHASE_PLANTES, plantes.getCle(plante));
+                if (plantes.tenterColonisation(plante, flux)) {
+                    int cellule = plantes.getCellule(plante);
+                    double probabilite = plantes.getType(plante).probabiliteColonisation();
+                    for (int v = 0; v < grille.nombreVoisins(cellule); v++) {
+                        if (flux.nextDouble() < probabilite) {
+                            sortie.parents.ajouter(plante);
+                            sortie.rangs.ajouter(v);
+                            sortie.cellules.ajouter(grille.voisin(cellule, v));
+                        }
+                    }
+                }
+            }
+            return sortie;
+        });
+
+        // Les nouvelles plantes ne vieillissent qu'à partir du pas suivant
+        for (SortiePlantes sortie : sorties) {
+            for (int n = 0; n < sortie.parents.taille(); n++) {
+                monde.ajouterPousse(sortie.parents.get(n), sortie.cellules.get(n), pas, sortie.rangs.get(n));
+            }
+        }
+    }
+
+    private static void rendreMatures(PopulationPlantes plantes, List<TamponEntiers> maturites) {
+        for (TamponEntiers matures : maturites) {
+            for (int k = 0; k < matures.taille(); k++) {
+                plantes.devenirMature(matures.get(k));
+            }
+        }
+    }
+
+    private void mettreAJourInsectes(int pas) {
+        GrillePotager grille = monde.getGrille();
+        PopulationInsectes insectes = monde.getInsectes();
+        PopulationPlantes plantes = monde.getPlantes();
+
+        // Partition spatiale : les insectes sont parcourus parcelle par parcelle,
+        // en bandes de lignes entières de la grille équilibrées en nombre d'insectes
+        IndexParCellule parCellule = insectes.indexerParCellule(grille.getTaille());
+        int[] bornes = bornesParLignes(parCellule, execution.bornes(insectes.getTaille()));
+
+        // La recherche de partenaire se fait sur les positions du début de la phase,
+        // comme le faisait la requête findByParcelleAndEspeceAndSexeNot : les
+        // déplacements ne sont appliqués au monde (et aux comptages) qu'en fin de phase,
+        // les bandes ne lisent donc que des données figées
+        List<SortieInsectes> sorties = execution.executer(bornes, (debut, fin) -> {
+            SortieInsectes sortie = new SortieInsectes();
+            for (int k = debut; k < fin; k++) {
+                int i = parCellule.ordre()[k];
+
+                // Nourrir l'insecte
+                int cellule = insectes.getCellule(i);
+                if (insectes.seNourrir(i, plantes.aDesPlantes(cellule))) {
+                    insectes.marquerModifie(i);
+                }
+
+                // Un insecte meurt s'il ne mange pas pendant 5 pas
+                if (!insectes.estVivant(i)) {
+                    sortie.morts.ajouter(i);
+                    continue;
+                }
+
+                // Tenter un déplacement, éventuellement vers une parcelle d'une autre bande
+                SplittableRandom flux = alea.flux(pas, AleaSimulation.PHASE_INSECTES, insectes.getCle(i));
+                if (insectes.tenterDeplacement(i, flux)) {
+                    int nombreVoisins = grille.nombreVoisins(cellule);
+
+                    if (nombreVoisins > 0) {
+                        int index = flux.nextInt(nombreVoisins);
+                        cellule = grille.voisin(cellule, index);
+                        sortie.deplaces.ajouter(i);
+                        sortie.destinations.ajouter(cellule);
+                    }
+                }
+
+                // Tenter une reproduction si l'insecte est en bonne santé
+                if (insectes.getSante(i) > 7
+                        && monde.aUnPartenaire(i, cellule)
+                        && flux.nextDouble() < 0.3) {
+                    sortie.parents.ajouter(i);
+                    sortie.cellulesNaissance.ajouter(cellule);
+                    sortie.sexesNaissance.ajouter(
+                            flux.nextBoolean() ? PopulationInsectes.MALE : PopulationInsectes.FEMELLE);
+                }
+            }
+            return sortie;
+        });
+
+        // Barrière : les boîtes de sortie sont fusionnées dans l'ordre des bandes
+        int nombreMorts = 0;
+        for (SortieInsectes sortie : sorties) {
+            for (int k = 0; k < sortie.deplaces.taille(); k++) {
+                monde.deplacerInsecte(sortie.deplaces.get(k), sortie.destinations.get(k));
+            }
+            nombreMorts += sortie.morts.taille();
+        }
+        // Les naissances sont ajoutées avant de retirer les morts : les positions
+        // des parents sont encore valides
+        for (SortieInsectes sortie : sorties) {
+            for (int k = 0; k < sortie.parents.taille(); k++) {
+                monde.ajouterNaissance(sortie.parents.get(k), (byte) sortie.sexesNaissance.get(k),
+                        sortie.cellulesNaissance.get(k), pas);
+            }
+        }
+        int[] morts = new int[nombreMorts];
+        int n = 0;
+        for (SortieInsectes sortie : sorties) {
+            for (int k = 0; k < sortie.morts.taille(); k++) {
+                morts[n++] = sortie.morts.get(k);
+            }
+        }
+        Arrays.sort(morts);
+        monde.retirerInsectes(morts, nombreMorts);
+    }
+
+    /**
+     * Repousse chaque borne intérieure au début de la ligne suivante de la grille :
+     * une bande couvre des lignes entières
+     */
+    private int[] bornesParLignes(IndexParCellule parCellule, int[] bornes) {
+        GrillePotager grille = monde.getGrille();
+        int hauteur = grille.getHauteur();
+        int[] ordre = parCellule.ordre();
+        for (int b = 1; b < bornes.length - 1; b++) {
+            int cellule = monde.getInsectes().getCellule(ordre[bornes[b]]);
+            int debutLigne = Math.min(grille.getTaille(), (cellule + hauteur - 1) / hauteur * hauteur);
+            bornes[b] = parCellule.debut()[debutLigne];
+        }
+        return bornes;
+    }
+
+    private void mettreAJourEnvironnement() {
+        for (Parcelle parcelle : monde.getParcelles()) {
+            // Évaporation naturelle de l'eau
+            double humiditeAvant = parcelle.getTauxHumidite();
+            parcelle.diminuerHumidite(2.0);
+            if (parcelle.getTauxHumidite() != humiditeAvant) {
+                monde.marquerModifiee(parcelle);
+            }
+        }
+    }
+
+    // Boîtes de sortie d'une bande
+    private static class SortiePlantes {
+        final TamponEntiers parents = new TamponEntiers();
+        final TamponEntiers rangs = new TamponEntiers();
+        final TamponEntiers cellules = new TamponEntiers();
+    }
+
+    private static class SortieInsectes {
+        final TamponEntiers morts = new TamponEntiers();
+        final TamponEntiers deplaces = new TamponEntiers();
+        final TamponEntiers destinations = new TamponEntiers();
+        final TamponEntiers parents = new TamponEntiers();
+        final TamponEntiers cellulesNaissance = new TamponEntiers();
+        final TamponEntiers sexesNaissance = new TamponEntiers();
+    }
+}
@@ -0,0 +1,342 @@
+package com.potager_simulation.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Insectes de la simulation rangés en colonnes de types primitifs (un tableau par attribut),
+ * à la place d'une liste d'entités {@link com.potager_simulation.model.Insecte}.
+ * Un insecte est repéré par sa position i, 0 <= i < getTaille() ; une mort déplace
+ * le dernier insecte à la place du mort, une naissance s'ajoute en fin de tableau.
+ * L'espèce est un indice dans la table des espèces, le sexe un code (M, F, autre, absent).
+ * Les effectifs par espèce sont tenus à jour à chaque ajout et retrait.
+ * Les règles de vie reprennent celles de l'entité Insecte. La clé de chaque insecte
+ * désigne son flux de tirages dans {@link AleaSimulation}.
+ */
+public class PopulationInsectes {
+    public static final byte MALE = 0;
+    public static final byte FEMELLE = 1;
+    // Valeur saisie hors "M" / "F" par l'API, conservée dans sexesAutres
+    public static final byte SEXE_AUTRE = 2;
+    public static final byte SEXE_ABSENT = 3;
+
+    private static final byte NOUVEAU = 1;
+    private static final byte MODIFIE = 2;
+
+    private int taille = 0;
+    private long[] id;
+    private long[] cle;
+    private short[] espece;
+    private byte[] sexe;
+    private int[] sante;
+    private int[] passSansManger;
+    private double[] mobilite;
+    private double[] resistanceInsecticide;
+    private int[] cellule;
+    // Suivi des écritures en base : NOUVEAU, MODIFIE
+    private byte[] etat;
+
+    private final List<String> especes = new ArrayList<>();
+    private final Map<String, Short> indicesEspeces = new HashMap<>();
+    private final Map<Long, String> sexesAutres = new HashMap<>();
+    private int[] effectifsEspeces = new int[4];
+
+    public PopulationInsectes(int capaciteInitiale) {
+        int capacite = Math.max(16, capaciteInitiale);
+        id = new long[capacite];
+        cle = new long[capacite];
+        espece = new short[capacite];
+        sexe = new byte[capacite];
+        sante = new int[capacite];
+        passSansManger = new int[capacite];
+        mobilite = new double[capacite];
+        resistanceInsecticide = new double[capacite];
+        cellule = new int[capacite];
+        etat = new byte[capacite];
+    }
+
+    /**
+     * Copie figée de la population, pour un {@link InstantaneMonde}
+     */
+    PopulationInsectes(PopulationInsectes source) {
+        taille = source.taille;
+        id = Arrays.copyOf(source.id, taille);
+        cle = Arrays.copyOf(source.cle, taille);
+        espece = Arrays.copyOf(source.espece, taille);
+        sexe = Arrays.copyOf(source.sexe, taille);
+        sante = Arrays.copyOf(source.sante, taille);
+        passSansManger = Arrays.copyOf(source.passSansManger, taille);
+        mobilite = Arrays.copyOf(source.mobilite, taille);
+        resistanceInsecticide = Arrays.copyOf(source.resistanceInsecticide, taille);
+        cellule = Arrays.copyOf(source.cellule, taille);
+        etat = new byte[taille];
+        especes.addAll(source.especes);
+        sexesAutres.putAll(source.sexesAutres);
+        effectifsEspeces = source.effectifsEspeces.clone();
+    }
+
+    /**
+     * Ajoute un insecte en fin de population
+     * @param nouveau vrai pour un insecte né pendant la simulation (pas encore en base)
+     * @return sa position
+     */
+    public int ajouter(long idInsecte, long cleInsecte, String especeInsecte, String sexeInsecte, int santeInsecte,
+                       double mobiliteInsecte, double resistance, int pass, int celluleInsecte,
+                       boolean nouveau) {
+        int i = reserver();
+        id[i] = idInsecte;
+        cle[i] = cleInsecte;
+        espece[i] = indiceEspece(especeInsecte);
+        compter(espece[i], 1);
+        sexe[i] = codeSexe(sexeInsecte);
+        if (sexe[i] == SEXE_AUTRE) {
+            sexesAutres.put(idInsecte, sexeInsecte);
+        }
+        sante[i] = santeInsecte;
+        passSansManger[i] = pass;
+        mobilite[i] = mobiliteInsecte;
+        resistanceInsecticide[i] = resistance;
+        cellule[i] = celluleInsecte;
+        etat[i] = nouveau ? NOUVEAU : 0;
+        return i;
+    }
+
+    /**
+     * Ajoute le petit d'un insecte : même espèce, mobilité et résistance que le parent
+     */
+    public int ajouterNaissance(long idInsecte, long cleInsecte, int parent, byte sexeInsecte, int celluleInsecte) {
+        int i = reserver();
+        id[i] = idInsecte;
+        cle[i] = cleInsecte;
+        espece[i] = espece[parent];
+        compter(espece[i], 1);
+        sexe[i] = sexeInsecte;
+        sante[i] = 8;
+        passSansManger[i] = 0;
+        mobilite[i] = mobilite[parent];
+        resistanceInsecticide[i] = resistanceInsecticide[parent];
+        cellule[i] = celluleInsecte;
+        etat[i] = NOUVEAU;
+        return i;
+    }
+
+    /**
+     * Retire l'insecte i ; le dernier insecte prend sa position
+     */
+    public void retirer(int i) {
+        compter(espece[i], -1);
+        if (sexe[i] == SEXE_AUTRE) {
+            sexesAutres.remove(id[i]);
+        }
+        int dernier = --taille;
+        if (i != dernier) {
+            id[i] = id[dernier];
+            cle[i] = cle[dernier];
+            espece[i] = espece[dernier];
+            sexe[i] = sexe[dernier];
+            sante[i] = sante[dernier];
+            passSansManger[i] = passSansManger[dernier];
+            mobilite[i] = mobilite[dernier];
+            resistanceInsecticide[i] = resistanceInsecticide[dernier];
+            cellule[i] = cellule[dernier];
+            etat[i] = etat[dernier];
+        }
+    }
+
+    /**
+     * Même règle que Insecte.seNourrir
+     * @return vrai si la santé ou le compteur de pas sans manger a changé
+     */
+    public boolean seNourrir(int i, boolean planteDisponible) {
+        int santeAvant = sante[i];
+        int passAvant = passSansManger[i];
+        if (planteDisponible) {
+            sante[i] = Math.min(10, sante[i] + 1);
+            passSansManger[i] = 0;
+        } else {
+            sante[i] = Math.max(0, sante[i] - 1);
+            passSansManger[i]++;
+        }
+        return sante[i] != santeAvant || passSansManger[i] != passAvant;
+    }
+
+    public boolean estVivant(int i) {
+        return sante[i] > 0 && passSansManger[i] < 5;
+    }
+
+    public boolean tenterDeplacement(int i, RandomGenerator alea) {
+        return alea.nextDouble() < mobilite[i];
+    }
+
+    /**
+     * L'insecte résiste selon sa résistance, sinon perd puissance x (1 - résistance) en santé
+     * @return vrai si la santé a changé
+     */
+    public boolean appliquerInsecticide(int i, double puissance, RandomGenerator alea) {
+        if (alea.nextDouble() > resistanceInsecticide[i]) {
+            int degats = (int) (puissance * (1 - resistanceInsecticide[i]));
+            int santeAvant = sante[i];
+            sante[i] = Math.max(0, sante[i] - degats);
+            return sante[i] != santeAvant;
+        }
+        return false;
+    }
+
+    /**
+     * Regroupe les insectes par cellule, pour les parcourir parcelle par parcelle
+     */
+    public IndexParCellule indexerParCellule(int nombreCellules) {
+        return IndexParCellule.depuis(cellule, taille, nombreCellules);
+    }
+
+    public void marquerModifie(int i) {
+        etat[i] |= MODIFIE;
+    }
+
+    public boolean estNouveau(int i) {
+        return (etat[i] & NOUVEAU) != 0;
+    }
+
+    public boolean estModifie(int i) {
+        return (etat[i] & MODIFIE) != 0;
+    }
+
+    public void effacerEtat(int i) {
+        etat[i] = 0;
+    }
+
+    public int getTaille() {
+        return taille;
+    }
+
+    public long getId(int i) {
+        return id[i];
+    }
+
+    public long getCle(int i) {
+        return cle[i];
+    }
+
+    /**
+     * @return l'indice de l'espèce dans la table des espèces, -1 si l'insecte n'en a pas
+     */
+    public short getIndiceEspece(int i) {
+        return espece[i];
+    }
+
+    public String getEspece(int i) {
+        return espece[i] < 0 ? null : especes.get(espece[i]);
+    }
+
+    public byte getCodeSexe(int i) {
+        return sexe[i];
+    }
+
+    public String getSexe(int i) {
+        switch (sexe[i]) {
+            case MALE:
+                return "M";
+            case FEMELLE:
+                return "F";
+            case SEXE_AUTRE:
+                return sexesAutres.get(id[i]);
+            default:
+                return null;
+        }
+    }
+
+    public int getSante(int i) {
+        return sante[i];
+    }
+
+    public int getPassSansManger(int i) {
+        return passSansManger[i];
+    }
+
+    public double getMobilite(int i) {
+        return mobilite[i];
+    }
+
+    public double getResistanceInsecticide(int i) {
+        return resistanceInsecticide[i];
+    }
+
+    public int getCellule(int i) {
+        return cellule[i];
+    }
+
+    void setCellule(int i, int nouvelleCellule) {
+        cellule[i] = nouvelleCellule;
+    }
+
+    /**
+     * @return le nombre d'insectes par espèce, dans l'ordre d'apparition des espèces
+     */
+    public Map<String, Integer> effectifsParEspece() {
+        Map<String, Integer> effectifs = new LinkedHashMap<>();
+        for (int e = 0; e < especes.size(); e++) {
+            effectifs.put(especes.get(e), effectifsEspeces[e]);
+        }
+        return effectifs;
+    }
+
+    private void compter(short indice, int variation) {
+        if (indice >= 0) {
+            effectifsEspeces[indice] += variation;
+        }
+    }
+
+    private short indiceEspece(String nom) {
+        if (nom == null) {
+            return -1;
+        }
+        Short indice = indicesEspeces.get(nom);
+        if (indice == null) {
+            if (especes.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Trop d'espèces d'insectes différentes: " + especes.size());
+            }
+            indice = (short) especes.size();
+            especes.add(nom);
+            if (indice == effectifsEspeces.length) {
+                effectifsEspeces = Arrays.copyOf(effectifsEspeces, indice * 2);
+            }
+            indicesEspeces.put(nom, indice);
+        }
+        return indice;
+    }
+
+    private static byte codeSexe(String valeur) {
+        if (valeur == null) {
+            return SEXE_ABSENT;
+        }
+        if (valeur.equals("M")) {
+            return MALE;
+        }
+        if (valeur.equals("F")) {
+            return FEMELLE;
+        }
+        return SEXE_AUTRE;
+    }
+
+    private int reserver() {
+        if (taille == id.length) {
+            int capacite = taille + (taille >> 1);
+            id = Arrays.copyOf(id, capacite);
+            cle = Arrays.copyOf(cle, capacite);
+            espece = Arrays.copyOf(espece, capacite);
+            sexe = Arrays.copyOf(sexe, capacite);
+            sante = Arrays.copyOf(sante, capacite);
+            passSansManger = Arrays.copyOf(passSansManger, capacite);
+            mobilite = Arrays.copyOf(mobilite, capacite);
+            resistanceInsecticide = Arrays.copyOf(resistanceInsecticide, capacite);
+            cellule = Arrays.copyOf(cellule, capacite);
+            etat = Arrays.copyOf(etat, capacite);
+        }
+        return taille++;
+    }
+}
@@ -0,0 +1,250 @@
+package com.potager_simulation.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Plantes de la simulation rangées en colonnes de types primitifs, à la place d'une
+ * liste d'entités {@link com.potager_simulation.model.Plante}.
+ * Espèce, âge de maturité, caractère drageonnant et probabilité de colonisation sont
+ * regroupés dans une table de {@link TypePlante} ; chaque plante ne porte que son âge,
+ * l'indice de son type, sa cellule et sa clé de tirages ({@link AleaSimulation}). Une plante n'est jamais retirée, sa position i
+ * est donc stable.
+ * Les plantes drageonnantes et matures sont tenues dans un index des colonisatrices :
+ * la colonisation ne parcourt qu'elles. Les effectifs par type et le nombre de plantes
+ * matures sont tenus à jour au fil des ajouts et des maturités.
+ */
+public class PopulationPlantes {
+    private static final byte NOUVELLE = 1;
+    private static final byte MODIFIEE = 2;
+
+    private int taille = 0;
+    private long[] id;
+    private long[] cle;
+    private short[] type;
+    private int[] age;
+    private int[] cellule;
+    // Suivi des écritures en base : NOUVELLE, MODIFIEE
+    private byte[] etat;
+
+    private int[] colonisatrices = new int[16];
+    private int nombreColonisatrices = 0;
+    private int nombreMatures = 0;
+    private int[] nombreParType = new int[4];
+
+    private final int[] nombreParCellule;
+
+    private final List<TypePlante> types = new ArrayList<>();
+    private final Map<TypePlante, Short> indicesTypes = new HashMap<>();
+
+    public PopulationPlantes(int nombreCellules, int capaciteInitiale) {
+        int capacite = Math.max(16, capaciteInitiale);
+        id = new long[capacite];
+        cle = new long[capacite];
+        type = new short[capacite];
+        age = new int[capacite];
+        cellule = new int[capacite];
+        etat = new byte[capacite];
+        nombreParCellule = new int[nombreCellules];
+    }
+
+    /**
+     * Copie figée de la population, pour un {@link InstantaneMonde}
+     * (sans l'index des colonisatrices)
+     */
+    PopulationPlantes(PopulationPlantes source) {
+        taille = source.taille;
+        id = Arrays.copyOf(source.id, taille);
+        cle = Arrays.copyOf(source.cle, taille);
+        type = Arrays.copyOf(source.type, taille);
+        age = Arrays.copyOf(source.age, taille);
+        cellule = Arrays.copyOf(source.cellule, taille);
+        etat = new byte[taille];
+        nombreParCellule = source.nombreParCellule.clone();
+        nombreMatures = source.nombreMatures;
+        nombreParType = source.nombreParType.clone();
+        types.addAll(source.types);
+    }
+
+    /**
+     * Ajoute une plante
+     * @param nouvelle vrai pour une plante née pendant la simulation (pas encore en base)
+     * @return sa position
+     */
+    public int ajouter(long idPlante, long clePlante, TypePlante typePlante, int agePlante, int cellulePlante,
+                       boolean nouvelle) {
+        return ajouter(idPlante, clePlante, indiceType(typePlante), agePlante, cellulePlante, nouvelle);
+    }
+
+    /**
+     * Ajoute une jeune pousse de même type que la plante parent
+     */
+    public int ajouterPousse(long idPlante, long clePlante, int parent, int cellulePlante) {
+        return ajouter(idPlante, clePlante, type[parent], 0, cellulePlante, true);
+    }
+
+    private int ajouter(long idPlante, long clePlante, short indiceType, int agePlante, int cellulePlante,
+                        boolean nouvelle) {
+        int i = reserver();
+        id[i] = idPlante;
+        cle[i] = clePlante;
+        type[i] = indiceType;
+        age[i] = agePlante;
+        cellule[i] = cellulePlante;
+        etat[i] = nouvelle ? NOUVELLE : 0;
+        nombreParCellule[cellulePlante]++;
+        nombreParType[indiceType]++;
+        if (agePlante >= getType(i).ageMaturite()) {
+            devenirMature(i);
+        }
+        return i;
+    }
+
+    /**
+     * Fait vieillir la plante d'un pas. Peut être appelée en parallèle sur des plantes
+     * différentes : l'index des colonisatrices et les effectifs ne sont pas modifiés ici.
+     * @return vrai si la plante atteint sa maturité à ce pas ; l'appelant
+     * appelle alors {@link #devenirMature(int)}
+     */
+    public boolean vieillir(int i) {
+        age[i]++;
+        etat[i] |= MODIFIEE;
+        return age[i] == types.get(type[i]).ageMaturite();
+    }
+
+    /**
+     * Compte la plante parmi les matures et, si elle est drageonnante, l'ajoute aux colonisatrices
+     */
+    public void devenirMature(int i) {
+        nombreMatures++;
+        if (types.get(type[i]).estDrageonnante()) {
+            ajouterColonisatrice(i);
+        }
+    }
+
+    public boolean estMature(int i) {
+        return age[i] >= types.get(type[i]).ageMaturite();
+    }
+
+    /**
+     * Tirage de la colonisation d'une plante de l'index des colonisatrices,
+     * qui sont déjà drageonnantes et matures
+     */
+    public boolean tenterColonisation(int i, RandomGenerator alea) {
+        return alea.nextDouble() < types.get(type[i]).probabiliteColonisation();
+    }
+
+    public boolean aDesPlantes(int celluleParcelle) {
+        return nombreParCellule[celluleParcelle] > 0;
+    }
+
+    /**
+     * Regroupe les plantes par cellule, pour les parcourir parcelle par parcelle
+     */
+    public IndexParCellule indexerParCellule() {
+        return IndexParCellule.depuis(cellule, taille, nombreParCellule.length);
+    }
+
+    public int getNombreColonisatrices() {
+        return nombreColonisatrices;
+    }
+
+    /**
+     * @return la position de la k-ième colonisatrice, 0 <= k < getNombreColonisatrices()
+     */
+    public int getColonisatrice(int k) {
+        return colonisatrices[k];
+    }
+
+    public boolean estNouvelle(int i) {
+        return (etat[i] & NOUVELLE) != 0;
+    }
+
+    public boolean estModifiee(int i) {
+        return (etat[i] & MODIFIEE) != 0;
+    }
+
+    public void effacerEtat(int i) {
+        etat[i] = 0;
+    }
+
+    public int getTaille() {
+        return taille;
+    }
+
+    public long getId(int i) {
+        return id[i];
+    }
+
+    public long getCle(int i) {
+        return cle[i];
+    }
+
+    public TypePlante getType(int i) {
+        return types.get(type[i]);
+    }
+
+    public int getAge(int i) {
+        return age[i];
+    }
+
+    public int getCellule(int i) {
+        return cellule[i];
+    }
+
+    public int getNombreMatures() {
+        return nombreMatures;
+    }
+
+    /**
+     * @return le nombre de plantes par espèce, dans l'ordre d'apparition des espèces
+     */
+    public Map<String, Integer> effectifsParEspece() {
+        Map<String, Integer> effectifs = new LinkedHashMap<>();
+        for (int t = 0; t < types.size(); t++) {
+            effectifs.merge(types.get(t).espece(), nombreParType[t], Integer::sum);
+        }
+        return effectifs;
+    }
+
+    private void ajouterColonisatrice(int i) {
+        if (nombreColonisatrices == colonisatrices.length) {
+            colonisatrices = Arrays.copyOf(colonisatrices, nombreColonisatrices * 2);
+        }
+        colonisatrices[nombreColonisatrices++] = i;
+    }
+
+    private short indiceType(TypePlante typePlante) {
+        Short indice = indicesTypes.get(typePlante);
+        if (indice == null) {
+            if (types.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Trop de types de plantes différents: " + types.size());
+            }
+            indice = (short) types.size();
+            types.add(typePlante);
+            if (indice == nombreParType.length) {
+                nombreParType = Arrays.copyOf(nombreParType, indice * 2);
+            }
+            indicesTypes.put(typePlante, indice);
+        }
+        return indice;
+    }
+
+    private int reserver() {
+        if (taille == id.length) {
+            int capacite = taille + (taille >> 1);
+            id = Arrays.copyOf(id, capacite);
+            cle = Arrays.copyOf(cle, capacite);
+            type = Arrays.copyOf(type, capacite);
+            age = Arrays.copyOf(age, capacite);
+            cellule = Arrays.copyOf(cellule, capacite);
+            etat = Arrays.copyOf(etat, capacite);
+        }
+        return taille++;
+    }
+}
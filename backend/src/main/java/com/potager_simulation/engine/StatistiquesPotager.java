@@ -0,0 +1,29 @@
+package com.potager_simulation.engine;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agrégats du potager à la fin d'un pas, tenus par le moteur au fil du pas :
+ * aucun parcours des plantes ni des insectes n'est nécessaire pour les obtenir.
+ * @param histogrammeHumidite nombre de parcelles par tranche de 20 % d'humidité (0-20, 20-40, ... 80-100)
+ * @param naissances insectes nés pendant le pas
+ * @param morts insectes morts pendant le pas
+ * @param pousses plantes apparues pendant le pas
+ * @param dispositifsActifs dispositifs ayant au moins un programme actif pendant le pas
+ */
+public record StatistiquesPotager(
+        int pas,
+        int nombreParcelles,
+        int nombrePlantes,
+        int plantesMatures,
+        int nombreInsectes,
+        Map<String, Integer> plantesParEspece,
+        Map<String, Integer> insectesParEspece,
+        int naissances,
+        int morts,
+        int pousses,
+        int dispositifsActifs,
+        double humiditeMoyenne,
+        List<Integer> histogrammeHumidite) {
+}
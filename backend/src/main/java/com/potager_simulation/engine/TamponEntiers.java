@@ -0,0 +1,27 @@
+package com.potager_simulation.engine;
+
+import java.util.Arrays;
+
+/**
+ * Liste d'entiers extensible, sans boxing : sert de boîte de sortie
+ * aux bandes traitées en parallèle.
+ */
+public class TamponEntiers {
+    private int[] valeurs = new int[16];
+    private int taille = 0;
+
+    public void ajouter(int valeur) {
+        if (taille == valeurs.length) {
+            valeurs = Arrays.copyOf(valeurs, taille * 2);
+        }
+        valeurs[taille++] = valeur;
+    }
+
+    public int get(int k) {
+        return valeurs[k];
+    }
+
+    public int taille() {
+        return taille;
+    }
+}
@@ -0,0 +1,9 @@
+package com.potager_simulation.engine;
+
+/**
+ * Caractéristiques communes à toutes les plantes d'une même espèce ;
+ * une plante de la simulation ne stocke que son âge et l'indice de son type.
+ */
+public record TypePlante(String espece, int ageMaturite, boolean estDrageonnante,
+                         double probabiliteColonisation) {
+}
@@ -1,7 +1,13 @@
 package com.potager_simulation.model;
 
+import com.potager_simulation.engine.GrillePotager;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,16 +25,43 @@ public class DispositifTraitement {
     @OneToOne(mappedBy = "dispositifTraitement")
     private Parcelle parcelle;
 
-    public List<Programme> getProgrammesActifs(int instantCourant) {
-        // Add debug output
-        System.out.println("Checking programs at time: " + instantCourant);
-        System.out.println("Total programs: " + programmes.size());
+    // Empreinte du dispositif (indices des cellules dans le rayon), mise en cache
+    // pour la grille et le rayon avec lesquels elle a été calculée
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int[] empreinte;
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int rayonEmpreinte;
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private GrillePotager grilleEmpreinte;
+
+    /**
+     * Cellules couvertes par le dispositif : disque de rayon {@code rayon} centré sur sa parcelle.
+     * L'empreinte n'est recalculée que si le rayon ou la grille ont changé.
+     */
+    public int[] getEmpreinte(GrillePotager grille) {
+        if (empreinte == null || rayonEmpreinte != rayon || grilleEmpreinte != grille) {
+            empreinte = grille.cellulesDansRayon(parcelle.getX(), parcelle.getY(), rayon);
+            rayonEmpreinte = rayon;
+            grilleEmpreinte = grille;
+        }
+        return empreinte;
+    }
 
-        List<Programme> actifs = programmes.stream()
+    public List<Programme> getProgrammesActifs(int instantCourant) {
+        return programmes.stream()
                 .filter(p -> p.estActif(instantCourant))
                 .collect(Collectors.toList());
-
-        System.out.println("Active programs found: " + actifs.size());
-        return actifs;
     }
 }
\ No newline at end of file
@@ -6,8 +6,11 @@ import lombok.Data;
 @Entity
 @Data
 public class Insecte {
+    // Séquence (table insecte_seq sous MySQL) avec allocation par blocs : permet le batching
+    // des insertions et l'attribution d'identifiants en mémoire par la simulation
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "insecte_seq")
+    @SequenceGenerator(name = "insecte_seq", sequenceName = "insecte_seq", allocationSize = 50)
     private Long id;
     private String espece;
     private String sexe; // "M" ou "F"
@@ -46,25 +49,4 @@ public class Insecte {
     public boolean estVivant() {
         return this.sante > 0 && this.passSansManger < 5;
     }
-
-    /**
-     * Tente un déplacement vers une parcelle voisine selon sa mobilité
-     * @return true si l'insecte doit se déplacer, false sinon
-     */
-    public boolean tenterDeplacement() {
-        return Math.random() < this.mobilite;
-    }
-
-    /**
-     * Applique un insecticide à l'insecte avec l'effet selon sa résistance
-     * @param puissance La puissance de l'insecticide (réduction de santé)
-     */
-    public void appliquerInsecticide(double puissance) {
-        // L'insecte peut résister selon sa résistance
-        if (Math.random() > this.resistanceInsecticide) {
-            // Calcul des dégâts en fonction de la puissance et de la résistance
-            int degats = (int)(puissance * (1 - this.resistanceInsecticide));
-            this.sante = Math.max(0, this.sante - degats);
-        }
-    }
 }
\ No newline at end of file
@@ -8,6 +8,8 @@ import java.util.List;
 
 @Entity
 @Data
+// Requêtes spatiales (coordonnées exactes, voisinages, rectangles) bornées sur x puis y
+@Table(indexes = @Index(name = "idx_parcelle_x_y", columnList = "x, y"))
 public class Parcelle {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -6,8 +6,11 @@ import lombok.Data;
 @Entity
 @Data
 public class Plante {
+    // Séquence (table plante_seq sous MySQL) avec allocation par blocs : permet le batching
+    // des insertions et l'attribution d'identifiants en mémoire par la simulation
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "plante_seq")
+    @SequenceGenerator(name = "plante_seq", sequenceName = "plante_seq", allocationSize = 50)
     private Long id;
 
     private String espece;
@@ -36,14 +39,4 @@ public class Plante {
     public boolean estMature() {
         return this.age >= this.ageMaturite;
     }
-
-    /**
-     * Tente une colonisation des parcelles voisines
-     * Ne doit être effectuée que si la plante est drageonnante et mature
-     * @return true si la plante peut tenter de coloniser, false sinon
-     */
-    public boolean tenterColonisation() {
-        // Une plante doit être drageonnante ET mature pour coloniser d'autres parcelles
-        return this.estDrageonnante && this.estMature() && (Math.random() < this.probabiliteColonisation);
-    }
 }
\ No newline at end of file
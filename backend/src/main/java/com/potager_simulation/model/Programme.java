@@ -23,14 +23,6 @@ public class Programme {
 
     // Méthodes métier
     public boolean estActif(int instantCourant) {
-        boolean active = instantCourant >= instantDebut && instantCourant < (instantDebut + duree);
-
-        // Debug output
-        if (active) {
-            System.out.println("Program " + id + " is active: starts at " + instantDebut +
-                    ", duration " + duree + ", current time " + instantCourant);
-        }
-
-        return active;
+        return instantCourant >= instantDebut && instantCourant < (instantDebut + duree);
     }
 }
\ No newline at end of file
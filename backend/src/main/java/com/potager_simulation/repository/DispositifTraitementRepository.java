@@ -2,12 +2,18 @@ package com.potager_simulation.repository;
 
 import com.potager_simulation.model.DispositifTraitement;
 import com.potager_simulation.model.Parcelle;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface DispositifTraitementRepository extends JpaRepository<DispositifTraitement, Long> {
+    @Override
+    @EntityGraph(attributePaths = {"parcelle", "programmes"})
+    List<DispositifTraitement> findAll();
+
     Optional<DispositifTraitement> findByParcelle(Parcelle parcelle);
 }
\ No newline at end of file
@@ -1,14 +1,40 @@
 package com.potager_simulation.repository;
 
+import com.potager_simulation.dto.InsecteDTO;
 import com.potager_simulation.model.Insecte;
 import com.potager_simulation.model.Parcelle;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface InsecteRepository extends JpaRepository<Insecte, Long> {
+    // La parcelle de chaque insecte (et son dispositif, chargé d'office) dans la même requête
+    @Override
+    @EntityGraph(attributePaths = {"parcelle", "parcelle.dispositifTraitement"})
+    List<Insecte> findAll();
+
     List<Insecte> findByParcelle(Parcelle parcelle);
+    // Lecture par lots triés par identifiant (keyset), projetée directement en DTO
+    @Query("SELECT new com.potager_simulation.dto.InsecteDTO(i.id, i.espece, i.sexe, i.sante, i.mobilite, " +
+            "i.resistanceInsecticide, i.passSansManger, p.id, p.x, p.y) " +
+            "FROM Insecte i JOIN i.parcelle p WHERE i.id > :apres ORDER BY i.id")
+    List<InsecteDTO> findDTOApres(long apres, Limit limite);
+
+    // Espèce et sexe comparés sans tenir compte de la casse
+    @Query("SELECT new com.potager_simulation.dto.InsecteDTO(i.id, i.espece, i.sexe, i.sante, i.mobilite, " +
+            "i.resistanceInsecticide, i.passSansManger, p.id, p.x, p.y) " +
+            "FROM Insecte i JOIN i.parcelle p WHERE UPPER(i.espece) = UPPER(:espece) ORDER BY i.id")
+    List<InsecteDTO> findDTOByEspece(String espece);
+
+    @Query("SELECT new com.potager_simulation.dto.InsecteDTO(i.id, i.espece, i.sexe, i.sante, i.mobilite, " +
+            "i.resistanceInsecticide, i.passSansManger, p.id, p.x, p.y) " +
+            "FROM Insecte i JOIN i.parcelle p WHERE UPPER(i.sexe) = UPPER(:sexe) ORDER BY i.id")
+    List<InsecteDTO> findDTOBySexe(String sexe);
+
     List<Insecte> findByParcelleAndEspeceAndSexeNot(Parcelle parcelle, String espece, String sexe);
 }
\ No newline at end of file
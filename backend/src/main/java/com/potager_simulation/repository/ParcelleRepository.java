@@ -1,21 +1,75 @@
 package com.potager_simulation.repository;
 
+import com.potager_simulation.dto.ParcelleResumeDTO;
 import com.potager_simulation.model.Parcelle;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ParcelleRepository extends JpaRepository<Parcelle, Long> {
+    // Les bornes BETWEEN sur les colonnes nues permettent d'utiliser l'index (x, y) ;
+    // la condition exacte ne porte ensuite que sur le carré englobant
     @Query("SELECT p FROM Parcelle p WHERE " +
+            "p.x BETWEEN :x - :rayon AND :x + :rayon AND p.y BETWEEN :y - :rayon AND :y + :rayon AND " +
             "((p.x - :x) * (p.x - :x) + (p.y - :y) * (p.y - :y)) <= :rayon * :rayon")
     List<Parcelle> findParcellesDansRayon(int x, int y, int rayon);
 
     @Query("SELECT p FROM Parcelle p WHERE " +
-            "ABS(p.x - :x) <= 1 AND ABS(p.y - :y) <= 1 AND NOT (p.x = :x AND p.y = :y)")
+            "p.x BETWEEN :x - 1 AND :x + 1 AND p.y BETWEEN :y - 1 AND :y + 1 AND NOT (p.x = :x AND p.y = :y)")
     List<Parcelle> findParcellesAdjacentes(int x, int y);
 
+    @Query("SELECT p.id FROM Parcelle p WHERE " +
+            "p.x BETWEEN :x - 1 AND :x + 1 AND p.y BETWEEN :y - 1 AND :y + 1 AND NOT (p.x = :x AND p.y = :y)")
+    List<Long> findIdsParcellesAdjacentes(int x, int y);
+
     Parcelle findByXAndY(int x, int y);
-}
\ No newline at end of file
+
+    // Rectangle englobant les parcelles : une ligne [minX, minY, maxX, maxY], nulle sans parcelle
+    @Query("SELECT MIN(p.x), MIN(p.y), MAX(p.x), MAX(p.y) FROM Parcelle p")
+    List<Object[]> findEtendue();
+
+    // Chargement du modèle de simulation : une requête par collection, dans la même session.
+    // Les dispositifs d'abord : la relation est chargée d'office avec chaque parcelle,
+    // une fois en session elle ne coûte plus de requête aux deux suivantes.
+    @Query("SELECT DISTINCT p FROM Parcelle p LEFT JOIN FETCH p.dispositifTraitement d " +
+            "LEFT JOIN FETCH d.programmes ORDER BY p.id")
+    List<Parcelle> findAllFetchDispositifs();
+
+    @Query("SELECT DISTINCT p FROM Parcelle p LEFT JOIN FETCH p.plantes ORDER BY p.id")
+    List<Parcelle> findAllFetchPlantes();
+
+    @Query("SELECT DISTINCT p FROM Parcelle p LEFT JOIN FETCH p.insectes ORDER BY p.id")
+    List<Parcelle> findAllFetchInsectes();
+
+    // Mêmes chargements, limités à quelques parcelles
+    @Query("SELECT DISTINCT p FROM Parcelle p LEFT JOIN FETCH p.dispositifTraitement d " +
+            "LEFT JOIN FETCH d.programmes WHERE p.id IN :ids ORDER BY p.id")
+    List<Parcelle> findByIdInFetchDispositifs(Collection<Long> ids);
+
+    @Query("SELECT DISTINCT p FROM Parcelle p LEFT JOIN FETCH p.plantes WHERE p.id IN :ids ORDER BY p.id")
+    List<Parcelle> findByIdInFetchPlantes(Collection<Long> ids);
+
+    @Query("SELECT DISTINCT p FROM Parcelle p LEFT JOIN FETCH p.insectes WHERE p.id IN :ids ORDER BY p.id")
+    List<Parcelle> findByIdInFetchInsectes(Collection<Long> ids);
+
+    // Listes paginées par identifiant (keyset) : le filtre EXISTS et la projection
+    // s'exécutent en base, aucune entité n'est chargée
+    String RESUME = "SELECT new com.potager_simulation.dto.ParcelleResumeDTO(p.id, p.x, p.y, p.tauxHumidite, " +
+            "(SELECT COUNT(pl) FROM Plante pl WHERE pl.parcelle = p), " +
+            "(SELECT COUNT(i) FROM Insecte i WHERE i.parcelle = p), d.id) " +
+            "FROM Parcelle p LEFT JOIN p.dispositifTraitement d ";
+
+    @Query(RESUME + "WHERE p.id > :apres AND EXISTS (SELECT 1 FROM Plante pl WHERE pl.parcelle = p) ORDER BY p.id")
+    List<ParcelleResumeDTO> findResumesAvecPlantes(long apres, Limit limite);
+
+    @Query(RESUME + "WHERE p.id > :apres AND EXISTS (SELECT 1 FROM Insecte i WHERE i.parcelle = p) ORDER BY p.id")
+    List<ParcelleResumeDTO> findResumesAvecInsectes(long apres, Limit limite);
+
+    @Query(RESUME + "WHERE p.id > :apres AND d IS NOT NULL ORDER BY p.id")
+    List<ParcelleResumeDTO> findResumesAvecDispositifs(long apres, Limit limite);
+}
@@ -1,14 +1,46 @@
 package com.potager_simulation.repository;
 
+import com.potager_simulation.dto.PlanteDTO;
 import com.potager_simulation.model.Parcelle;
 import com.potager_simulation.model.Plante;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface PlanteRepository extends JpaRepository<Plante, Long> {
+    // La parcelle de chaque plante (et son dispositif, chargé d'office) dans la même requête
+    @Override
+    @EntityGraph(attributePaths = {"parcelle", "parcelle.dispositifTraitement"})
+    List<Plante> findAll();
+
     List<Plante> findByParcelle(Parcelle parcelle);
+
+    @EntityGraph(attributePaths = {"parcelle", "parcelle.dispositifTraitement"})
     List<Plante> findByEspece(String espece);
+
+    // Lecture par lots triés par identifiant (keyset), projetée directement en DTO :
+    // aucune entité n'entre dans la session, la mémoire ne dépend que de la taille du lot
+    @Query("SELECT new com.potager_simulation.dto.PlanteDTO(pl.id, pl.espece, pl.age, pl.ageMaturite, " +
+            "pl.estDrageonnante, pl.probabiliteColonisation, p.id, p.x, p.y) " +
+            "FROM Plante pl JOIN pl.parcelle p WHERE pl.id > :apres ORDER BY pl.id")
+    List<PlanteDTO> findDTOApres(long apres, Limit limite);
+
+    @Query("SELECT new com.potager_simulation.dto.PlanteDTO(pl.id, pl.espece, pl.age, pl.ageMaturite, " +
+            "pl.estDrageonnante, pl.probabiliteColonisation, p.id, p.x, p.y) " +
+            "FROM Plante pl JOIN pl.parcelle p WHERE pl.estDrageonnante = true ORDER BY pl.id")
+    List<PlanteDTO> findDTODrageonnantes();
+
+    @Query("SELECT new com.potager_simulation.dto.PlanteDTO(pl.id, pl.espece, pl.age, pl.ageMaturite, " +
+            "pl.estDrageonnante, pl.probabiliteColonisation, p.id, p.x, p.y) " +
+            "FROM Plante pl JOIN pl.parcelle p WHERE pl.age >= pl.ageMaturite ORDER BY pl.id")
+    List<PlanteDTO> findDTOMatures();
+
+    // Une ligne [espèce, nombre] par espèce, comptée par la base
+    @Query("SELECT pl.espece, COUNT(pl) FROM Plante pl GROUP BY pl.espece")
+    List<Object[]> countParEspece();
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.potager_simulation.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Abonnements STOMP en cours, par destination : un format du flux n'est encodé
+ * que si au moins un client y est abonné.
+ */
+@Service
+public class AbonnementsFlux {
+    // "session/abonnement" -> destination
+    private final Map<String, String> abonnements = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void abonnement(SessionSubscribeEvent event) {
+        StompHeaderAccessor entetes = StompHeaderAccessor.wrap(event.getMessage());
+        if (entetes.getDestination() != null) {
+            abonnements.put(cle(entetes.getSessionId(), entetes.getSubscriptionId()), entetes.getDestination());
+        }
+    }
+
+    @EventListener
+    public void desabonnement(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor entetes = StompHeaderAccessor.wrap(event.getMessage());
+        abonnements.remove(cle(entetes.getSessionId(), entetes.getSubscriptionId()));
+    }
+
+    @EventListener
+    public void deconnexion(SessionDisconnectEvent event) {
+        String prefixe = event.getSessionId() + "/";
+        abonnements.keySet().removeIf(cle -> cle.startsWith(prefixe));
+    }
+
+    public boolean aDesAbonnes(String destination) {
+        return abonnements.containsValue(destination);
+    }
+
+    private static String cle(String session, String abonnement) {
+        return session + "/" + abonnement;
+    }
+}
@@ -0,0 +1,128 @@
+package com.potager_simulation.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Distribue des identifiants réservés par blocs dans une table de séquence Hibernate
+ * (colonne next_val). La réservation suit la sémantique de l'optimiseur "pooled-lo"
+ * utilisé par JPA : lire S et écrire S + n réserve l'intervalle [S, S + n).
+ * Le bloc suivant est réservé par le thread d'écriture dès que la moitié du bloc courant
+ * est distribuée (le thread est réveillé à ce moment-là) ; sa taille suit le rythme des
+ * naissances, pour qu'un demi-bloc couvre un intervalle d'écriture. Le thread de simulation
+ * ne touche donc à la base que si la réserve est épuisée.
+ */
+class AllocateurIdentifiants {
+    private final String table;
+    private final int tailleBlocMin;
+    private final int tailleBlocMax;
+    private final long intervalleMs;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // Demande au thread d'écriture de préparer le bloc suivant
+    private final Runnable reveil;
+
+    private long debut;
+    private long prochain;
+    private long limite;
+    private boolean reveilDemande;
+    private final AtomicReference<long[]> blocSuivant = new AtomicReference<>();
+
+    // Rythme de distribution, mesuré entre deux réservations
+    private long distribues;
+    private long distribuesMesure;
+    private long instantMesure = System.nanoTime();
+
+    /**
+     * @param intervalleMs intervalle d'écriture : un demi-bloc doit durer au moins aussi longtemps
+     */
+    AllocateurIdentifiants(String table, int tailleBlocMin, int tailleBlocMax, long intervalleMs,
+                           JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Runnable reveil) {
+        this.table = table;
+        this.tailleBlocMin = Math.max(1, tailleBlocMin);
+        this.tailleBlocMax = Math.max(this.tailleBlocMin, tailleBlocMax);
+        this.intervalleMs = Math.max(1, intervalleMs);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.reveil = reveil;
+    }
+
+    /**
+     * Place la séquence après les identifiants déjà présents dans la table d'entités
+     * (lignes créées avant le passage de IDENTITY à SEQUENCE).
+     */
+    void alignerSur(String tableEntite) {
+        jdbcTemplate.update("UPDATE " + table + " SET next_val = GREATEST(next_val, " +
+                "(SELECT COALESCE(MAX(id), 0) + 1 FROM " + tableEntite + "))");
+    }
+
+    long suivant() {
+        boolean reveiller;
+        long id;
+        synchronized (this) {
+            if (prochain >= limite) {
+                long[] bloc = blocSuivant.getAndSet(null);
+                if (bloc == null) {
+                    // Réserve pas encore prête : réservation synchrone, exceptionnelle
+                    bloc = reserver(tailleAdaptee());
+                }
+                debut = bloc[0];
+                prochain = bloc[0];
+                limite = bloc[1];
+                reveilDemande = false;
+            }
+            id = prochain++;
+            distribues++;
+            reveiller = !reveilDemande && moitieDistribuee() && blocSuivant.get() == null;
+            reveilDemande |= reveiller;
+        }
+        if (reveiller) {
+            reveil.run();
+        }
+        return id;
+    }
+
+    /**
+     * Réserve le bloc suivant si la moitié du bloc courant est distribuée et qu'il n'est
+     * pas déjà prêt (appelé par le thread d'écriture)
+     */
+    void preparer() {
+        int taille;
+        synchronized (this) {
+            if (blocSuivant.get() != null || !moitieDistribuee()) {
+                return;
+            }
+            taille = tailleAdaptee();
+        }
+        blocSuivant.compareAndSet(null, reserver(taille));
+    }
+
+    private boolean moitieDistribuee() {
+        return prochain - debut >= (limite - debut) / 2;
+    }
+
+    /**
+     * Taille du prochain bloc : deux intervalles d'écriture au rythme mesuré depuis la
+     * réservation précédente, entre tailleBlocMin et tailleBlocMax
+     */
+    private int tailleAdaptee() {
+        long maintenant = System.nanoTime();
+        double dureeMs = Math.max(1, (maintenant - instantMesure) / 1e6);
+        double parMs = (distribues - distribuesMesure) / dureeMs;
+        distribuesMesure = distribues;
+        instantMesure = maintenant;
+        long taille = (long) Math.ceil(parMs * 2 * intervalleMs);
+        return (int) Math.max(tailleBlocMin, Math.min(tailleBlocMax, taille));
+    }
+
+    private long[] reserver(int taille) {
+        Long valeur = transactionTemplate.execute(status -> {
+            Long suivante = jdbcTemplate.queryForObject("SELECT next_val FROM " + table + " FOR UPDATE", Long.class);
+            jdbcTemplate.update("UPDATE " + table + " SET next_val = ?", suivante + taille);
+            return suivante;
+        });
+        return new long[]{valeur, valeur + taille};
+    }
+}
@@ -0,0 +1,61 @@
+package com.potager_simulation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.potager_simulation.engine.InstantaneMonde;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Réponse de GET /simulation/state, construite et sérialisée au plus une fois par
+ * état publié : entre deux pas, toutes les requêtes reçoivent les mêmes octets.
+ * <p>
+ * L'ETag combine le pas, un numéro d'état (un traitement manuel ou un rechargement
+ * publient un nouvel état au même pas) et l'indicateur de simulation en cours.
+ */
+@Service
+public class CacheEtatSimulation {
+    private final ConvertisseurEtat convertisseur;
+    private final ObjectMapper objectMapper;
+
+    private volatile EtatSerialise dernier;
+    // Numéros d'état, partis de l'heure de démarrage : un ETag d'avant un redémarrage
+    // du serveur ne correspond à aucun état actuel
+    private long prochainNumero = System.currentTimeMillis();
+
+    @Autowired
+    public CacheEtatSimulation(ConvertisseurEtat convertisseur, ObjectMapper objectMapper) {
+        this.convertisseur = convertisseur;
+        this.objectMapper = objectMapper;
+    }
+
+    public record EtatSerialise(InstantaneMonde etat, long numero, boolean enCours, String etag, byte[] json) {
+    }
+
+    public EtatSerialise obtenir(InstantaneMonde etat, boolean enCours) {
+        EtatSerialise courant = dernier;
+        if (courant != null && courant.etat() == etat && courant.enCours() == enCours) {
+            return courant;
+        }
+        return construire(etat, enCours);
+    }
+
+    // Une seule construction à la fois : les requêtes concurrentes d'un nouvel état attendent la première
+    private synchronized EtatSerialise construire(InstantaneMonde etat, boolean enCours) {
+        EtatSerialise courant = dernier;
+        if (courant != null && courant.etat() == etat && courant.enCours() == enCours) {
+            return courant;
+        }
+        long numero = courant != null && courant.etat() == etat
+                ? courant.numero()
+                : prochainNumero++;
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(convertisseur.creerEtatPotagerDTO(etat, enCours));
+            String etag = "\"" + etat.getPas() + "-" + Long.toString(numero, 36) + (enCours ? "-e" : "-a") + "\"";
+            dernier = new EtatSerialise(etat, numero, enCours, etag, json);
+            return dernier;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Sérialisation de l'état du potager impossible", e);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.dto.*;
+import com.potager_simulation.engine.GrillePotager;
+import com.potager_simulation.engine.IndexParCellule;
+import com.potager_simulation.engine.InstantaneMonde;
+import com.potager_simulation.engine.TypePlante;
+import com.potager_simulation.model.DispositifTraitement;
+import com.potager_simulation.model.Programme;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Conversion d'un {@link InstantaneMonde} en DTOs pour le frontend.
+ * Sans état : peut être appelée depuis n'importe quel thread.
+ */
+@Service
+public class ConvertisseurEtat {
+
+    public EtatPotagerDTO creerEtatPotagerDTO(InstantaneMonde etat, boolean enCours) {
+        // Créer un DTO représentant l'état actuel du potager
+        EtatPotagerDTO etatDTO = new EtatPotagerDTO();
+        etatDTO.setPasSimulation(etat.getPas());
+        etatDTO.setEnCours(enCours);
+
+        // Les parcelles viennent de l'état figé du dernier pas, pas de la base
+        GrillePotager grilleEtat = etat.getGrille();
+        IndexParCellule plantesParCellule = etat.indexerPlantes();
+        IndexParCellule insectesParCellule = etat.indexerInsectes();
+
+        // Déterminer les dimensions du potager
+        int maxX = 0, maxY = 0;
+        for (int k = 0; k < etat.getNombreParcelles(); k++) {
+            int cellule = etat.getCelluleParcelle(k);
+            maxX = Math.max(maxX, grilleEtat.getX(cellule));
+            maxY = Math.max(maxY, grilleEtat.getY(cellule));
+        }
+
+        etatDTO.setLargeur(maxX + 1);
+        etatDTO.setHauteur(maxY + 1);
+
+        // Convertir les parcelles en DTOs
+        List<ParcelleDTO> parcellesDTO = new ArrayList<>(etat.getNombreParcelles());
+        for (int k = 0; k < etat.getNombreParcelles(); k++) {
+            parcellesDTO.add(convertParcelleToDTO(etat, etat.getCelluleParcelle(k),
+                    plantesParCellule, insectesParCellule));
+        }
+
+        etatDTO.setParcelles(parcellesDTO);
+
+        return etatDTO;
+    }
+
+    public ParcelleDTO convertParcelleToDTO(InstantaneMonde etat, int cellule,
+                                             IndexParCellule plantesParCellule,
+                                             IndexParCellule insectesParCellule) {
+        ParcelleDTO dto = new ParcelleDTO();
+
+        // Copier les propriétés de base
+        int x = etat.getGrille().getX(cellule);
+        int y = etat.getGrille().getY(cellule);
+        double tauxHumidite = etat.getTauxHumidite(cellule);
+        dto.setId(etat.getIdParcelle(cellule));
+        dto.setX(x);
+        dto.setY(y);
+        dto.setTauxHumidite(tauxHumidite);
+
+        // Pour la compatibilité avec le frontend
+        dto.setCoordX(x);
+        dto.setCoordY(y);
+
+        // Déterminer la catégorie d'humidité
+        dto.setCategorieHumidite(categorieHumidite(tauxHumidite));
+
+        // Convertir les plantes
+        List<PlanteDTO> plantesDTO = new ArrayList<>(plantesParCellule.nombre(cellule));
+        for (int k = 0; k < plantesParCellule.nombre(cellule); k++) {
+            plantesDTO.add(convertPlanteToDTO(etat, plantesParCellule.element(cellule, k)));
+        }
+        dto.setPlantes(plantesDTO);
+
+        // Convertir les insectes
+        List<InsecteDTO> insectesDTO = new ArrayList<>(insectesParCellule.nombre(cellule));
+        for (int k = 0; k < insectesParCellule.nombre(cellule); k++) {
+            insectesDTO.add(convertInsecteToDTO(etat, insectesParCellule.element(cellule, k)));
+        }
+        dto.setInsectes(insectesDTO);
+
+        // Convertir le dispositif de traitement
+        if (etat.getDispositif(cellule) != null) {
+            dto.setDispositifTraitement(convertDispositifToDTO(etat.getDispositif(cellule)));
+        }
+
+        return dto;
+    }
+
+    public String categorieHumidite(double tauxHumidite) {
+        if (tauxHumidite < 20) {
+            return "sec";
+        } else if (tauxHumidite < 40) {
+            return "légèrement humide";
+        } else if (tauxHumidite < 60) {
+            return "moyennement humide";
+        } else if (tauxHumidite < 80) {
+            return "humide";
+        } else {
+            return "très humide";
+        }
+    }
+
+    // Méthodes de conversion supplémentaires nécessaires
+    public PlanteDTO convertPlanteToDTO(InstantaneMonde etat, int i) {
+        TypePlante type = etat.getTypePlante(i);
+        PlanteDTO dto = new PlanteDTO();
+        dto.setId(etat.getIdPlante(i));
+        dto.setEspece(type.espece());
+        dto.setAge(etat.getAgePlante(i));
+        dto.setAgeMaturite(type.ageMaturite());
+        dto.setEstMature(etat.estMature(i));
+        dto.setEstDrageonnante(type.estDrageonnante());
+        dto.setProbabiliteColonisation(type.probabiliteColonisation());
+
+        // Ajouter des informations de parcelle pour le frontend
+        int cellule = etat.getCellulePlante(i);
+        dto.setParcelleId(etat.getIdParcelle(cellule));
+        dto.setParcelleCoordX(etat.getGrille().getX(cellule));
+        dto.setParcelleCoordY(etat.getGrille().getY(cellule));
+
+        return dto;
+    }
+
+    public InsecteDTO convertInsecteToDTO(InstantaneMonde etat, int i) {
+        InsecteDTO dto = new InsecteDTO();
+        dto.setId(etat.getIdInsecte(i));
+        dto.setEspece(etat.getEspeceInsecte(i));
+        dto.setSexe(etat.getSexeInsecte(i));
+        dto.setSante(etat.getSanteInsecte(i));
+        dto.setMobilite(etat.getMobiliteInsecte(i));
+        dto.setResistanceInsecticide(etat.getResistanceInsecticide(i));
+        dto.setPassSansManger(etat.getPassSansManger(i));
+
+        // Pour la compatibilité avec le frontend
+        int cellule = etat.getCelluleInsecte(i);
+        dto.setParcelleId(etat.getIdParcelle(cellule));
+        dto.setParcelleCoordX(etat.getGrille().getX(cellule));
+        dto.setParcelleCoordY(etat.getGrille().getY(cellule));
+
+        return dto;
+    }
+
+    private DispositifTraitementDTO convertDispositifToDTO(DispositifTraitement dispositif) {
+        DispositifTraitementDTO dto = new DispositifTraitementDTO();
+        dto.setId(dispositif.getId());
+        dto.setRayon(dispositif.getRayon());
+
+        if (dispositif.getParcelle() != null) {
+            dto.setParcelleId(dispositif.getParcelle().getId());
+            dto.setParcelleCoordX(dispositif.getParcelle().getX());
+            dto.setParcelleCoordY(dispositif.getParcelle().getY());
+        }
+
+        // Convertir les programmes
+        List<ProgrammeDTO> programmesDTO = dispositif.getProgrammes().stream()
+                .map(this::convertProgrammeToDTO)
+                .collect(Collectors.toList());
+
+        // Pour la compatibilité avec le frontend
+        dto.setProgrammesActifs(programmesDTO);
+
+        return dto;
+    }
+
+    private ProgrammeDTO convertProgrammeToDTO(Programme programme) {
+        ProgrammeDTO dto = new ProgrammeDTO();
+        dto.setId(programme.getId());
+        dto.setInstantDebut(programme.getInstantDebut());
+        dto.setDuree(programme.getDuree());
+        dto.setTypeTraitement(programme.getTypeTraitement().name());
+
+        if (programme.getDispositifTraitement() != null) {
+            dto.setDispositifId(programme.getDispositifTraitement().getId());
+        }
+
+        return dto;
+    }
+}
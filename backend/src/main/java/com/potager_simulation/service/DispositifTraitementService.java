@@ -10,7 +10,6 @@ import com.potager_simulation.repository.DispositifTraitementRepository;
 import com.potager_simulation.repository.ParcelleRepository;
 import com.potager_simulation.repository.ProgrammeRepository;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -22,15 +21,18 @@ public class DispositifTraitementService {
     private final DispositifTraitementRepository dispositifRepository;
     private final ParcelleRepository parcelleRepository;
     private final ProgrammeRepository programmeRepository;
+    private final SimulationManager simulationManager;
 
     @Autowired
     public DispositifTraitementService(
             DispositifTraitementRepository dispositifRepository,
             ParcelleRepository parcelleRepository,
-            ProgrammeRepository programmeRepository) {
+            ProgrammeRepository programmeRepository,
+            SimulationManager simulationManager) {
         this.dispositifRepository = dispositifRepository;
         this.parcelleRepository = parcelleRepository;
         this.programmeRepository = programmeRepository;
+        this.simulationManager = simulationManager;
     }
 
     public List<DispositifTraitementDTO> getAllDispositifs() {
@@ -45,99 +47,105 @@ public class DispositifTraitementService {
         return convertDispositifToDTO(dispositif);
     }
 
-    @Transactional
     public DispositifTraitementDTO creerDispositifSurParcelle(Long parcelleId, DispositifTraitementDTO dispositifDTO) {
-        Parcelle parcelle = parcelleRepository.findById(parcelleId)
-                .orElseThrow(() -> new EntityNotFoundException("Parcelle non trouvée avec l'ID: " + parcelleId));
+        return simulationManager.modifierPotager(false, statut -> {
+            Parcelle parcelle = parcelleRepository.findById(parcelleId)
+                    .orElseThrow(() -> new EntityNotFoundException("Parcelle non trouvée avec l'ID: " + parcelleId));
 
-        // Vérifier si la parcelle a déjà un dispositif
-        if (parcelle.getDispositifTraitement() != null) {
-            throw new IllegalStateException("La parcelle possède déjà un dispositif de traitement");
-        }
+            // Vérifier si la parcelle a déjà un dispositif
+            if (parcelle.getDispositifTraitement() != null) {
+                throw new IllegalStateException("La parcelle possède déjà un dispositif de traitement");
+            }
 
-        DispositifTraitement dispositif = new DispositifTraitement();
-        dispositif.setRayon(dispositifDTO.getRayon());
-        dispositif.setParcelle(parcelle);
+            DispositifTraitement dispositif = new DispositifTraitement();
+            dispositif.setRayon(verifierRayon(dispositifDTO.getRayon()));
+            dispositif.setParcelle(parcelle);
 
-        DispositifTraitement savedDispositif = dispositifRepository.save(dispositif);
+            DispositifTraitement savedDispositif = dispositifRepository.save(dispositif);
 
-        // Mettre à jour la parcelle avec le dispositif
-        parcelle.setDispositifTraitement(savedDispositif);
-        parcelleRepository.save(parcelle);
+            // Mettre à jour la parcelle avec le dispositif
+            parcelle.setDispositifTraitement(savedDispositif);
+            parcelleRepository.save(parcelle);
 
-        return convertDispositifToDTO(savedDispositif);
+            return convertDispositifToDTO(savedDispositif);
+        });
     }
 
-    @Transactional
     public DispositifTraitementDTO updateDispositif(Long id, DispositifTraitementDTO dispositifDTO) {
-        DispositifTraitement dispositif = dispositifRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Dispositif non trouvé avec l'ID: " + id));
+        return simulationManager.modifierPotager(false, statut -> {
+            DispositifTraitement dispositif = dispositifRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Dispositif non trouvé avec l'ID: " + id));
 
-        dispositif.setRayon(dispositifDTO.getRayon());
+            dispositif.setRayon(verifierRayon(dispositifDTO.getRayon()));
 
-        DispositifTraitement updatedDispositif = dispositifRepository.save(dispositif);
-        return convertDispositifToDTO(updatedDispositif);
+            DispositifTraitement updatedDispositif = dispositifRepository.save(dispositif);
+            return convertDispositifToDTO(updatedDispositif);
+        });
     }
 
-    @Transactional
     public void deleteDispositif(Long id) {
-        DispositifTraitement dispositif = dispositifRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Dispositif non trouvé avec l'ID: " + id));
-
-        // Détacher le dispositif de la parcelle
-        Parcelle parcelle = dispositif.getParcelle();
-        if (parcelle != null) {
-            parcelle.setDispositifTraitement(null);
-            parcelleRepository.save(parcelle);
-        }
+        simulationManager.modifierPotagerSansResultat(false, statut -> {
+            DispositifTraitement dispositif = dispositifRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Dispositif non trouvé avec l'ID: " + id));
+
+            // Détacher le dispositif de la parcelle
+            Parcelle parcelle = dispositif.getParcelle();
+            if (parcelle != null) {
+                parcelle.setDispositifTraitement(null);
+                parcelleRepository.save(parcelle);
+            }
 
-        dispositifRepository.deleteById(id);
+            dispositifRepository.deleteById(id);
+        });
     }
 
-    @Transactional
     public ProgrammeDTO ajouterProgramme(Long dispositifId, ProgrammeDTO programmeDTO) {
-        DispositifTraitement dispositif = dispositifRepository.findById(dispositifId)
-                .orElseThrow(() -> new EntityNotFoundException("Dispositif non trouvé avec l'ID: " + dispositifId));
-
-        Programme programme = new Programme();
-        programme.setInstantDebut(programmeDTO.getInstantDebut());
-        programme.setDuree(programmeDTO.getDuree());
-        programme.setTypeTraitement(TypeTraitement.valueOf(programmeDTO.getTypeTraitement()));
-        programme.setDispositifTraitement(dispositif);
-
-        Programme savedProgramme = programmeRepository.save(programme);
-        dispositif.getProgrammes().add(savedProgramme);
-        dispositifRepository.save(dispositif);
+        return simulationManager.modifierPotager(false, statut -> {
+            DispositifTraitement dispositif = dispositifRepository.findById(dispositifId)
+                    .orElseThrow(() -> new EntityNotFoundException("Dispositif non trouvé avec l'ID: " + dispositifId));
+
+            Programme programme = new Programme();
+            programme.setInstantDebut(programmeDTO.getInstantDebut());
+            programme.setDuree(programmeDTO.getDuree());
+            programme.setTypeTraitement(TypeTraitement.valueOf(programmeDTO.getTypeTraitement()));
+            programme.setDispositifTraitement(dispositif);
+
+            Programme savedProgramme = programmeRepository.save(programme);
+            dispositif.getProgrammes().add(savedProgramme);
+            dispositifRepository.save(dispositif);
 
-        return convertProgrammeToDTO(savedProgramme);
+            return convertProgrammeToDTO(savedProgramme);
+        });
     }
 
-    @Transactional
     public ProgrammeDTO updateProgramme(Long programmeId, ProgrammeDTO programmeDTO) {
-        Programme programme = programmeRepository.findById(programmeId)
-                .orElseThrow(() -> new EntityNotFoundException("Programme non trouvé avec l'ID: " + programmeId));
+        return simulationManager.modifierPotager(false, statut -> {
+            Programme programme = programmeRepository.findById(programmeId)
+                    .orElseThrow(() -> new EntityNotFoundException("Programme non trouvé avec l'ID: " + programmeId));
 
-        programme.setInstantDebut(programmeDTO.getInstantDebut());
-        programme.setDuree(programmeDTO.getDuree());
-        programme.setTypeTraitement(TypeTraitement.valueOf(programmeDTO.getTypeTraitement()));
+            programme.setInstantDebut(programmeDTO.getInstantDebut());
+            programme.setDuree(programmeDTO.getDuree());
+            programme.setTypeTraitement(TypeTraitement.valueOf(programmeDTO.getTypeTraitement()));
 
-        Programme updatedProgramme = programmeRepository.save(programme);
-        return convertProgrammeToDTO(updatedProgramme);
+            Programme updatedProgramme = programmeRepository.save(programme);
+            return convertProgrammeToDTO(updatedProgramme);
+        });
     }
 
-    @Transactional
     public void deleteProgramme(Long programmeId) {
-        Programme programme = programmeRepository.findById(programmeId)
-                .orElseThrow(() -> new EntityNotFoundException("Programme non trouvé avec l'ID: " + programmeId));
-
-        // Détacher le programme du dispositif
-        DispositifTraitement dispositif = programme.getDispositifTraitement();
-        if (dispositif != null) {
-            dispositif.getProgrammes().remove(programme);
-            dispositifRepository.save(dispositif);
-        }
+        simulationManager.modifierPotagerSansResultat(false, statut -> {
+            Programme programme = programmeRepository.findById(programmeId)
+                    .orElseThrow(() -> new EntityNotFoundException("Programme non trouvé avec l'ID: " + programmeId));
+
+            // Détacher le programme du dispositif
+            DispositifTraitement dispositif = programme.getDispositifTraitement();
+            if (dispositif != null) {
+                dispositif.getProgrammes().remove(programme);
+                dispositifRepository.save(dispositif);
+            }
 
-        programmeRepository.deleteById(programmeId);
+            programmeRepository.deleteById(programmeId);
+        });
     }
 
     public List<ProgrammeDTO> getProgrammesByDispositif(Long dispositifId) {
@@ -149,36 +157,17 @@ public class DispositifTraitementService {
                 .collect(Collectors.toList());
     }
 
-    // Appliquer un traitement manuel immédiat
-    @Transactional
+    // Appliquer un traitement manuel immédiat, sur le modèle en mémoire de la simulation
+    // (empreinte précalculée du dispositif, pas de recherche des parcelles en base)
     public void appliquerTraitementManuel(Long dispositifId, TypeTraitement typeTraitement) {
-        DispositifTraitement dispositif = dispositifRepository.findById(dispositifId)
-                .orElseThrow(() -> new EntityNotFoundException("Dispositif non trouvé avec l'ID: " + dispositifId));
+        simulationManager.appliquerTraitementManuel(dispositifId, typeTraitement);
+    }
 
-        Parcelle parcelleCentrale = dispositif.getParcelle();
-        List<Parcelle> parcellesDansRayon = parcelleRepository.findParcellesDansRayon(
-                parcelleCentrale.getX(), parcelleCentrale.getY(), dispositif.getRayon());
-
-        for (Parcelle parcelle : parcellesDansRayon) {
-            switch (typeTraitement) {
-                case EAU:
-                    parcelle.ajouterHumidite(15.0);
-                    break;
-                case INSECTICIDE:
-                    parcelle.getInsectes().forEach(insecte -> insecte.appliquerInsecticide(4.0));
-                    break;
-                case ENGRAIS:
-                    // Effet simplifié de l'engrais
-                    parcelle.getPlantes().forEach(plante -> {
-                        if (Math.random() < 0.4) { // 40% de chance d'accélération
-                            plante.vieillir();
-                        }
-                    });
-                    break;
-            }
+    private static int verifierRayon(int rayon) {
+        if (rayon < 0) {
+            throw new IllegalArgumentException("Le rayon doit être positif ou nul: " + rayon);
         }
-
-        parcelleRepository.saveAll(parcellesDansRayon);
+        return rayon;
     }
 
     private DispositifTraitementDTO convertDispositifToDTO(DispositifTraitement dispositif) {
@@ -217,29 +206,30 @@ public class DispositifTraitementService {
      * @param dispositifId ID du dispositif concerné
      * @param programmeId ID du programme à supprimer
      */
-    @Transactional
     public void supprimerProgramme(Long dispositifId, Long programmeId) {
-        // Vérifier que le dispositif existe
-        DispositifTraitement dispositif = dispositifRepository.findById(dispositifId)
-                .orElseThrow(() -> new EntityNotFoundException("Dispositif non trouvé avec l'ID: " + dispositifId));
-
-        // Vérifier que le programme existe
-        Programme programme = programmeRepository.findById(programmeId)
-                .orElseThrow(() -> new EntityNotFoundException("Programme non trouvé avec l'ID: " + programmeId));
-
-        // Vérifier que le programme appartient bien au dispositif
-        if (!programme.getDispositifTraitement().getId().equals(dispositifId)) {
-            throw new IllegalArgumentException("Le programme avec ID " + programmeId +
-                    " n'appartient pas au dispositif avec ID " + dispositifId);
-        }
+        simulationManager.modifierPotagerSansResultat(false, statut -> {
+            // Vérifier que le dispositif existe
+            DispositifTraitement dispositif = dispositifRepository.findById(dispositifId)
+                    .orElseThrow(() -> new EntityNotFoundException("Dispositif non trouvé avec l'ID: " + dispositifId));
+
+            // Vérifier que le programme existe
+            Programme programme = programmeRepository.findById(programmeId)
+                    .orElseThrow(() -> new EntityNotFoundException("Programme non trouvé avec l'ID: " + programmeId));
+
+            // Vérifier que le programme appartient bien au dispositif
+            if (!programme.getDispositifTraitement().getId().equals(dispositifId)) {
+                throw new IllegalArgumentException("Le programme avec ID " + programmeId +
+                        " n'appartient pas au dispositif avec ID " + dispositifId);
+            }
 
-        // Retirer le programme de la liste des programmes du dispositif
-        dispositif.getProgrammes().remove(programme);
+            // Retirer le programme de la liste des programmes du dispositif
+            dispositif.getProgrammes().remove(programme);
 
-        // Sauvegarder le dispositif mis à jour
-        dispositifRepository.save(dispositif);
+            // Sauvegarder le dispositif mis à jour
+            dispositifRepository.save(dispositif);
 
-        // Supprimer le programme de la base de données
-        programmeRepository.delete(programme);
+            // Supprimer le programme de la base de données
+            programmeRepository.delete(programme);
+        });
     }
 }
\ No newline at end of file
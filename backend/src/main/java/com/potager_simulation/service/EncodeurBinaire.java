@@ -0,0 +1,128 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.engine.GrillePotager;
+import com.potager_simulation.engine.InstantaneMonde;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodage binaire compact d'un état du potager, pour les clients qui s'abonnent au
+ * flux binaire. Un état est encodé une seule fois, quel que soit le nombre de clients.
+ * <p>
+ * Format (entiers en varint non signé, sauf mention contraire) :
+ * <pre>
+ * 'P' 'G' version(1 octet = 1)
+ * pas, enCours(1 octet), origineX, origineY (varint zigzag), largeur, hauteur
+ * humidité : largeur * hauteur octets, cellule par cellule (indice (x - origineX) * hauteur + (y - origineY)),
+ *            demi-points de pourcentage de 0 à 200, 255 pour une cellule sans parcelle
+ * plantes  : nombre d'espèces, puis par espèce son nom (longueur + UTF-8)
+ *            et ses effectifs par cellule en plages (longueur de plage, effectif)
+ * insectes : même forme que les plantes
+ * </pre>
+ */
+@Service
+public class EncodeurBinaire {
+    public static final int VERSION = 1;
+    private static final int CELLULE_ABSENTE = 255;
+
+    public byte[] encoder(InstantaneMonde etat, boolean enCours) {
+        GrillePotager grille = etat.getGrille();
+        int taille = grille.getTaille();
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream(taille + 64);
+
+        sortie.write('P');
+        sortie.write('G');
+        sortie.write(VERSION);
+        ecrireVarint(sortie, etat.getPas());
+        sortie.write(enCours ? 1 : 0);
+        // Potager vide : grille de taille nulle
+        ecrireVarint(sortie, taille == 0 ? 0 : zigzag(grille.getX(0)));
+        ecrireVarint(sortie, taille == 0 ? 0 : zigzag(grille.getY(0)));
+        ecrireVarint(sortie, grille.getLargeur());
+        ecrireVarint(sortie, grille.getHauteur());
+
+        byte[] humidite = new byte[taille];
+        Arrays.fill(humidite, (byte) CELLULE_ABSENTE);
+        for (int k = 0; k < etat.getNombreParcelles(); k++) {
+            int cellule = etat.getCelluleParcelle(k);
+            long demiPoints = Math.round(etat.getTauxHumidite(cellule) * 2);
+            humidite[cellule] = (byte) Math.max(0, Math.min(200, demiPoints));
+        }
+        sortie.write(humidite, 0, taille);
+
+        // Effectifs par espèce et par cellule
+        List<String> especesPlantes = new ArrayList<>();
+        List<int[]> plantes = new ArrayList<>();
+        Map<String, Integer> indicesPlantes = new HashMap<>();
+        for (int i = 0; i < etat.getNombrePlantes(); i++) {
+            int e = indiceEspece(etat.getTypePlante(i).espece(), especesPlantes, plantes, indicesPlantes, taille);
+            plantes.get(e)[etat.getCellulePlante(i)]++;
+        }
+        ecrireEffectifs(sortie, especesPlantes, plantes);
+
+        List<String> especesInsectes = new ArrayList<>();
+        List<int[]> insectes = new ArrayList<>();
+        Map<String, Integer> indicesInsectes = new HashMap<>();
+        for (int i = 0; i < etat.getNombreInsectes(); i++) {
+            int e = indiceEspece(etat.getEspeceInsecte(i), especesInsectes, insectes, indicesInsectes, taille);
+            insectes.get(e)[etat.getCelluleInsecte(i)]++;
+        }
+        ecrireEffectifs(sortie, especesInsectes, insectes);
+
+        return sortie.toByteArray();
+    }
+
+    private static int indiceEspece(String espece, List<String> especes, List<int[]> effectifs,
+                                    Map<String, Integer> indices, int taille) {
+        String nom = espece == null ? "" : espece;
+        Integer indice = indices.get(nom);
+        if (indice == null) {
+            indice = especes.size();
+            especes.add(nom);
+            effectifs.add(new int[taille]);
+            indices.put(nom, indice);
+        }
+        return indice;
+    }
+
+    private static void ecrireEffectifs(ByteArrayOutputStream sortie, List<String> especes, List<int[]> effectifs) {
+        ecrireVarint(sortie, especes.size());
+        for (int e = 0; e < especes.size(); e++) {
+            byte[] nom = especes.get(e).getBytes(StandardCharsets.UTF_8);
+            ecrireVarint(sortie, nom.length);
+            sortie.write(nom, 0, nom.length);
+
+            // Plages de cellules consécutives de même effectif (le plus souvent 0)
+            int[] parCellule = effectifs.get(e);
+            int debut = 0;
+            while (debut < parCellule.length) {
+                int fin = debut + 1;
+                while (fin < parCellule.length && parCellule[fin] == parCellule[debut]) {
+                    fin++;
+                }
+                ecrireVarint(sortie, fin - debut);
+                ecrireVarint(sortie, parCellule[debut]);
+                debut = fin;
+            }
+        }
+    }
+
+    private static int zigzag(int valeur) {
+        return (valeur << 1) ^ (valeur >> 31);
+    }
+
+    private static void ecrireVarint(ByteArrayOutputStream sortie, int valeur) {
+        while ((valeur & ~0x7F) != 0) {
+            sortie.write((valeur & 0x7F) | 0x80);
+            valeur >>>= 7;
+        }
+        sortie.write(valeur);
+    }
+}
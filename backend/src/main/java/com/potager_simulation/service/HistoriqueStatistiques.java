@@ -0,0 +1,64 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.engine.StatistiquesPotager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statistiques des derniers pas, dans un tampon circulaire de taille fixe :
+ * les pas les plus anciens sont écrasés, la mémoire ne croît pas avec la durée
+ * de la simulation.
+ */
+@Service
+public class HistoriqueStatistiques {
+    private final StatistiquesPotager[] tampon;
+    // Position du plus ancien élément et nombre d'éléments
+    private int debut = 0;
+    private int taille = 0;
+
+    public HistoriqueStatistiques(@Value("${potager.stats.historique:600}") int capacite) {
+        this.tampon = new StatistiquesPotager[Math.max(1, capacite)];
+    }
+
+    public synchronized void ajouter(StatistiquesPotager statistiques) {
+        if (taille < tampon.length) {
+            tampon[(debut + taille) % tampon.length] = statistiques;
+            taille++;
+        } else {
+            tampon[debut] = statistiques;
+            debut = (debut + 1) % tampon.length;
+        }
+    }
+
+    /**
+     * @return les statistiques conservées, du plus ancien pas au plus récent
+     */
+    public synchronized List<StatistiquesPotager> derniers() {
+        return depuis(Integer.MIN_VALUE);
+    }
+
+    /**
+     * @return les statistiques des pas strictement postérieurs à pasExclu, dans l'ordre
+     */
+    public synchronized List<StatistiquesPotager> depuis(int pasExclu) {
+        List<StatistiquesPotager> resultat = new ArrayList<>();
+        for (int k = 0; k < taille; k++) {
+            StatistiquesPotager statistiques = tampon[(debut + k) % tampon.length];
+            if (statistiques.pas() > pasExclu) {
+                resultat.add(statistiques);
+            }
+        }
+        return resultat;
+    }
+
+    public synchronized void vider() {
+        for (int k = 0; k < tampon.length; k++) {
+            tampon[k] = null;
+        }
+        debut = 0;
+        taille = 0;
+    }
+}
@@ -0,0 +1,36 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.engine.FournisseurIdentifiants;
+
+/**
+ * Identifiants des naissances d'un monde qui n'est jamais écrit en base (répliques
+ * de scénarios, sessions) : négatifs, ils ne peuvent se confondre avec ceux de la base
+ */
+class IdentifiantsLocaux implements FournisseurIdentifiants {
+    private long dernier;
+
+    IdentifiantsLocaux() {
+        this(0);
+    }
+
+    /**
+     * @param dernier dernier identifiant attribué, pour reprendre un monde relu
+     */
+    IdentifiantsLocaux(long dernier) {
+        this.dernier = dernier;
+    }
+
+    @Override
+    public long prochainIdPlante() {
+        return --dernier;
+    }
+
+    @Override
+    public long prochainIdInsecte() {
+        return --dernier;
+    }
+
+    long getDernier() {
+        return dernier;
+    }
+}
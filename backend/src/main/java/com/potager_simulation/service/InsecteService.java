@@ -1,33 +1,59 @@
 package com.potager_simulation.service;
 
+import com.potager_simulation.dto.PageDTO;
 import com.potager_simulation.dto.InsecteDTO;
 import com.potager_simulation.model.Insecte;
 import com.potager_simulation.model.Parcelle;
 import com.potager_simulation.repository.InsecteRepository;
 import com.potager_simulation.repository.ParcelleRepository;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class InsecteService {
+    private static final int TAILLE_LOT = 1000;
+
     private final InsecteRepository insecteRepository;
     private final ParcelleRepository parcelleRepository;
+    private final SimulationManager simulationManager;
 
     @Autowired
-    public InsecteService(InsecteRepository insecteRepository, ParcelleRepository parcelleRepository) {
+    public InsecteService(InsecteRepository insecteRepository, ParcelleRepository parcelleRepository,
+                          SimulationManager simulationManager) {
         this.insecteRepository = insecteRepository;
         this.parcelleRepository = parcelleRepository;
+        this.simulationManager = simulationManager;
     }
 
-    public List<InsecteDTO> getAllInsectes() {
-        return insecteRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    /**
+     * @param apres identifiant du dernier élément de la page précédente, null pour la première page
+     */
+    public PageDTO<InsecteDTO> getInsectes(Long apres, int limite) {
+        int taille = PageDTO.taille(limite);
+        return PageDTO.depuis(insecteRepository.findDTOApres(PageDTO.debut(apres), Limit.of(taille + 1)),
+                taille, InsecteDTO::getId);
+    }
+
+    /**
+     * Passe tous les éléments au consommateur, dans l'ordre des identifiants, par lots
+     * lus l'un après l'autre : la mémoire utilisée ne dépend pas du nombre d'éléments
+     */
+    public void parcourirInsectes(Consumer<InsecteDTO> consommateur) {
+        long apres = Long.MIN_VALUE;
+        List<InsecteDTO> lot;
+        do {
+            lot = insecteRepository.findDTOApres(apres, Limit.of(TAILLE_LOT));
+            lot.forEach(consommateur);
+            if (!lot.isEmpty()) {
+                apres = lot.get(lot.size() - 1).getId();
+            }
+        } while (lot.size() == TAILLE_LOT);
     }
 
     public InsecteDTO getInsecteById(Long id) {
@@ -36,41 +62,44 @@ public class InsecteService {
         return convertToDTO(insecte);
     }
 
-    @Transactional
     public InsecteDTO createInsecte(InsecteDTO insecteDTO) {
-        Parcelle parcelle = parcelleRepository.findById(insecteDTO.getParcelleId())
-                .orElseThrow(() -> new EntityNotFoundException("Parcelle non trouvée avec l'ID: " + insecteDTO.getParcelleId()));
-
-        Insecte insecte = new Insecte();
-        insecte.setEspece(insecteDTO.getEspece());
-        insecte.setSexe(insecteDTO.getSexe());
-        insecte.setSante(insecteDTO.getSante());
-        insecte.setMobilite(insecteDTO.getMobilite());
-        insecte.setResistanceInsecticide(insecteDTO.getResistanceInsecticide());
-        insecte.setPassSansManger(0);
-        insecte.setParcelle(parcelle);
-
-        Insecte savedInsecte = insecteRepository.save(insecte);
-        return convertToDTO(savedInsecte);
+        return simulationManager.modifierPotager(false, statut -> {
+            Parcelle parcelle = parcelleRepository.findById(insecteDTO.getParcelleId())
+                    .orElseThrow(() -> new EntityNotFoundException("Parcelle non trouvée avec l'ID: " + insecteDTO.getParcelleId()));
+
+            Insecte insecte = new Insecte();
+            insecte.setEspece(insecteDTO.getEspece());
+            insecte.setSexe(insecteDTO.getSexe());
+            insecte.setSante(insecteDTO.getSante());
+            insecte.setMobilite(insecteDTO.getMobilite());
+            insecte.setResistanceInsecticide(insecteDTO.getResistanceInsecticide());
+            insecte.setPassSansManger(0);
+            insecte.setParcelle(parcelle);
+
+            Insecte savedInsecte = insecteRepository.save(insecte);
+            return convertToDTO(savedInsecte);
+        });
     }
 
-    @Transactional
     public InsecteDTO updateInsecte(Long id, InsecteDTO insecteDTO) {
-        Insecte insecte = insecteRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Insecte non trouvé avec l'ID: " + id));
-
-        // Ne pas mettre à jour la parcelle, cela est géré par la simulation
-        insecte.setSante(insecteDTO.getSante());
-        insecte.setMobilite(insecteDTO.getMobilite());
-        insecte.setResistanceInsecticide(insecteDTO.getResistanceInsecticide());
-
-        Insecte updatedInsecte = insecteRepository.save(insecte);
-        return convertToDTO(updatedInsecte);
+        return simulationManager.modifierPotager(false, statut -> {
+            Insecte insecte = insecteRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Insecte non trouvé avec l'ID: " + id));
+
+            // Ne pas mettre à jour la parcelle, cela est géré par la simulation
+            insecte.setSante(insecteDTO.getSante());
+            insecte.setMobilite(insecteDTO.getMobilite());
+            insecte.setResistanceInsecticide(insecteDTO.getResistanceInsecticide());
+
+            Insecte updatedInsecte = insecteRepository.save(insecte);
+            return convertToDTO(updatedInsecte);
+        });
     }
 
-    @Transactional
     public void deleteInsecte(Long id) {
-        insecteRepository.deleteById(id);
+        simulationManager.modifierPotagerSansResultat(false, statut -> {
+            insecteRepository.deleteById(id);
+        });
     }
 
     public List<InsecteDTO> getInsectesByParcelle(Long parcelleId) {
@@ -82,6 +111,14 @@ public class InsecteService {
                 .collect(Collectors.toList());
     }
 
+    public List<InsecteDTO> getInsectesByEspece(String espece) {
+        return insecteRepository.findDTOByEspece(espece);
+    }
+
+    public List<InsecteDTO> getInsectesBySexe(String sexe) {
+        return insecteRepository.findDTOBySexe(sexe);
+    }
+
     private InsecteDTO convertToDTO(Insecte insecte) {
         InsecteDTO dto = new InsecteDTO();
         dto.setId(insecte.getId());
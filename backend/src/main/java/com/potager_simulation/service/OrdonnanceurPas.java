@@ -0,0 +1,208 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.dto.MesuresOrdonnanceurDTO;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cadence des pas de la simulation, sur un thread dédié ("potager-pas"). Chaque pas a une
+ * échéance ; quand un pas dépasse la période, la politique choisit les échéances suivantes :
+ * <ul>
+ *     <li>RATTRAPER : les pas en retard s'enchaînent sans attente, au plus rattrapageMax,
+ *     les suivants sont abandonnés (comme scheduleAtFixedRate, mais borné)</li>
+ *     <li>SAUTER : les échéances dépassées sont abandonnées, le pas suivant reste sur la grille</li>
+ *     <li>ETIRER : la période s'allonge, le pas suivant démarre dès la fin du précédent</li>
+ * </ul>
+ * La période et la politique se changent pendant la simulation, sans l'arrêter.
+ * Échéances et heures réelles des pas sont comparées pour mesurer le retard.
+ */
+class OrdonnanceurPas {
+    enum Politique {
+        RATTRAPER, SAUTER, ETIRER
+    }
+
+    private final int rattrapageMax;
+
+    private volatile long periodeNs;
+    private volatile Politique politique;
+    // Vrai quand la période a changé : l'échéance est recalculée
+    private volatile boolean periodeModifiee = false;
+    // Thread de la cadence en cours, null à l'arrêt ; un thread qui n'est plus celui-ci s'arrête
+    private volatile Thread thread;
+
+    // Mesures, écrites par le thread des pas
+    private volatile long pasExecutes;
+    private volatile long depassements;
+    private volatile long pasAbandonnes;
+    private volatile long retardDernierNs;
+    private volatile long retardMaxNs;
+    private volatile long retardTotalNs;
+    private volatile long dureeDernierNs;
+    private volatile long dureeMaxNs;
+    private volatile long dureeTotaleNs;
+
+    /**
+     * @param rattrapageMax nombre de pas en retard enchaînés au plus par RATTRAPER
+     */
+    OrdonnanceurPas(int rattrapageMax) {
+        this.rattrapageMax = Math.max(1, rattrapageMax);
+    }
+
+    /**
+     * @param pas exécuté à chaque échéance, sur le thread de la cadence
+     */
+    synchronized void demarrer(Runnable pas, long periodeNs, Politique politique) {
+        if (thread != null) {
+            return;
+        }
+        this.periodeNs = periodeNs;
+        this.politique = politique;
+        reinitialiserMesures();
+        periodeModifiee = false;
+        thread = new Thread(() -> boucle(pas), "potager-pas");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Arrête la cadence et attend la fin du pas en cours
+     */
+    void arreter() {
+        Thread courant;
+        synchronized (this) {
+            courant = thread;
+            thread = null;
+        }
+        if (courant != null && courant != Thread.currentThread()) {
+            LockSupport.unpark(courant);
+            try {
+                courant.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Change la période et, si non null, la politique, sans arrêter la cadence ;
+     * la nouvelle période compte à partir du début du dernier pas
+     */
+    synchronized void modifier(long periodeNs, Politique politique) {
+        this.periodeNs = periodeNs;
+        if (politique != null) {
+            this.politique = politique;
+        }
+        periodeModifiee = true;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void boucle(Runnable pas) {
+        long dernierDebut = System.nanoTime();
+        // Premier pas immédiat
+        long echeance = dernierDebut;
+        while (thread == Thread.currentThread()) {
+            long attente = echeance - System.nanoTime();
+            if (periodeModifiee) {
+                periodeModifiee = false;
+                echeance = dernierDebut + periodeNs;
+                continue;
+            }
+            if (attente > 0) {
+                // Réveillé plus tôt par un changement de période ou l'arrêt
+                LockSupport.parkNanos(this, attente);
+                continue;
+            }
+
+            long debut = System.nanoTime();
+            try {
+                pas.run();
+            } catch (Exception e) {
+                System.err.println("Erreur lors du pas de simulation: " + e.getMessage());
+            }
+            long fin = System.nanoTime();
+            mesurer(debut - echeance, fin - debut);
+            dernierDebut = debut;
+            echeance = prochaineEcheance(echeance, fin);
+        }
+    }
+
+    private long prochaineEcheance(long echeance, long fin) {
+        long periode = periodeNs;
+        long suivante = echeance + periode;
+        if (suivante - fin >= 0) {
+            return suivante;
+        }
+        // Le pas a dépassé la période
+        depassements++;
+        switch (politique) {
+            case RATTRAPER: {
+                long enRetard = (fin - suivante) / periode + 1;
+                if (enRetard <= rattrapageMax) {
+                    return suivante;
+                }
+                // Rafale bornée : les échéances au-delà sont abandonnées
+                long abandonnes = enRetard - rattrapageMax;
+                pasAbandonnes += abandonnes;
+                return suivante + abandonnes * periode;
+            }
+            case SAUTER: {
+                long abandonnes = (fin - suivante) / periode + 1;
+                pasAbandonnes += abandonnes;
+                return suivante + abandonnes * periode;
+            }
+            default:
+                return fin;
+        }
+    }
+
+    private void mesurer(long retardNs, long dureeNs) {
+        pasExecutes++;
+        retardDernierNs = retardNs;
+        retardMaxNs = Math.max(retardMaxNs, retardNs);
+        retardTotalNs += retardNs;
+        dureeDernierNs = dureeNs;
+        dureeMaxNs = Math.max(dureeMaxNs, dureeNs);
+        dureeTotaleNs += dureeNs;
+    }
+
+    private void reinitialiserMesures() {
+        pasExecutes = 0;
+        depassements = 0;
+        pasAbandonnes = 0;
+        retardDernierNs = 0;
+        retardMaxNs = 0;
+        retardTotalNs = 0;
+        dureeDernierNs = 0;
+        dureeMaxNs = 0;
+        dureeTotaleNs = 0;
+    }
+
+    /**
+     * Mesures depuis le dernier démarrage ; le retard est l'écart entre l'échéance
+     * d'un pas et son début réel
+     */
+    MesuresOrdonnanceurDTO getMesures() {
+        long executes = pasExecutes;
+        double diviseur = Math.max(executes, 1);
+        return new MesuresOrdonnanceurDTO(
+                thread != null,
+                periodeNs / 1e6,
+                politique != null ? politique.name() : null,
+                executes,
+                depassements,
+                pasAbandonnes,
+                retardDernierNs / 1e6,
+                retardTotalNs / diviseur / 1e6,
+                retardMaxNs / 1e6,
+                dureeDernierNs / 1e6,
+                dureeTotaleNs / diviseur / 1e6,
+                dureeMaxNs / 1e6);
+    }
+
+    static long enNanos(int delaiMs) {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(1, delaiMs));
+    }
+}
@@ -2,38 +2,63 @@ package com.potager_simulation.service;
 
 import com.potager_simulation.dto.DispositifTraitementDTO;
 import com.potager_simulation.dto.InsecteDTO;
+import com.potager_simulation.dto.PageDTO;
 import com.potager_simulation.dto.ParcelleDTO;
+import com.potager_simulation.dto.ParcelleResumeDTO;
 import com.potager_simulation.dto.PlanteDTO;
+import com.potager_simulation.engine.GrillePotager;
+import com.potager_simulation.engine.IndexParCellule;
+import com.potager_simulation.engine.InstantaneMonde;
 import com.potager_simulation.model.Parcelle;
 import com.potager_simulation.model.Programme;
 import com.potager_simulation.repository.ParcelleRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 public class ParcelleService {
     private final ParcelleRepository parcelleRepository;
+    private final SimulationManager simulationManager;
+    private final ConvertisseurEtat convertisseur;
+    private final long cellulesMax;
 
+    /**
+     * @param cellulesMax cellules au plus de la grille de la simulation (rectangle qui englobe
+     *                    les parcelles, voir {@link GrillePotager})
+     */
     @Autowired
-    public ParcelleService(ParcelleRepository parcelleRepository) {
+    public ParcelleService(ParcelleRepository parcelleRepository, SimulationManager simulationManager,
+                           ConvertisseurEtat convertisseur,
+                           @Value("${potager.grille.cellules-max:1000000}") long cellulesMax) {
         this.parcelleRepository = parcelleRepository;
+        this.simulationManager = simulationManager;
+        this.convertisseur = convertisseur;
+        this.cellulesMax = cellulesMax;
     }
 
+    @Transactional
     public List<ParcelleDTO> getAllParcelles() {
-        return parcelleRepository.findAll().stream()
+        return chargerToutes().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Transactional
     public ParcelleDTO getParcelleById(Long id) {
-        Parcelle parcelle = parcelleRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Parcelle non trouvée avec l'ID: " + id));
-        return convertToDTO(parcelle);
+        List<Parcelle> parcelles = chargerParIds(List.of(id));
+        if (parcelles.isEmpty()) {
+            throw new EntityNotFoundException("Parcelle non trouvée avec l'ID: " + id);
+        }
+        return convertToDTO(parcelles.get(0));
     }
 
     public ParcelleDTO getParcelleByCoordinates(int x, int y) {
@@ -44,58 +69,126 @@ public class ParcelleService {
         return convertToDTO(parcelle);
     }
 
-    @Transactional
-    public ParcelleDTO createParcelle(ParcelleDTO parcelleDTO) {
-        // Vérifier si une parcelle existe déjà à ces coordonnées
-        if (parcelleRepository.findByXAndY(parcelleDTO.getX(), parcelleDTO.getY()) != null) {
-            throw new IllegalStateException("Une parcelle existe déjà aux coordonnées: (" + parcelleDTO.getX() + "," + parcelleDTO.getY() + ")");
+    /**
+     * Parcelles du rectangle [x0, x1] x [y0, y1] (bornes incluses) avec leurs plantes et insectes,
+     * lues dans l'état du dernier pas : seules les cellules du rectangle sont parcourues.
+     * Les index par cellule de l'état sont construits par son premier lecteur, en O(plantes
+     * + insectes) ; c'est souvent le thread de diffusion, sinon la première requête après
+     * le pas la paie. Les lectures suivantes du même état ne coûtent que le rectangle.
+     */
+    public List<ParcelleDTO> getRegion(int x0, int y0, int x1, int y1) {
+        if (x1 < x0 || y1 < y0) {
+            throw new IllegalArgumentException("Rectangle vide: (" + x0 + "," + y0 + ") - (" + x1 + "," + y1 + ")");
         }
+        InstantaneMonde etat = simulationManager.getInstantane();
+        IndexParCellule plantes = etat.indexerPlantes();
+        IndexParCellule insectes = etat.indexerInsectes();
+        int[] cellules = etat.getGrille().cellulesDansRectangle(x0, y0, x1, y1);
+        List<ParcelleDTO> parcelles = new ArrayList<>(cellules.length);
+        for (int cellule : cellules) {
+            parcelles.add(convertisseur.convertParcelleToDTO(etat, cellule, plantes, insectes));
+        }
+        return parcelles;
+    }
 
-        Parcelle parcelle = new Parcelle();
-        parcelle.setX(parcelleDTO.getX());
-        parcelle.setY(parcelleDTO.getY());
-        parcelle.setTauxHumidite(parcelleDTO.getTauxHumidite());
+    /**
+     * Toutes les parcelles avec leurs plantes, insectes, dispositifs et programmes,
+     * en trois requêtes quelle que soit la taille du potager. À appeler dans une transaction :
+     * les trois requêtes complètent les mêmes instances.
+     */
+    private List<Parcelle> chargerToutes() {
+        parcelleRepository.findAllFetchDispositifs();
+        parcelleRepository.findAllFetchPlantes();
+        return parcelleRepository.findAllFetchInsectes();
+    }
 
-        Parcelle savedParcelle = parcelleRepository.save(parcelle);
-        return convertToDTO(savedParcelle);
+    /**
+     * Comme {@link #chargerToutes()}, pour quelques parcelles
+     */
+    private List<Parcelle> chargerParIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        parcelleRepository.findByIdInFetchDispositifs(ids);
+        parcelleRepository.findByIdInFetchPlantes(ids);
+        return parcelleRepository.findByIdInFetchInsectes(ids);
+    }
+
+    public ParcelleDTO createParcelle(ParcelleDTO parcelleDTO) {
+        return simulationManager.modifierPotager(true, statut -> {
+            // Vérifier si une parcelle existe déjà à ces coordonnées
+            if (parcelleRepository.findByXAndY(parcelleDTO.getX(), parcelleDTO.getY()) != null) {
+                throw new IllegalStateException("Une parcelle existe déjà aux coordonnées: (" + parcelleDTO.getX() + "," + parcelleDTO.getY() + ")");
+            }
+            verifierEtendue(parcelleDTO.getX(), parcelleDTO.getY());
+
+            Parcelle parcelle = new Parcelle();
+            parcelle.setX(parcelleDTO.getX());
+            parcelle.setY(parcelleDTO.getY());
+            parcelle.setTauxHumidite(parcelleDTO.getTauxHumidite());
+
+            Parcelle savedParcelle = parcelleRepository.save(parcelle);
+            return convertToDTO(savedParcelle);
+        });
     }
 
-    @Transactional
     public ParcelleDTO updateParcelle(Long id, ParcelleDTO parcelleDTO) {
-        Parcelle parcelle = parcelleRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Parcelle non trouvée avec l'ID: " + id));
+        return simulationManager.modifierPotager(false, statut -> {
+            Parcelle parcelle = parcelleRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Parcelle non trouvée avec l'ID: " + id));
 
-        // Seul le taux d'humidité peut être mis à jour manuellement
-        parcelle.setTauxHumidite(parcelleDTO.getTauxHumidite());
+            // Seul le taux d'humidité peut être mis à jour manuellement
+            parcelle.setTauxHumidite(parcelleDTO.getTauxHumidite());
 
-        Parcelle updatedParcelle = parcelleRepository.save(parcelle);
-        return convertToDTO(updatedParcelle);
+            Parcelle updatedParcelle = parcelleRepository.save(parcelle);
+            return convertToDTO(updatedParcelle);
+        });
     }
 
-    @Transactional
     public void deleteParcelle(Long id) {
-        parcelleRepository.deleteById(id);
+        simulationManager.modifierPotagerSansResultat(true, statut -> {
+            parcelleRepository.deleteById(id);
+        });
     }
 
-    public List<ParcelleDTO> getParcellesWithPlantes() {
-        return parcelleRepository.findAll().stream()
-                .filter(p -> !p.getPlantes().isEmpty())
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    /**
+     * Refuse une parcelle qui étendrait la grille de la simulation au-delà de cellulesMax
+     */
+    private void verifierEtendue(int x, int y) {
+        Object[] etendue = parcelleRepository.findEtendue().get(0);
+        int minX = x, minY = y, maxX = x, maxY = y;
+        if (etendue[0] != null) {
+            minX = Math.min(minX, (Integer) etendue[0]);
+            minY = Math.min(minY, (Integer) etendue[1]);
+            maxX = Math.max(maxX, (Integer) etendue[2]);
+            maxY = Math.max(maxY, (Integer) etendue[3]);
+        }
+        long cellules = GrillePotager.nombreCellules(minX, minY, maxX, maxY);
+        if (cellules > Math.min(cellulesMax, GrillePotager.CELLULES_MAX)) {
+            throw new IllegalArgumentException("La parcelle (" + x + "," + y + ") étendrait le potager à "
+                    + cellules + " cellules, au plus " + Math.min(cellulesMax, GrillePotager.CELLULES_MAX));
+        }
     }
 
-    public List<ParcelleDTO> getParcellesWithInsectes() {
-        return parcelleRepository.findAll().stream()
-                .filter(p -> !p.getInsectes().isEmpty())
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    /**
+     * @param apres identifiant de la dernière parcelle de la page précédente, null pour la première page
+     */
+    public PageDTO<ParcelleResumeDTO> getParcellesWithPlantes(Long apres, int limite) {
+        int taille = PageDTO.taille(limite);
+        return PageDTO.depuis(parcelleRepository.findResumesAvecPlantes(PageDTO.debut(apres), Limit.of(taille + 1)),
+                taille, ParcelleResumeDTO::getId);
     }
 
-    public List<ParcelleDTO> getParcellesWithDispositifs() {
-        return parcelleRepository.findAll().stream()
-                .filter(p -> p.getDispositifTraitement() != null)
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public PageDTO<ParcelleResumeDTO> getParcellesWithInsectes(Long apres, int limite) {
+        int taille = PageDTO.taille(limite);
+        return PageDTO.depuis(parcelleRepository.findResumesAvecInsectes(PageDTO.debut(apres), Limit.of(taille + 1)),
+                taille, ParcelleResumeDTO::getId);
+    }
+
+    public PageDTO<ParcelleResumeDTO> getParcellesWithDispositifs(Long apres, int limite) {
+        int taille = PageDTO.taille(limite);
+        return PageDTO.depuis(parcelleRepository.findResumesAvecDispositifs(PageDTO.debut(apres), Limit.of(taille + 1)),
+                taille, ParcelleResumeDTO::getId);
     }
 
     private ParcelleDTO convertToDTO(Parcelle parcelle) {
@@ -165,12 +258,13 @@ public class ParcelleService {
         return dto;
     }
     // Dans ParcelleService.java
+    @Transactional
     public List<ParcelleDTO> getParcellesVoisines(Long id) {
         Parcelle parcelle = parcelleRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Parcelle non trouvée avec l'ID: " + id));
 
-        List<Parcelle> voisines = parcelleRepository.findParcellesAdjacentes(parcelle.getX(), parcelle.getY());
-        return voisines.stream()
+        List<Long> idsVoisines = parcelleRepository.findIdsParcellesAdjacentes(parcelle.getX(), parcelle.getY());
+        return chargerParIds(idsVoisines).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
@@ -1,33 +1,59 @@
 package com.potager_simulation.service;
 
+import com.potager_simulation.dto.PageDTO;
 import com.potager_simulation.dto.PlanteDTO;
 import com.potager_simulation.model.Parcelle;
 import com.potager_simulation.model.Plante;
 import com.potager_simulation.repository.ParcelleRepository;
 import com.potager_simulation.repository.PlanteRepository;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class PlanteService {
+    private static final int TAILLE_LOT = 1000;
+
     private final PlanteRepository planteRepository;
     private final ParcelleRepository parcelleRepository;
+    private final SimulationManager simulationManager;
 
     @Autowired
-    public PlanteService(PlanteRepository planteRepository, ParcelleRepository parcelleRepository) {
+    public PlanteService(PlanteRepository planteRepository, ParcelleRepository parcelleRepository,
+                         SimulationManager simulationManager) {
         this.planteRepository = planteRepository;
         this.parcelleRepository = parcelleRepository;
+        this.simulationManager = simulationManager;
     }
 
-    public List<PlanteDTO> getAllPlantes() {
-        return planteRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    /**
+     * @param apres identifiant du dernier élément de la page précédente, null pour la première page
+     */
+    public PageDTO<PlanteDTO> getPlantes(Long apres, int limite) {
+        int taille = PageDTO.taille(limite);
+        return PageDTO.depuis(planteRepository.findDTOApres(PageDTO.debut(apres), Limit.of(taille + 1)),
+                taille, PlanteDTO::getId);
+    }
+
+    /**
+     * Passe tous les éléments au consommateur, dans l'ordre des identifiants, par lots
+     * lus l'un après l'autre : la mémoire utilisée ne dépend pas du nombre d'éléments
+     */
+    public void parcourirPlantes(Consumer<PlanteDTO> consommateur) {
+        long apres = Long.MIN_VALUE;
+        List<PlanteDTO> lot;
+        do {
+            lot = planteRepository.findDTOApres(apres, Limit.of(TAILLE_LOT));
+            lot.forEach(consommateur);
+            if (!lot.isEmpty()) {
+                apres = lot.get(lot.size() - 1).getId();
+            }
+        } while (lot.size() == TAILLE_LOT);
     }
 
     public PlanteDTO getPlanteById(Long id) {
@@ -36,41 +62,44 @@ public class PlanteService {
         return convertToDTO(plante);
     }
 
-    @Transactional
     public PlanteDTO createPlante(PlanteDTO planteDTO) {
-        Parcelle parcelle = parcelleRepository.findById(planteDTO.getParcelleId())
-                .orElseThrow(() -> new EntityNotFoundException("Parcelle non trouvée avec l'ID: " + planteDTO.getParcelleId()));
-
-        Plante plante = new Plante();
-        plante.setEspece(planteDTO.getEspece());
-        plante.setAge(planteDTO.getAge());
-        plante.setAgeMaturite(planteDTO.getAgeMaturite());
-        plante.setEstDrageonnante(planteDTO.isEstDrageonnante());
-        plante.setProbabiliteColonisation(planteDTO.getProbabiliteColonisation());
-        plante.setParcelle(parcelle);
-
-        Plante savedPlante = planteRepository.save(plante);
-        return convertToDTO(savedPlante);
+        return simulationManager.modifierPotager(false, statut -> {
+            Parcelle parcelle = parcelleRepository.findById(planteDTO.getParcelleId())
+                    .orElseThrow(() -> new EntityNotFoundException("Parcelle non trouvée avec l'ID: " + planteDTO.getParcelleId()));
+
+            Plante plante = new Plante();
+            plante.setEspece(planteDTO.getEspece());
+            plante.setAge(planteDTO.getAge());
+            plante.setAgeMaturite(planteDTO.getAgeMaturite());
+            plante.setEstDrageonnante(planteDTO.isEstDrageonnante());
+            plante.setProbabiliteColonisation(planteDTO.getProbabiliteColonisation());
+            plante.setParcelle(parcelle);
+
+            Plante savedPlante = planteRepository.save(plante);
+            return convertToDTO(savedPlante);
+        });
     }
 
-    @Transactional
     public PlanteDTO updatePlante(Long id, PlanteDTO planteDTO) {
-        Plante plante = planteRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Plante non trouvée avec l'ID: " + id));
-
-        // Mettre à jour uniquement les propriétés autorisées (pas la parcelle)
-        plante.setAge(planteDTO.getAge());
-        plante.setAgeMaturite(planteDTO.getAgeMaturite());
-        plante.setEstDrageonnante(planteDTO.isEstDrageonnante());
-        plante.setProbabiliteColonisation(planteDTO.getProbabiliteColonisation());
-
-        Plante updatedPlante = planteRepository.save(plante);
-        return convertToDTO(updatedPlante);
+        return simulationManager.modifierPotager(false, statut -> {
+            Plante plante = planteRepository.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Plante non trouvée avec l'ID: " + id));
+
+            // Mettre à jour uniquement les propriétés autorisées (pas la parcelle)
+            plante.setAge(planteDTO.getAge());
+            plante.setAgeMaturite(planteDTO.getAgeMaturite());
+            plante.setEstDrageonnante(planteDTO.isEstDrageonnante());
+            plante.setProbabiliteColonisation(planteDTO.getProbabiliteColonisation());
+
+            Plante updatedPlante = planteRepository.save(plante);
+            return convertToDTO(updatedPlante);
+        });
     }
 
-    @Transactional
     public void deletePlante(Long id) {
-        planteRepository.deleteById(id);
+        simulationManager.modifierPotagerSansResultat(false, statut -> {
+            planteRepository.deleteById(id);
+        });
     }
 
     public List<PlanteDTO> getPlantesByParcelle(Long parcelleId) {
@@ -89,10 +118,15 @@ public class PlanteService {
     }
 
     public List<PlanteDTO> getPlantesMatures() {
-        return planteRepository.findAll().stream()
-                .filter(Plante::estMature)
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return planteRepository.findDTOMatures();
+    }
+
+    public List<PlanteDTO> getPlantesDrageonnantes() {
+        return planteRepository.findDTODrageonnantes();
+    }
+
+    public List<Object[]> countPlantesByEspece() {
+        return planteRepository.countParEspece();
     }
 
     private PlanteDTO convertToDTO(Plante plante) {
@@ -0,0 +1,197 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.dto.ProgrammeDTO;
+import com.potager_simulation.dto.ResultatScenariosDTO;
+import com.potager_simulation.dto.ScenarioDTO;
+import com.potager_simulation.engine.AleaSimulation;
+import com.potager_simulation.engine.ExecutionParallele;
+import com.potager_simulation.engine.MondeSimulation;
+import com.potager_simulation.engine.MoteurSimulation;
+import com.potager_simulation.engine.StatistiquesPotager;
+import com.potager_simulation.model.DispositifTraitement;
+import com.potager_simulation.model.Parcelle;
+import com.potager_simulation.model.Programme;
+import com.potager_simulation.model.enums.TypeTraitement;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scénarios de Monte-Carlo : le potager en mémoire est copié en N répliques isolées,
+ * simulées en parallèle (une tâche par réplique, chacune séquentielle) sans toucher
+ * à la simulation en cours ni à la base. Les résultats finaux sont agrégés en distributions.
+ */
+@Service
+public class ScenariosSimulation {
+    private static final int REPLIQUES_MAX = 10_000;
+
+    private final SimulationManager simulationManager;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelisme nombre de répliques simulées en même temps ; 0 pour le nombre de processeurs
+     */
+    @Autowired
+    public ScenariosSimulation(
+            SimulationManager simulationManager,
+            @Value("${potager.scenarios.parallelisme:0}") int parallelisme) {
+        this.simulationManager = simulationManager;
+        this.pool = new ForkJoinPool(parallelisme > 0 ? parallelisme : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void arreterPool() {
+        pool.shutdown();
+    }
+
+    public ResultatScenariosDTO executer(ScenarioDTO scenario) {
+        if (scenario.getRepliques() <= 0 || scenario.getRepliques() > REPLIQUES_MAX) {
+            throw new IllegalArgumentException("Nombre de répliques hors de [1, " + REPLIQUES_MAX + "]: "
+                    + scenario.getRepliques());
+        }
+        if (scenario.getPas() <= 0) {
+            throw new IllegalArgumentException("Le nombre de pas doit être positif: " + scenario.getPas());
+        }
+
+        // Copie de référence, prise sous le verrou de la simulation ; les répliques en sont copiées
+        SimulationManager.CopieMonde reference = simulationManager.copierMonde(new IdentifiantsLocaux());
+        remplacerProgrammes(reference.monde(), scenario.getProgrammes());
+
+        SplittableRandom tirage = scenario.getGraine() != null
+                ? new SplittableRandom(scenario.getGraine())
+                : new SplittableRandom();
+        List<Long> graines = new ArrayList<>(scenario.getRepliques());
+        List<Callable<StatistiquesPotager>> taches = new ArrayList<>(scenario.getRepliques());
+        for (int r = 0; r < scenario.getRepliques(); r++) {
+            long graine = tirage.nextLong();
+            graines.add(graine);
+            taches.add(() -> simulerReplique(reference, graine, scenario.getPas()));
+        }
+
+        long debut = System.nanoTime();
+        List<StatistiquesPotager> resultats = new ArrayList<>(taches.size());
+        try {
+            for (Future<StatistiquesPotager> resultat : pool.invokeAll(taches)) {
+                resultats.add(resultat.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Scénario interrompu", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Erreur dans une réplique du scénario", e.getCause());
+        }
+
+        ResultatScenariosDTO dto = agreger(resultats);
+        dto.setRepliques(scenario.getRepliques());
+        dto.setPasDebut(reference.pas());
+        dto.setPasFin(reference.pas() + scenario.getPas());
+        dto.setDureeMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - debut));
+        dto.setGraines(graines);
+        return dto;
+    }
+
+    private static StatistiquesPotager simulerReplique(SimulationManager.CopieMonde reference, long graine, int nombrePas) {
+        MondeSimulation monde = reference.monde().copier(new IdentifiantsLocaux());
+        MoteurSimulation moteur = new MoteurSimulation(monde, new AleaSimulation(graine), ExecutionParallele.sequentielle());
+        int pas = reference.pas();
+        for (int k = 0; k < nombrePas; k++) {
+            moteur.executerPas(++pas);
+        }
+        return monde.figer(pas).getStatistiques();
+    }
+
+    /**
+     * Remplace les programmes des dispositifs cités par ceux du scénario (dans la copie seulement)
+     */
+    private static void remplacerProgrammes(MondeSimulation monde, List<ProgrammeDTO> programmes) {
+        if (programmes == null || programmes.isEmpty()) {
+            return;
+        }
+        Map<Long, DispositifTraitement> dispositifs = new HashMap<>();
+        for (Parcelle parcelle : monde.getParcellesAvecDispositif()) {
+            dispositifs.put(parcelle.getDispositifTraitement().getId(), parcelle.getDispositifTraitement());
+        }
+        Map<Long, List<Programme>> remplacements = new HashMap<>();
+        for (ProgrammeDTO dto : programmes) {
+            DispositifTraitement dispositif = dispositifs.get(dto.getDispositifId());
+            if (dispositif == null) {
+                throw new EntityNotFoundException("Dispositif non trouvé avec l'ID: " + dto.getDispositifId());
+            }
+            Programme programme = new Programme();
+            programme.setInstantDebut(dto.getInstantDebut());
+            programme.setDuree(dto.getDuree());
+            programme.setTypeTraitement(TypeTraitement.valueOf(dto.getTypeTraitement()));
+            programme.setDispositifTraitement(dispositif);
+            remplacements.computeIfAbsent(dispositif.getId(), id -> new ArrayList<>()).add(programme);
+        }
+        remplacements.forEach((id, liste) -> dispositifs.get(id).setProgrammes(liste));
+    }
+
+    private static ResultatScenariosDTO agreger(List<StatistiquesPotager> resultats) {
+        int n = resultats.size();
+        double[] insectes = new double[n];
+        double[] plantes = new double[n];
+        double[] matures = new double[n];
+        double[] humidite = new double[n];
+        TreeSet<String> especes = new TreeSet<>();
+        for (int r = 0; r < n; r++) {
+            StatistiquesPotager statistiques = resultats.get(r);
+            insectes[r] = statistiques.nombreInsectes();
+            plantes[r] = statistiques.nombrePlantes();
+            matures[r] = statistiques.plantesMatures();
+            humidite[r] = statistiques.humiditeMoyenne();
+            especes.addAll(statistiques.insectesParEspece().keySet());
+        }
+
+        // Une espèce éteinte dans une réplique y compte pour 0
+        Map<String, ResultatScenariosDTO.Distribution> parEspece = new TreeMap<>();
+        for (String espece : especes) {
+            double[] effectifs = new double[n];
+            for (int r = 0; r < n; r++) {
+                effectifs[r] = resultats.get(r).insectesParEspece().getOrDefault(espece, 0);
+            }
+            parEspece.put(espece, distribution(effectifs));
+        }
+
+        ResultatScenariosDTO dto = new ResultatScenariosDTO();
+        dto.setNombreInsectes(distribution(insectes));
+        dto.setInsectesParEspece(parEspece);
+        dto.setNombrePlantes(distribution(plantes));
+        dto.setPlantesMatures(distribution(matures));
+        dto.setHumiditeMoyenne(distribution(humidite));
+        return dto;
+    }
+
+    private static ResultatScenariosDTO.Distribution distribution(double[] valeurs) {
+        double[] tries = valeurs.clone();
+        Arrays.sort(tries);
+        return new ResultatScenariosDTO.Distribution(
+                Arrays.stream(tries).average().orElse(0),
+                tries[0], quantile(tries, 0.1), quantile(tries, 0.5), quantile(tries, 0.9),
+                tries[tries.length - 1]);
+    }
+
+    // Interpolation linéaire entre les deux rangs encadrants
+    private static double quantile(double[] tries, double q) {
+        double rang = q * (tries.length - 1);
+        int bas = (int) Math.floor(rang);
+        int haut = Math.min(bas + 1, tries.length - 1);
+        return tries[bas] + (rang - bas) * (tries[haut] - tries[bas]);
+    }
+}
@@ -0,0 +1,44 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.engine.InstantaneMonde;
+import com.potager_simulation.engine.MoteurSimulation;
+import com.potager_simulation.engine.StatistiquesPotager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * État d'une session, modifié sous le verrou de la session (voir {@link SessionsSimulation}).
+ * Une session évincée ne garde que son identifiant et ses compteurs : le monde est sur disque.
+ */
+class SessionSimulation {
+    final String id;
+    int pas;
+    long graine;
+    IdentifiantsLocaux identifiants;
+    // Null si la session est évincée
+    MoteurSimulation moteur;
+    InstantaneMonde instantane;
+    volatile boolean enCours;
+    ScheduledFuture<?> tache;
+    volatile long dernierAccesMs = System.currentTimeMillis();
+    boolean supprimee;
+
+    // Diffusion sur les topics de la session
+    InstantaneMonde dernierEnvoye;
+    long sequence;
+    int messagesDepuisImageCle;
+    long prochainEnvoiNs = System.nanoTime();
+    final List<StatistiquesPotager> statistiquesEnAttente = new ArrayList<>();
+
+    SessionSimulation(String id, int pas, long graine) {
+        this.id = id;
+        this.pas = pas;
+        this.graine = graine;
+    }
+
+    boolean estEnMemoire() {
+        return moteur != null;
+    }
+}
@@ -0,0 +1,478 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.dto.EtatPotagerDTO;
+import com.potager_simulation.dto.MiseAJourPotagerDTO;
+import com.potager_simulation.dto.SessionDTO;
+import com.potager_simulation.engine.AleaSimulation;
+import com.potager_simulation.engine.ExecutionParallele;
+import com.potager_simulation.engine.InstantaneMonde;
+import com.potager_simulation.engine.MondeSimulation;
+import com.potager_simulation.engine.MoteurSimulation;
+import com.potager_simulation.engine.StatistiquesPotager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sessions de simulation : chaque session est un potager privé, copié du potager
+ * partagé à sa création, avec son propre moteur, son pas et ses topics
+ * /topic/sessions/{id}/potager-updates et /topic/sessions/{id}/stats.
+ * Le potager d'une session vit en mémoire et n'est jamais écrit dans les tables.
+ * <p>
+ * Les pas de toutes les sessions s'exécutent sur un même pool borné : chaque pas est une
+ * tâche, replanifiée après la fin du précédent, le pool sert les tâches dans l'ordre de
+ * leur échéance. Une session lente retarde ses propres pas, pas ceux des autres.
+ * <p>
+ * Une session arrêtée et sans accès depuis potager.sessions.inactivite-s est écrite sur
+ * disque puis libérée ; elle est relue au prochain accès. Les sessions en mémoire sont
+ * aussi écrites à l'arrêt de l'application et retrouvées au démarrage.
+ */
+@Service
+public class SessionsSimulation {
+    public static final String PREFIXE_TOPIC = "/topic/sessions/";
+    private static final String EXTENSION = ".session";
+    private static final int VERSION_FICHIER = 1;
+
+    private final Map<String, SessionSimulation> sessions = new ConcurrentHashMap<>();
+
+    private final SimulationManager simulationManager;
+    private final SimulationEventPublisher eventPublisher;
+    private final ConvertisseurEtat convertisseur;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final AbonnementsFlux abonnements;
+    private final ScheduledThreadPoolExecutor pool;
+    private final Path repertoire;
+    private final long inactiviteMs;
+    private final int nombreMax;
+    private final int intervalleImageCle;
+    private final long intervalleEnvoiNs;
+
+    /**
+     * @param threads nombre de pas de sessions exécutés en même temps ; 0 pour le nombre de processeurs
+     */
+    @Autowired
+    public SessionsSimulation(
+            SimulationManager simulationManager,
+            SimulationEventPublisher eventPublisher,
+            ConvertisseurEtat convertisseur,
+            SimpMessagingTemplate messagingTemplate,
+            AbonnementsFlux abonnements,
+            @Value("${potager.sessions.threads:0}") int threads,
+            @Value("${potager.sessions.repertoire:${java.io.tmpdir}/potager-sessions}") String repertoire,
+            @Value("${potager.sessions.inactivite-s:600}") long inactiviteS,
+            @Value("${potager.sessions.max:5000}") int nombreMax,
+            @Value("${potager.websocket.intervalle-image-cle:50}") int intervalleImageCle,
+            @Value("${potager.websocket.frequence-max-hz:10}") double frequence) {
+        this.simulationManager = simulationManager;
+        this.eventPublisher = eventPublisher;
+        this.convertisseur = convertisseur;
+        this.messagingTemplate = messagingTemplate;
+        this.abonnements = abonnements;
+        this.repertoire = Paths.get(repertoire);
+        this.inactiviteMs = TimeUnit.SECONDS.toMillis(inactiviteS);
+        this.nombreMax = nombreMax;
+        this.intervalleImageCle = intervalleImageCle;
+        this.intervalleEnvoiNs = (long) (TimeUnit.SECONDS.toNanos(1) / frequence);
+
+        AtomicInteger numero = new AtomicInteger();
+        this.pool = new ScheduledThreadPoolExecutor(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                tache -> {
+                    Thread thread = new Thread(tache, "potager-session-" + numero.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.pool.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Retrouve les sessions écrites sur disque, sans les charger
+     */
+    @PostConstruct
+    public void retrouverSessions() throws IOException {
+        Files.createDirectories(repertoire);
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(repertoire, "*" + EXTENSION)) {
+            for (Path fichier : fichiers) {
+                String nom = fichier.getFileName().toString();
+                String id = nom.substring(0, nom.length() - EXTENSION.length());
+                try (DataInputStream entree = new DataInputStream(new BufferedInputStream(Files.newInputStream(fichier)))) {
+                    UUID.fromString(id);
+                    sessions.put(id, lireEntete(id, entree));
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Session illisible ignorée: " + fichier + " (" + e.getMessage() + ")");
+                }
+            }
+        }
+        if (!sessions.isEmpty()) {
+            System.out.println(sessions.size() + " session(s) retrouvée(s) dans " + repertoire);
+        }
+
+        long periode = Math.max(1000, inactiviteMs / 4);
+        pool.scheduleWithFixedDelay(this::evincerInactives, periode, periode, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void arreterSessions() throws InterruptedException {
+        pool.shutdownNow();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+        for (SessionSimulation session : sessions.values()) {
+            synchronized (session) {
+                session.enCours = false;
+                if (session.estEnMemoire() && !session.supprimee) {
+                    try {
+                        ecrire(session);
+                    } catch (IOException e) {
+                        System.err.println("Erreur lors de l'écriture de la session " + session.id + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Crée une session à partir du potager partagé dans son état actuel
+     *
+     * @param graine graine du générateur de la session, tirée au hasard si null
+     */
+    public SessionDTO creer(Long graine) {
+        if (sessions.size() >= nombreMax) {
+            throw new IllegalStateException("Nombre maximal de sessions atteint: " + nombreMax);
+        }
+        IdentifiantsLocaux identifiants = new IdentifiantsLocaux();
+        SimulationManager.CopieMonde copie = simulationManager.copierMonde(identifiants);
+        SessionSimulation session = new SessionSimulation(UUID.randomUUID().toString(), copie.pas(),
+                graine != null ? graine : new SplittableRandom().nextLong());
+        session.identifiants = identifiants;
+        session.moteur = new MoteurSimulation(copie.monde(), new AleaSimulation(session.graine),
+                ExecutionParallele.sequentielle());
+        sessions.put(session.id, session);
+        return decrire(session);
+    }
+
+    public List<SessionDTO> lister() {
+        List<SessionDTO> resultat = new ArrayList<>(sessions.size());
+        for (SessionSimulation session : sessions.values()) {
+            resultat.add(decrire(session));
+        }
+        resultat.sort(Comparator.comparing(SessionDTO::getId));
+        return resultat;
+    }
+
+    public SessionDTO getSession(String id) {
+        return decrire(obtenir(id));
+    }
+
+    public void supprimer(String id) {
+        SessionSimulation session = obtenir(id);
+        synchronized (session) {
+            arreterTache(session);
+            session.supprimee = true;
+            sessions.remove(id);
+            try {
+                Files.deleteIfExists(fichier(id));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @param graine nouvelle graine de la session, null pour conserver la sienne
+     */
+    public void demarrer(String id, int delaiEntrePassMs, Long graine) {
+        SessionSimulation session = obtenir(id);
+        synchronized (session) {
+            if (session.enCours) {
+                return;
+            }
+            charger(session);
+            if (graine != null) {
+                session.graine = graine;
+                session.moteur = new MoteurSimulation(session.moteur.getMonde(), new AleaSimulation(graine),
+                        ExecutionParallele.sequentielle());
+            }
+            // Au moins 1 ms, comme OrdonnanceurPas.enNanos
+            long delai = Math.max(1, delaiEntrePassMs);
+            // En cours seulement une fois planifiée : un refus du pool laisse la session arrêtée
+            session.tache = pool.scheduleWithFixedDelay(() -> executerPasPlanifie(session),
+                    delai, delai, TimeUnit.MILLISECONDS);
+            session.enCours = true;
+        }
+    }
+
+    public void arreter(String id) {
+        SessionSimulation session = obtenir(id);
+        synchronized (session) {
+            if (!session.enCours) {
+                return;
+            }
+            arreterTache(session);
+            // Le dernier pas a pu être retenu par la limite de fréquence : les clients voient l'arrêt
+            if (session.instantane != null) {
+                diffuser(session, session.instantane, true);
+            }
+        }
+    }
+
+    public void executerPas(String id) {
+        SessionSimulation session = obtenir(id);
+        synchronized (session) {
+            executerPas(session);
+        }
+    }
+
+    public EtatPotagerDTO getEtat(String id) {
+        SessionSimulation session = obtenir(id);
+        InstantaneMonde etat;
+        synchronized (session) {
+            etat = instantane(session);
+        }
+        // La conversion se fait hors verrou, sur l'état figé
+        return convertisseur.creerEtatPotagerDTO(etat, session.enCours);
+    }
+
+    public StatistiquesPotager getStatistiques(String id) {
+        SessionSimulation session = obtenir(id);
+        synchronized (session) {
+            return instantane(session).getStatistiques();
+        }
+    }
+
+    /**
+     * Comme {@link SimulationEventPublisher#envoyerImageCle(String, InstantaneMonde, boolean)} :
+     * l'image de référence des prochaines différences de la session, pour le seul client
+     * qui la demande, sur /user/queue/sessions/{id}/potager-updates
+     */
+    public void envoyerImageCle(String id, String sessionStompId) {
+        SessionSimulation session = obtenir(id);
+        synchronized (session) {
+            InstantaneMonde etat = instantane(session);
+            if (!etat.memeMonde(session.dernierEnvoye)) {
+                session.dernierEnvoye = etat;
+                session.sequence++;
+                session.messagesDepuisImageCle = 0;
+            }
+            eventPublisher.envoyerASession(sessionStompId, queueImageCle(id),
+                    eventPublisher.creerImageCle(session.dernierEnvoye, session.sequence, session.enCours));
+        }
+    }
+
+    public static String queueImageCle(String id) {
+        return "/queue/sessions/" + id + "/potager-updates";
+    }
+
+    public static String topic(String id, String nom) {
+        return PREFIXE_TOPIC + id + "/" + nom;
+    }
+
+    private void executerPasPlanifie(SessionSimulation session) {
+        synchronized (session) {
+            if (!session.enCours || session.supprimee) {
+                return;
+            }
+            try {
+                executerPas(session);
+            } catch (RuntimeException e) {
+                // Une exception annulerait la tâche sans bruit : la session est arrêtée
+                System.err.println("Erreur dans la session " + session.id + ", arrêtée: " + e.getMessage());
+                arreterTache(session);
+            }
+        }
+    }
+
+    // Sous le verrou de la session
+    private void executerPas(SessionSimulation session) {
+        MoteurSimulation moteur = charger(session);
+        session.pas++;
+        moteur.executerPas(session.pas);
+        // Le monde de la session n'est jamais écrit en base
+        moteur.getMonde().oublierModifications();
+        session.instantane = moteur.getMonde().figer(session.pas);
+        diffuser(session, session.instantane, false);
+    }
+
+    private void arreterTache(SessionSimulation session) {
+        if (session.tache != null) {
+            session.tache.cancel(false);
+            session.tache = null;
+        }
+        session.enCours = false;
+    }
+
+    /**
+     * Comme {@link SimulationEventPublisher} : des différences entre deux images complètes,
+     * au plus potager.websocket.frequence-max-hz fois par seconde, et seulement s'il y a des abonnés
+     */
+    private void diffuser(SessionSimulation session, InstantaneMonde etat, boolean forcer) {
+        String topicStats = topic(session.id, "stats");
+        boolean abonnesStats = abonnements.aDesAbonnes(topicStats);
+        if (abonnesStats && !forcer) {
+            session.statistiquesEnAttente.add(etat.getStatistiques());
+        }
+        long maintenant = System.nanoTime();
+        if (!forcer && maintenant - session.prochainEnvoiNs < 0) {
+            // Les différences suivantes couvriront ce pas
+            return;
+        }
+        session.prochainEnvoiNs = maintenant + intervalleEnvoiNs;
+
+        if (abonnesStats && !session.statistiquesEnAttente.isEmpty()) {
+            messagingTemplate.convertAndSend(topicStats, new ArrayList<>(session.statistiquesEnAttente));
+        }
+        session.statistiquesEnAttente.clear();
+
+        if (!abonnements.aDesAbonnes(topic(session.id, "potager-updates"))) {
+            session.dernierEnvoye = null;
+            return;
+        }
+        if (!etat.memeMonde(session.dernierEnvoye) || session.messagesDepuisImageCle >= intervalleImageCle) {
+            envoyerImageCle(session, etat);
+            return;
+        }
+        MiseAJourPotagerDTO message = eventPublisher.creerDifferences(session.dernierEnvoye, etat);
+        message.setSequence(++session.sequence);
+        message.setEnCours(session.enCours);
+        messagingTemplate.convertAndSend(topic(session.id, "potager-updates"), message);
+        session.dernierEnvoye = etat;
+        session.messagesDepuisImageCle++;
+    }
+
+    private void envoyerImageCle(SessionSimulation session, InstantaneMonde etat) {
+        messagingTemplate.convertAndSend(topic(session.id, "potager-updates"),
+                eventPublisher.creerImageCle(etat, ++session.sequence, session.enCours));
+        session.dernierEnvoye = etat;
+        session.messagesDepuisImageCle = 0;
+    }
+
+    private SessionSimulation obtenir(String id) {
+        SessionSimulation session = sessions.get(id);
+        if (session == null) {
+            throw new EntityNotFoundException("Session non trouvée avec l'ID: " + id);
+        }
+        session.dernierAccesMs = System.currentTimeMillis();
+        return session;
+    }
+
+    private SessionDTO decrire(SessionSimulation session) {
+        synchronized (session) {
+            return new SessionDTO(session.id, session.pas, session.enCours, session.graine, session.estEnMemoire());
+        }
+    }
+
+    // Sous le verrou de la session
+    private InstantaneMonde instantane(SessionSimulation session) {
+        if (session.instantane == null) {
+            session.instantane = charger(session).getMonde().figer(session.pas);
+        }
+        return session.instantane;
+    }
+
+    // Sous le verrou de la session : relit la session évincée
+    private MoteurSimulation charger(SessionSimulation session) {
+        if (session.moteur == null) {
+            try (DataInputStream entree = new DataInputStream(new BufferedInputStream(Files.newInputStream(fichier(session.id))))) {
+                lireEntete(session.id, entree);
+                MondeSimulation monde = MondeSimulation.lire(
+                        new DataInputStream(new BufferedInputStream(new GZIPInputStream(entree))), session.identifiants);
+                session.moteur = new MoteurSimulation(monde, new AleaSimulation(session.graine),
+                        ExecutionParallele.sequentielle());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Lecture de la session " + session.id + " impossible", e);
+            }
+        }
+        return session.moteur;
+    }
+
+    private void evincerInactives() {
+        long limite = System.currentTimeMillis() - inactiviteMs;
+        int evincees = 0;
+        for (SessionSimulation session : sessions.values()) {
+            if (session.enCours || session.dernierAccesMs > limite) {
+                continue;
+            }
+            synchronized (session) {
+                if (session.enCours || !session.estEnMemoire() || session.supprimee) {
+                    continue;
+                }
+                try {
+                    ecrire(session);
+                    session.moteur = null;
+                    session.instantane = null;
+                    session.dernierEnvoye = null;
+                    evincees++;
+                } catch (IOException e) {
+                    System.err.println("Erreur lors de l'éviction de la session " + session.id + ": " + e.getMessage());
+                }
+            }
+        }
+        if (evincees > 0) {
+            System.out.println(evincees + " session(s) inactive(s) écrite(s) sur disque");
+        }
+    }
+
+    /**
+     * En-tête non compressé (lu au démarrage sans décompresser le monde), puis le monde compressé
+     */
+    private void ecrire(SessionSimulation session) throws IOException {
+        Path cible = fichier(session.id);
+        Path temporaire = cible.resolveSibling(cible.getFileName() + ".tmp");
+        try (OutputStream sortie = new BufferedOutputStream(Files.newOutputStream(temporaire))) {
+            DataOutputStream entete = new DataOutputStream(sortie);
+            entete.writeByte(VERSION_FICHIER);
+            entete.writeInt(session.pas);
+            entete.writeLong(session.graine);
+            entete.writeLong(session.identifiants.getDernier());
+            entete.flush();
+            GZIPOutputStream compresse = new GZIPOutputStream(sortie);
+            DataOutputStream monde = new DataOutputStream(new BufferedOutputStream(compresse));
+            session.moteur.getMonde().ecrire(monde);
+            monde.flush();
+            compresse.finish();
+        }
+        // Une session écrite à moitié ne remplace jamais la précédente
+        Files.move(temporaire, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static SessionSimulation lireEntete(String id, DataInputStream entree) throws IOException {
+        int version = entree.readUnsignedByte();
+        if (version != VERSION_FICHIER) {
+            throw new IOException("Version de fichier de session non prise en charge: " + version);
+        }
+        SessionSimulation session = new SessionSimulation(id, entree.readInt(), entree.readLong());
+        session.identifiants = new IdentifiantsLocaux(entree.readLong());
+        return session;
+    }
+
+    private Path fichier(String id) {
+        // Les identifiants sont des UUID : pas de chemin arbitraire
+        return repertoire.resolve(UUID.fromString(id) + EXTENSION);
+    }
+}
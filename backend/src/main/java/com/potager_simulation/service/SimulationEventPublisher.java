@@ -1,23 +1,320 @@
 package com.potager_simulation.service;
 
-import com.potager_simulation.dto.EtatPotagerDTO;
+import com.potager_simulation.dto.MiseAJourPotagerDTO;
+import com.potager_simulation.engine.GrillePotager;
+import com.potager_simulation.engine.InstantaneMonde;
+import com.potager_simulation.engine.StatistiquesPotager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Diffuse l'état de la simulation par différences : une image complète tous les
+ * N messages, et entre deux images seulement ce qui a changé depuis le message précédent.
+ * Les messages portent un numéro de séquence ; un client qui en manque un reçoit, à lui
+ * seul, l'image complète de la référence des prochaines différences.
+ * Les clients qui s'abonnent à {@link #TOPIC_BINAIRE} reçoivent à la place, à chaque pas,
+ * une vue d'ensemble compacte ({@link EncodeurBinaire}), ceux qui ont déclaré une vue
+ * les seules parcelles de leur rectangle ({@link VuesSimulation}). Chaque format n'est calculé
+ * que s'il a des abonnés. Les statistiques agrégées de chaque pas sont diffusées sur
+ * {@link #TOPIC_STATS}.
+ * <p>
+ * La diffusion est découplée du pas : le pas dépose son état figé et repart ; le thread
+ * "potager-diffusion" n'envoie que le plus récent, au plus N fois par seconde et par topic.
+ * Les états intermédiaires ne sont jamais envoyés, les différences suivantes les couvrent.
+ */
 @Service
 public class SimulationEventPublisher {
+    public static final String TOPIC = "/topic/potager-updates";
+    public static final String TOPIC_BINAIRE = "/topic/potager-binaire";
+    public static final String TOPIC_STATS = "/topic/stats";
+    // Images complètes demandées par un client, envoyées à lui seul
+    public static final String QUEUE_IMAGE_CLE = "/queue/potager-updates";
+
     private final SimpMessagingTemplate messagingTemplate;
+    private final ConvertisseurEtat convertisseur;
+    private final EncodeurBinaire encodeurBinaire;
+    private final AbonnementsFlux abonnements;
+    private final VuesSimulation vues;
+    private final HistoriqueStatistiques historique;
+    private final int intervalleImageCle;
+    private final long intervalleJsonNs;
+    private final long intervalleBinaireNs;
+
+    // Dernier état déposé par le pas : seul le plus récent compte
+    private final AtomicReference<EtatADiffuser> dernierDepose = new AtomicReference<>();
+    private volatile boolean actif = true;
+    private Thread threadDiffusion;
+    // État du thread de diffusion
+    private EtatADiffuser dernierJson;
+    private EtatADiffuser dernierBinaire;
+    private long prochainJsonNs;
+    private long prochainBinaireNs;
+
+    // Dernier état diffusé, référence des différences suivantes
+    private InstantaneMonde dernierEnvoye;
+    private long sequence = 0;
+    private int messagesDepuisImageCle = 0;
+    // Dernier pas dont les statistiques ont été envoyées
+    private int dernierPasStats = -1;
 
     @Autowired
-    public SimulationEventPublisher(SimpMessagingTemplate messagingTemplate) {
+    public SimulationEventPublisher(
+            SimpMessagingTemplate messagingTemplate,
+            ConvertisseurEtat convertisseur,
+            EncodeurBinaire encodeurBinaire,
+            AbonnementsFlux abonnements,
+            VuesSimulation vues,
+            HistoriqueStatistiques historique,
+            @Value("${potager.websocket.intervalle-image-cle:50}") int intervalleImageCle,
+            @Value("${potager.websocket.frequence-max-hz:10}") double frequenceJson,
+            @Value("${potager.websocket.frequence-max-binaire-hz:10}") double frequenceBinaire) {
         this.messagingTemplate = messagingTemplate;
+        this.convertisseur = convertisseur;
+        this.encodeurBinaire = encodeurBinaire;
+        this.abonnements = abonnements;
+        this.vues = vues;
+        this.historique = historique;
+        this.intervalleImageCle = intervalleImageCle;
+        this.intervalleJsonNs = (long) (TimeUnit.SECONDS.toNanos(1) / frequenceJson);
+        this.intervalleBinaireNs = (long) (TimeUnit.SECONDS.toNanos(1) / frequenceBinaire);
+    }
+
+    @PostConstruct
+    public void demarrer() {
+        threadDiffusion = new Thread(this::boucleDiffusion, "potager-diffusion");
+        threadDiffusion.setDaemon(true);
+        threadDiffusion.start();
+    }
+
+    @PreDestroy
+    public void arreter() throws InterruptedException {
+        actif = false;
+        LockSupport.unpark(threadDiffusion);
+        threadDiffusion.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Confie l'état d'un pas au thread de diffusion, sans attendre ; remplace
+     * l'état précédent s'il n'a pas encore été envoyé
+     */
+    public void publierEtatPotager(InstantaneMonde etat, boolean enCours) {
+        dernierDepose.set(new EtatADiffuser(etat, enCours));
+        LockSupport.unpark(threadDiffusion);
+    }
+
+    private void boucleDiffusion() {
+        prochainJsonNs = System.nanoTime();
+        prochainBinaireNs = prochainJsonNs;
+        while (actif) {
+            try {
+                EtatADiffuser etat = dernierDepose.get();
+                long maintenant = System.nanoTime();
+                long attenteNs = TimeUnit.SECONDS.toNanos(1);
+
+                if (etat != null && etat != dernierBinaire) {
+                    if (maintenant - prochainBinaireNs >= 0) {
+                        diffuserBinaire(etat);
+                        dernierBinaire = etat;
+                        prochainBinaireNs = maintenant + intervalleBinaireNs;
+                    } else {
+                        attenteNs = Math.min(attenteNs, prochainBinaireNs - maintenant);
+                    }
+                }
+                if (etat != null && etat != dernierJson) {
+                    if (maintenant - prochainJsonNs >= 0) {
+                        diffuserJson(etat.etat(), etat.enCours());
+                        if (vues.aDesVues()) {
+                            vues.diffuser(etat.etat(), etat.enCours());
+                        }
+                        diffuserStatistiques(etat.etat());
+                        dernierJson = etat;
+                        prochainJsonNs = maintenant + intervalleJsonNs;
+                    } else {
+                        attenteNs = Math.min(attenteNs, prochainJsonNs - maintenant);
+                    }
+                }
+
+                // Réveillé par le prochain dépôt, ou quand un topic peut de nouveau envoyer
+                if (dernierDepose.get() == etat) {
+                    LockSupport.parkNanos(this, attenteNs);
+                }
+            } catch (Exception e) {
+                System.err.println("Erreur du thread de diffusion de la simulation: " + e.getMessage());
+            }
+        }
+    }
+
+    private void diffuserBinaire(EtatADiffuser etat) {
+        if (abonnements.aDesAbonnes(TOPIC_BINAIRE)) {
+            messagingTemplate.convertAndSend(TOPIC_BINAIRE, encodeurBinaire.encoder(etat.etat(), etat.enCours()),
+                    Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM));
+        }
+    }
+
+    /**
+     * Envoie les statistiques de tous les pas depuis le dernier envoi, y compris ceux
+     * dont l'état n'a pas été diffusé : les courbes des clients restent complètes
+     */
+    private void diffuserStatistiques(InstantaneMonde etat) {
+        if (!abonnements.aDesAbonnes(TOPIC_STATS)) {
+            dernierPasStats = etat.getPas();
+            return;
+        }
+        // Simulation réinitialisée : on repart du début de l'historique
+        int depuis = etat.getPas() < dernierPasStats ? -1 : dernierPasStats;
+        List<StatistiquesPotager> statistiques = historique.depuis(depuis);
+        if (statistiques.isEmpty()) {
+            statistiques = List.of(etat.getStatistiques());
+        }
+        messagingTemplate.convertAndSend(TOPIC_STATS, statistiques);
+        dernierPasStats = etat.getPas();
+    }
+
+    private synchronized void diffuserJson(InstantaneMonde etat, boolean enCours) {
+        if (!abonnements.aDesAbonnes(TOPIC)) {
+            // Personne à qui envoyer des différences : le prochain abonné part d'une image complète
+            dernierEnvoye = null;
+            return;
+        }
+        // Après un rechargement du modèle, les positions ne se correspondent plus : image complète
+        if (!etat.memeMonde(dernierEnvoye) || messagesDepuisImageCle >= intervalleImageCle) {
+            envoyerImageCle(etat, enCours);
+            return;
+        }
+
+        MiseAJourPotagerDTO message = creerDifferences(dernierEnvoye, etat);
+        message.setSequence(++sequence);
+        message.setEnCours(enCours);
+        messagingTemplate.convertAndSend(TOPIC, message);
+        dernierEnvoye = etat;
+        messagesDepuisImageCle++;
+    }
+
+    /**
+     * Diffuse une image complète à tous les abonnés
+     */
+    private void envoyerImageCle(InstantaneMonde etat, boolean enCours) {
+        messagingTemplate.convertAndSend(TOPIC, creerImageCle(etat, ++sequence, enCours));
+        dernierEnvoye = etat;
+        messagesDepuisImageCle = 0;
+    }
+
+    /**
+     * Image complète pour un seul client (il vient de s'abonner ou a manqué un message),
+     * sur /user/queue/potager-updates : l'état de référence des prochaines différences,
+     * avec son numéro de séquence, pour qu'il applique les suivantes comme les autres.
+     * Les autres abonnés ne reçoivent rien.
+     */
+    public synchronized void envoyerImageCle(String sessionId, InstantaneMonde etat, boolean enCours) {
+        if (!etat.memeMonde(dernierEnvoye)) {
+            // Pas de référence (ou modèle rechargé) : l'état courant le devient, les abonnés
+            // qui ont l'ancienne verront un trou dans la numérotation
+            dernierEnvoye = etat;
+            sequence++;
+            messagesDepuisImageCle = 0;
+        }
+        envoyerASession(sessionId, QUEUE_IMAGE_CLE, creerImageCle(dernierEnvoye, sequence, enCours));
+    }
+
+    MiseAJourPotagerDTO creerImageCle(InstantaneMonde etat, long sequence, boolean enCours) {
+        MiseAJourPotagerDTO message = new MiseAJourPotagerDTO();
+        message.setSequence(sequence);
+        message.setImageCle(true);
+        message.setPasSimulation(etat.getPas());
+        message.setEnCours(enCours);
+        message.setEtat(convertisseur.creerEtatPotagerDTO(etat, enCours));
+        return message;
+    }
+
+    /**
+     * Envoie un message à une seule session STOMP, sur /user/{queue}
+     */
+    void envoyerASession(String sessionId, String queue, Object message) {
+        SimpMessageHeaderAccessor entetes = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        entetes.setSessionId(sessionId);
+        entetes.setLeaveMutable(true);
+        // Destination utilisateur résolue par identifiant de session, comme les vues
+        messagingTemplate.convertAndSendToUser(sessionId, queue, message, entetes.getMessageHeaders());
+    }
+
+    /**
+     * Différences entre deux états du même monde (utilisé aussi par les sessions)
+     */
+    MiseAJourPotagerDTO creerDifferences(InstantaneMonde avant, InstantaneMonde apres) {
+        MiseAJourPotagerDTO message = new MiseAJourPotagerDTO();
+        message.setPasSimulation(apres.getPas());
+        GrillePotager grille = apres.getGrille();
+
+        // Parcelles : seule l'humidité change pendant la simulation
+        for (int k = 0; k < apres.getNombreParcelles(); k++) {
+            int cellule = apres.getCelluleParcelle(k);
+            double humidite = apres.getTauxHumidite(cellule);
+            if (humidite != avant.getTauxHumidite(cellule)) {
+                message.getParcellesModifiees().add(new MiseAJourPotagerDTO.ParcelleModifiee(
+                        apres.getIdParcelle(cellule), humidite, convertisseur.categorieHumidite(humidite)));
+            }
+        }
+
+        // Plantes : jamais retirées, elles gardent leur position d'un état à l'autre
+        int vieillissement = apres.getPas() - avant.getPas();
+        message.setVieillissement(vieillissement);
+        for (int i = 0; i < avant.getNombrePlantes(); i++) {
+            if (apres.getAgePlante(i) != avant.getAgePlante(i) + vieillissement) {
+                message.getPlantesModifiees().add(
+                        new MiseAJourPotagerDTO.AgePlante(apres.getIdPlante(i), apres.getAgePlante(i)));
+            }
+        }
+        for (int i = avant.getNombrePlantes(); i < apres.getNombrePlantes(); i++) {
+            message.getPlantesAjoutees().add(convertisseur.convertPlanteToDTO(apres, i));
+        }
+
+        // Insectes : une mort déplace le dernier insecte, on les apparie par identifiant
+        Map<Long, Integer> positionsAvant = new HashMap<>(avant.getNombreInsectes() * 2);
+        for (int i = 0; i < avant.getNombreInsectes(); i++) {
+            positionsAvant.put(avant.getIdInsecte(i), i);
+        }
+        boolean[] presents = new boolean[avant.getNombreInsectes()];
+        for (int i = 0; i < apres.getNombreInsectes(); i++) {
+            Integer j = positionsAvant.get(apres.getIdInsecte(i));
+            if (j == null) {
+                message.getInsectesAjoutes().add(convertisseur.convertInsecteToDTO(apres, i));
+                continue;
+            }
+            presents[j] = true;
+            int cellule = apres.getCelluleInsecte(i);
+            if (cellule != avant.getCelluleInsecte(j)) {
+                message.getInsectesDeplaces().add(new MiseAJourPotagerDTO.DeplacementInsecte(
+                        apres.getIdInsecte(i), apres.getIdParcelle(cellule), grille.getX(cellule), grille.getY(cellule)));
+            }
+            if (apres.getSanteInsecte(i) != avant.getSanteInsecte(j)
+                    || apres.getPassSansManger(i) != avant.getPassSansManger(j)) {
+                message.getInsectesModifies().add(new MiseAJourPotagerDTO.SanteInsecte(
+                        apres.getIdInsecte(i), apres.getSanteInsecte(i), apres.getPassSansManger(i)));
+            }
+        }
+        for (int j = 0; j < presents.length; j++) {
+            if (!presents[j]) {
+                message.getInsectesRetires().add(avant.getIdInsecte(j));
+            }
+        }
+        return message;
     }
 
-    public void publierEtatPotager(EtatPotagerDTO etat) {
-        // Publier sur le topic attendu par le frontend
-        messagingTemplate.convertAndSend("/topic/potager-updates", etat);
-        // Maintenir l'ancien topic pour compatibilité
-        messagingTemplate.convertAndSend("/topic/simulation", etat);
+    private record EtatADiffuser(InstantaneMonde etat, boolean enCours) {
     }
-}
\ No newline at end of file
+}
@@ -1,65 +1,173 @@
 package com.potager_simulation.service;
 
-import com.potager_simulation.dto.*;
-import com.potager_simulation.model.*;
+import com.potager_simulation.dto.MesuresOrdonnanceurDTO;
+import com.potager_simulation.dto.ResultatLotDTO;
+import com.potager_simulation.engine.AleaSimulation;
+import com.potager_simulation.engine.ExecutionParallele;
+import com.potager_simulation.engine.FournisseurIdentifiants;
+import com.potager_simulation.engine.GrillePotager;
+import com.potager_simulation.engine.InstantaneMonde;
+import com.potager_simulation.engine.MondeSimulation;
+import com.potager_simulation.engine.MoteurSimulation;
+import com.potager_simulation.model.DispositifTraitement;
 import com.potager_simulation.model.enums.TypeTraitement;
-import com.potager_simulation.repository.*;
-import jakarta.transaction.Transactional;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.TaskScheduler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-
-import java.time.Duration;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ScheduledFuture;
-import java.util.stream.Collectors;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @Service
 public class SimulationManager {
-    private int pasSimulationActuel = 0;
-    private boolean simulationEnCours = false;
-    private ScheduledFuture<?> tacheSimulation;
-
-    private final ParcelleRepository parcelleRepository;
-    private final PlanteRepository planteRepository;
-    private final InsecteRepository insecteRepository;
+    // Lus sans verrou par les lecteurs de l'état
+    private volatile int pasSimulationActuel = 0;
+    private volatile boolean simulationEnCours = false;
+    // Cadence des pas pendant que la simulation tourne
+    private final OrdonnanceurPas ordonnanceur;
+    private final OrdonnanceurPas.Politique politiqueParDefaut;
+
+    // Modèle en mémoire, chargé au premier pas après un démarrage ou une réinitialisation
+    private MoteurSimulation moteur;
+    // Topologie (table des voisins), conservée d'un chargement à l'autre tant que
+    // les parcelles ne sont ni créées ni supprimées
+    private GrillePotager grille;
+    // Générateur de la simulation en cours, conservé quand le modèle est rechargé
+    private AleaSimulation alea;
+    // Dernier état publié : le pas modifie le monde, puis remplace cette copie figée
+    // en une seule écriture. Null tant que le modèle n'est pas chargé.
+    private final AtomicReference<InstantaneMonde> instantane = new AtomicReference<>();
+
+    private final SimulationPersistenceService persistenceService;
     private final SimulationEventPublisher eventPublisher;
-    private final TaskScheduler taskScheduler;
+    private final HistoriqueStatistiques historique;
+    private final TransactionTemplate transaction;
+    // Threads des phases du pas, null si le pas s'exécute dans le thread appelant
+    private final ForkJoinPool poolPas;
+    private final ExecutionParallele execution;
 
+    /**
+     * @param parallelisme nombre de threads d'un pas ; 0 pour le nombre de processeurs,
+     *                     1 pour une exécution séquentielle
+     * @param politiqueRetard politique de l'ordonnanceur quand un pas dépasse sa période
+     *                        (voir {@link OrdonnanceurPas}), si le démarrage n'en précise pas
+     * @param rattrapageMax pas en retard enchaînés au plus par la politique RATTRAPER
+     */
     @Autowired
     public SimulationManager(
-            ParcelleRepository parcelleRepository,
-            PlanteRepository planteRepository,
-            InsecteRepository insecteRepository,
+            SimulationPersistenceService persistenceService,
             SimulationEventPublisher eventPublisher,
-            TaskScheduler taskScheduler) {
-        this.parcelleRepository = parcelleRepository;
-        this.planteRepository = planteRepository;
-        this.insecteRepository = insecteRepository;
+            HistoriqueStatistiques historique,
+            PlatformTransactionManager transactionManager,
+            @Value("${potager.simulation.parallelisme:0}") int parallelisme,
+            @Value("${potager.simulation.politique-retard:SAUTER}") String politiqueRetard,
+            @Value("${potager.simulation.rattrapage-max:10}") int rattrapageMax) {
+        this.persistenceService = persistenceService;
         this.eventPublisher = eventPublisher;
-        this.taskScheduler = taskScheduler;
+        this.historique = historique;
+        // Transaction propre à chaque modification, validée sous le verrou (voir modifierPotager)
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.politiqueParDefaut = OrdonnanceurPas.Politique.valueOf(politiqueRetard.trim().toUpperCase());
+        this.ordonnanceur = new OrdonnanceurPas(rattrapageMax);
+
+        if (parallelisme <= 0) {
+            parallelisme = Runtime.getRuntime().availableProcessors();
+        }
+        this.poolPas = parallelisme > 1 ? new ForkJoinPool(parallelisme) : null;
+        this.execution = new ExecutionParallele(poolPas);
+    }
+
+    @PreDestroy
+    public void arreterPool() {
+        ordonnanceur.arreter();
+        if (poolPas != null) {
+            poolPas.shutdown();
+        }
+    }
+
+    /**
+     * Réinitialise le potager : l'effacement s'exécute comme toute modification
+     * (voir {@link #modifierPotager(boolean, TransactionCallback)}), puis le compteur de pas
+     * revient à 0 sous le même verrou. Aucun pas de l'ancien modèle ne s'intercale, et
+     * aucun lot déposé avant ne peut être écrit après l'effacement.
+     *
+     * @param effacement suppression des plantes, insectes et dispositifs en base
+     */
+    public synchronized void reinitialiserPotager(Runnable effacement) {
+        if (simulationEnCours) {
+            throw new IllegalStateException("Arrêtez la simulation avant de réinitialiser le potager");
+        }
+        modifierPotagerSansResultat(false, statut -> effacement.run());
+        resetPasSimulation();
     }
 
     /**
      * Réinitialise le compteur de pas de simulation à 0
      * et s'assure que la simulation est arrêtée
      */
-    public void resetPasSimulation() {
+    private void resetPasSimulation() {
         pasSimulationActuel = 0;
         simulationEnCours = false;
+        // Le potager a été réinitialisé en base : le modèle en mémoire est rechargé
+        moteur = null;
+        alea = null;
+        instantane.set(null);
+        historique.vider();
     }
 
-    public void demarrerSimulation(int delaiEntrePassMs) {
+    /**
+     * Démarre la simulation ; si elle tourne déjà, change seulement sa vitesse
+     * (voir {@link #modifierVitesse(int, String)})
+     *
+     * @param graine graine du générateur aléatoire ; si null, la graine courante est
+     *               conservée (ou tirée au hasard au premier démarrage)
+     * @param politique RATTRAPER, SAUTER ou ETIRER ; null pour potager.simulation.politique-retard
+     */
+    public synchronized void demarrerSimulation(int delaiEntrePassMs, Long graine, String politique) {
         if (simulationEnCours) {
+            modifierVitesse(delaiEntrePassMs, politique);
             return;
         }
 
+        OrdonnanceurPas.Politique choisie = politique != null ? lirePolitique(politique) : politiqueParDefaut;
+        if (graine != null) {
+            initialiserAlea(graine);
+        }
+
         simulationEnCours = true;
-        tacheSimulation = taskScheduler.scheduleAtFixedRate(
-                this::executerPasSimulation,
-                Duration.ofMillis(delaiEntrePassMs)
-        );
+        ordonnanceur.demarrer(this::executerPasSimulation, OrdonnanceurPas.enNanos(delaiEntrePassMs), choisie);
+    }
+
+    /**
+     * Change la période des pas (et, si non null, la politique) sans arrêter la simulation
+     */
+    public void modifierVitesse(int delaiEntrePassMs, String politique) {
+        ordonnanceur.modifier(OrdonnanceurPas.enNanos(delaiEntrePassMs),
+                politique != null ? lirePolitique(politique) : null);
+    }
+
+    public MesuresOrdonnanceurDTO getMesuresOrdonnanceur() {
+        return ordonnanceur.getMesures();
+    }
+
+    private static OrdonnanceurPas.Politique lirePolitique(String politique) {
+        try {
+            return OrdonnanceurPas.Politique.valueOf(politique.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Politique de retard inconnue: " + politique
+                    + " (RATTRAPER, SAUTER ou ETIRER)");
+        }
     }
 
     public void arreterSimulation() {
@@ -67,369 +175,213 @@ public class SimulationManager {
             return;
         }
 
-        if (tacheSimulation != null) {
-            tacheSimulation.cancel(false);
-        }
+        // Attend la fin du pas en cours : aucun pas ne suit l'arrêt
+        ordonnanceur.arreter();
         simulationEnCours = false;
+
+        // Écrire les modifications pas encore en base et attendre la fin de l'écriture
+        synchronized (this) {
+            if (moteur != null) {
+                persistenceService.sauvegarderMaintenant(moteur.getMonde());
+            }
+        }
     }
 
-    @Transactional
     public void executerPasSimulation() {
-        // Incrémenter le compteur de pas
-        pasSimulationActuel++;
-
-        // 1. Appliquer les traitements programmés
-        appliquerTraitements();
-
-        // 2. Mettre à jour les plantes
-        mettreAJourPlantes();
+        InstantaneMonde etat;
+        synchronized (this) {
+            MoteurSimulation moteurCourant = getMoteur();
 
-        // 3. Mettre à jour les insectes
-        mettreAJourInsectes();
+            // Incrémenter le compteur de pas
+            pasSimulationActuel++;
 
-        // 4. Mettre à jour l'environnement naturel (évaporation, etc.)
-        mettreAJourEnvironnement();
+            // 1 à 4. Traitements, plantes, insectes et environnement, sur le modèle en mémoire
+            moteurCourant.executerPas(pasSimulationActuel);
 
-        // 5. Publier l'état actuel pour la visualisation
-        publierEtatActuel();
-    }
-
-    private void appliquerTraitements() {
-        List<Parcelle> parcelles = parcelleRepository.findAll();
-        System.out.println("Starting treatment application at time: " + pasSimulationActuel);
-        int deviceCount = 0;
-        int programsCount = 0;
+            // Les modifications sont confiées au thread d'écriture, sans attendre la base
+            persistenceService.deposerSiNecessaire(moteurCourant.getMonde());
 
-        for (Parcelle parcelle : parcelles) {
-            if (parcelle.getDispositifTraitement() == null) {
-                continue;
-            }
-            deviceCount++;
-
-            DispositifTraitement dispositif = parcelle.getDispositifTraitement();
-            List<Programme> programmesActifs = dispositif.getProgrammesActifs(pasSimulationActuel);
-            programsCount += programmesActifs.size();
-
-            for (Programme programme : programmesActifs) {
-                System.out.println("Applying treatment: " + programme.getTypeTraitement() +
-                        " at parcelle (" + parcelle.getX() + "," + parcelle.getY() +
-                        ") with radius " + dispositif.getRayon());
-
-                appliquerTraitementDansRayon(
-                        parcelle,
-                        dispositif.getRayon(),
-                        programme.getTypeTraitement()
-                );
-            }
+            etat = publierInstantane(moteurCourant);
+            historique.ajouter(etat.getStatistiques());
         }
 
-        System.out.println("Found " + deviceCount + " devices and " + programsCount + " active programs");
+        // 5. Confier l'état au thread de diffusion pour la visualisation
+        eventPublisher.publierEtatPotager(etat, simulationEnCours);
     }
 
-    private void appliquerTraitementDansRayon(
-            Parcelle centre,
-            int rayon,
-            TypeTraitement typeTraitement) {
-        List<Parcelle> parcellesDansRayon = parcelleRepository.findParcellesDansRayon(
-                centre.getX(), centre.getY(), rayon);
-
-        for (Parcelle parcelle : parcellesDansRayon) {
-            switch (typeTraitement) {
-                case EAU:
-                    double oldHumidity = parcelle.getTauxHumidite();
-                    parcelle.ajouterHumidite(20.0);
-                    System.out.println("Water applied to parcelle (" + parcelle.getX() + "," +
-                            parcelle.getY() + "), humidity: " + oldHumidity +
-                            " -> " + parcelle.getTauxHumidite());
-                    break;
-                case INSECTICIDE:
-                    for (Insecte insecte : parcelle.getInsectes()) {
-                        insecte.appliquerInsecticide(5.0); // Puissance de l'insecticide
-                    }
-                    break;
-                case ENGRAIS:
-                    for (Plante plante : parcelle.getPlantes()) {
-                        // Accélération de la croissance (exemple simplifié)
-                        if (Math.random() < 0.5) {
-                            plante.vieillir();
-                        }
-                    }
-                    break;
-            }
-        }
-
-        parcelleRepository.saveAll(parcellesDansRayon);
+    /**
+     * Copie du monde en mémoire et son pas, prise entre deux pas
+     */
+    public record CopieMonde(MondeSimulation monde, int pas) {
     }
 
-    private void mettreAJourPlantes() {
-        List<Plante> plantes = planteRepository.findAll();
-        List<Plante> nouvellesPlantes = new ArrayList<>();
-
-        for (Plante plante : plantes) {
-            // Faire vieillir la plante - IMPORTANT: cette méthode incrémente l'âge selon les exigences du PDF
-            plante.vieillir();
-
-            // Si la plante est drageonnante et mature, tenter de coloniser les parcelles voisines
-            if (plante.estMature() && plante.tenterColonisation()) {
-                List<Parcelle> parcellesVoisines = parcelleRepository.findParcellesAdjacentes(
-                        plante.getParcelle().getX(),
-                        plante.getParcelle().getY()
-                );
-
-                for (Parcelle parcelle : parcellesVoisines) {
-                    if (Math.random() < plante.getProbabiliteColonisation()) {
-                        Plante nouvellePlante = new Plante();
-                        nouvellePlante.setEspece(plante.getEspece());
-                        nouvellePlante.setAge(0);
-                        nouvellePlante.setAgeMaturite(plante.getAgeMaturite());
-                        nouvellePlante.setEstDrageonnante(true);
-                        nouvellePlante.setProbabiliteColonisation(plante.getProbabiliteColonisation());
-                        nouvellePlante.setParcelle(parcelle);
-
-                        nouvellesPlantes.add(nouvellePlante);
-                    }
-                }
-            }
-        }
-
-        // Sauvegarder les nouvelles plantes
-        planteRepository.saveAll(plantes); // Mise à jour des plantes existantes
-        planteRepository.saveAll(nouvellesPlantes); // Ajout des nouvelles plantes
+    /**
+     * @param identifiants identifiants des naissances dans la copie (elle n'est jamais écrite en base)
+     */
+    public synchronized CopieMonde copierMonde(FournisseurIdentifiants identifiants) {
+        return new CopieMonde(getMoteur().getMonde().copier(identifiants), pasSimulationActuel);
     }
 
-    private void mettreAJourInsectes() {
-        List<Insecte> insectes = insecteRepository.findAll();
-        List<Insecte> nouveauxInsectes = new ArrayList<>();
-        List<Insecte> insectesASupprimer = new ArrayList<>();
-
-        for (Insecte insecte : insectes) {
-            // Nourrir l'insecte
-            boolean planteDisponible = !insecte.getParcelle().getPlantes().isEmpty();
-            insecte.seNourrir(planteDisponible);
-
-            // Vérifier sa survie - selon le PDF, un insecte meurt s'il ne mange pas pendant 5 pas
-            if (!insecte.estVivant()) {
-                insectesASupprimer.add(insecte);
-                continue;
+    /**
+     * Exécute des pas à la suite, sans ordonnanceur ni attente, dans le thread appelant.
+     * L'état n'est figé et publié que tous les intervallePublication pas (0 : seulement à la fin),
+     * les modifications sont écrites en base au fil de l'eau puis sauvegardées à la fin.
+     * Les autres opérations sur la simulation attendent la fin du lot.
+     *
+     * @param graine graine du générateur aléatoire, null pour conserver la graine courante
+     */
+    public ResultatLotDTO executerLot(int nombrePas, int intervallePublication, Long graine) {
+        if (nombrePas <= 0) {
+            throw new IllegalArgumentException("Le nombre de pas doit être positif: " + nombrePas);
+        }
+        InstantaneMonde etat;
+        ResultatLotDTO resultat;
+        synchronized (this) {
+            if (simulationEnCours) {
+                throw new IllegalStateException("Arrêtez la simulation avant d'exécuter un lot de pas");
             }
-
-            // Tenter un déplacement
-            if (insecte.tenterDeplacement()) {
-                List<Parcelle> parcellesVoisines = parcelleRepository.findParcellesAdjacentes(
-                        insecte.getParcelle().getX(),
-                        insecte.getParcelle().getY()
-                );
-
-                if (!parcellesVoisines.isEmpty()) {
-                    int index = (int) (Math.random() * parcellesVoisines.size());
-                    insecte.setParcelle(parcellesVoisines.get(index));
-                }
+            if (graine != null) {
+                initialiserAlea(graine);
             }
-
-            // Tenter une reproduction si l'insecte est en bonne santé
-            if (insecte.getSante() > 7) {
-                // Chercher un partenaire du sexe opposé
-                List<Insecte> partenaires = insecteRepository.findByParcelleAndEspeceAndSexeNot(
-                        insecte.getParcelle(),
-                        insecte.getEspece(),
-                        insecte.getSexe()
-                );
-
-                if (!partenaires.isEmpty() && Math.random() < 0.3) {
-                    Insecte nouvelInsecte = new Insecte();
-                    nouvelInsecte.setEspece(insecte.getEspece());
-                    nouvelInsecte.setSexe(Math.random() > 0.5 ? "M" : "F");
-                    nouvelInsecte.setSante(8);
-                    nouvelInsecte.setMobilite(insecte.getMobilite());
-                    nouvelInsecte.setResistanceInsecticide(insecte.getResistanceInsecticide());
-                    nouvelInsecte.setParcelle(insecte.getParcelle());
-
-                    nouveauxInsectes.add(nouvelInsecte);
+            MoteurSimulation moteurCourant = getMoteur();
+            int pasDebut = pasSimulationActuel;
+            int publications = 0;
+            long debut = System.nanoTime();
+
+            for (int k = 1; k <= nombrePas; k++) {
+                pasSimulationActuel++;
+                moteurCourant.executerPas(pasSimulationActuel);
+                persistenceService.deposerSiNecessaire(moteurCourant.getMonde());
+
+                if (intervallePublication > 0 && k % intervallePublication == 0 && k < nombrePas) {
+                    etat = publierInstantane(moteurCourant);
+                    historique.ajouter(etat.getStatistiques());
+                    eventPublisher.publierEtatPotager(etat, false);
+                    publications++;
                 }
             }
-        }
 
-        // Sauvegarder les changements
-        insecteRepository.saveAll(insectes); // Mise à jour des insectes existants
-        insecteRepository.saveAll(nouveauxInsectes); // Ajout des nouveaux insectes
-        insecteRepository.deleteAll(insectesASupprimer); // Suppression des insectes morts
+            long dureeNs = System.nanoTime() - debut;
+            etat = publierInstantane(moteurCourant);
+            historique.ajouter(etat.getStatistiques());
+            publications++;
+            persistenceService.sauvegarderMaintenant(moteurCourant.getMonde());
+
+            double secondes = Math.max(dureeNs, 1) / 1e9;
+            resultat = new ResultatLotDTO(pasDebut, pasSimulationActuel,
+                    TimeUnit.NANOSECONDS.toMillis(dureeNs), nombrePas / secondes, publications);
+            System.out.println("Lot de " + nombrePas + " pas exécuté en " + resultat.getDureeMs()
+                    + " ms (" + Math.round(resultat.getPasParSeconde()) + " pas/s)");
+        }
+        eventPublisher.publierEtatPotager(etat, false);
+        return resultat;
     }
 
-    private void mettreAJourEnvironnement() {
-        List<Parcelle> parcelles = parcelleRepository.findAll();
-
-        for (Parcelle parcelle : parcelles) {
-            // Évaporation naturelle de l'eau
-            parcelle.diminuerHumidite(2.0);
+    /**
+     * Modifie le potager en base hors simulation. Sous le verrou de la simulation, l'état
+     * en mémoire est sauvegardé puis abandonné, et la modification s'exécute dans sa propre
+     * transaction, validée avant de rendre le verrou : aucun pas ne recharge le modèle
+     * (ni ne réécrit ses anciennes valeurs) entre l'invalidation et la validation.
+     *
+     * @param topologie vrai si des parcelles sont créées ou supprimées : la table des voisins
+     *                  est alors recalculée
+     */
+    public synchronized <T> T modifierPotager(boolean topologie, TransactionCallback<T> modification) {
+        invaliderMonde(topologie);
+        try {
+            return transaction.execute(modification);
+        } finally {
+            instantane.set(null);
         }
-
-        parcelleRepository.saveAll(parcelles);
     }
 
-    private void publierEtatActuel() {
-        EtatPotagerDTO etat = creerEtatPotagerDTO();
-        eventPublisher.publierEtatPotager(etat);
+    /**
+     * Comme {@link #modifierPotager(boolean, TransactionCallback)}, sans résultat
+     */
+    public synchronized void modifierPotagerSansResultat(boolean topologie, Consumer<TransactionStatus> modification) {
+        invaliderMonde(topologie);
+        try {
+            transaction.executeWithoutResult(modification);
+        } finally {
+            instantane.set(null);
+        }
     }
 
-    public EtatPotagerDTO getEtatActuel() {
-        return creerEtatPotagerDTO();
+    /**
+     * Sauvegarde l'état en mémoire puis l'abandonne : il sera rechargé depuis la base
+     * au prochain pas
+     */
+    private void invaliderMonde(boolean topologie) {
+        if (moteur != null) {
+            persistenceService.sauvegarderMaintenant(moteur.getMonde());
+            moteur = null;
+        }
+        if (topologie) {
+            grille = null;
+        }
+        instantane.set(null);
     }
 
-    private EtatPotagerDTO creerEtatPotagerDTO() {
-        // Créer un DTO représentant l'état actuel du potager
-        EtatPotagerDTO etatDTO = new EtatPotagerDTO();
-        etatDTO.setPasSimulation(pasSimulationActuel);
-        etatDTO.setEnCours(simulationEnCours);
-
-        // Récupérer toutes les parcelles
-        List<Parcelle> parcelles = parcelleRepository.findAll();
-
-        // Déterminer les dimensions du potager
-        int maxX = 0, maxY = 0;
-        for (Parcelle p : parcelles) {
-            maxX = Math.max(maxX, p.getX());
-            maxY = Math.max(maxY, p.getY());
+    /**
+     * Applique immédiatement un traitement manuel sur le modèle en mémoire ;
+     * il sera écrit en base avec le prochain lot de modifications.
+     */
+    public synchronized void appliquerTraitementManuel(Long dispositifId, TypeTraitement typeTraitement) {
+        MoteurSimulation moteurCourant = getMoteur();
+        DispositifTraitement dispositif = moteurCourant.getMonde().getDispositif(dispositifId);
+        if (dispositif == null) {
+            throw new EntityNotFoundException("Dispositif non trouvé avec l'ID: " + dispositifId);
         }
-
-        etatDTO.setLargeur(maxX + 1);
-        etatDTO.setHauteur(maxY + 1);
-
-        // Convertir les parcelles en DTOs
-        List<ParcelleDTO> parcellesDTO = parcelles.stream()
-                .map(this::convertParcelleToDTO)
-                .collect(Collectors.toList());
-
-        etatDTO.setParcelles(parcellesDTO);
-
-        return etatDTO;
+        moteurCourant.appliquerTraitementManuel(dispositif, typeTraitement);
+        publierInstantane(moteurCourant);
     }
 
-    private ParcelleDTO convertParcelleToDTO(Parcelle parcelle) {
-        ParcelleDTO dto = new ParcelleDTO();
-
-        // Copier les propriétés de base
-        dto.setId(parcelle.getId());
-        dto.setX(parcelle.getX());
-        dto.setY(parcelle.getY());
-        dto.setTauxHumidite(parcelle.getTauxHumidite());
-
-        // Pour la compatibilité avec le frontend
-        dto.setCoordX(parcelle.getX());
-        dto.setCoordY(parcelle.getY());
-
-        // Déterminer la catégorie d'humidité
-        if (parcelle.getTauxHumidite() < 20) {
-            dto.setCategorieHumidite("sec");
-        } else if (parcelle.getTauxHumidite() < 40) {
-            dto.setCategorieHumidite("légèrement humide");
-        } else if (parcelle.getTauxHumidite() < 60) {
-            dto.setCategorieHumidite("moyennement humide");
-        } else if (parcelle.getTauxHumidite() < 80) {
-            dto.setCategorieHumidite("humide");
-        } else {
-            dto.setCategorieHumidite("très humide");
+    private synchronized void initialiserAlea(long graine) {
+        alea = new AleaSimulation(graine);
+        System.out.println("Graine de la simulation: " + graine);
+        if (moteur != null) {
+            moteur = new MoteurSimulation(moteur.getMonde(), alea, execution);
         }
+    }
 
-        // Convertir les plantes
-        if (parcelle.getPlantes() != null && !parcelle.getPlantes().isEmpty()) {
-            dto.setPlantes(parcelle.getPlantes().stream()
-                    .map(this::convertPlanteToDTO)
-                    .collect(Collectors.toList()));
-        } else {
-            dto.setPlantes(new ArrayList<>());
+    private MoteurSimulation getMoteur() {
+        if (alea == null) {
+            initialiserAlea(new SplittableRandom().nextLong());
         }
-
-        // Convertir les insectes
-        if (parcelle.getInsectes() != null && !parcelle.getInsectes().isEmpty()) {
-            dto.setInsectes(parcelle.getInsectes().stream()
-                    .map(this::convertInsecteToDTO)
-                    .collect(Collectors.toList()));
-        } else {
-            dto.setInsectes(new ArrayList<>());
+        if (persistenceService.reprendreApresEchec() && moteur != null) {
+            // Un lot n'a pas été écrit : le modèle ne correspond plus à la base. Ses lots
+            // encore en file ont été refusés pendant l'appel : aucun n'est écrit après le rechargement
+            System.err.println("Modèle de la simulation rechargé après un échec d'écriture");
+            moteur = null;
         }
-
-        // Convertir le dispositif de traitement
-        if (parcelle.getDispositifTraitement() != null) {
-            dto.setDispositifTraitement(convertDispositifToDTO(parcelle.getDispositifTraitement()));
+        if (moteur == null) {
+            moteur = new MoteurSimulation(persistenceService.chargerMonde(grille), alea, execution);
+            grille = moteur.getMonde().getGrille();
         }
-
-        return dto;
+        return moteur;
     }
 
-    // Méthodes de conversion supplémentaires nécessaires
-    private PlanteDTO convertPlanteToDTO(Plante plante) {
-        PlanteDTO dto = new PlanteDTO();
-        dto.setId(plante.getId());
-        dto.setEspece(plante.getEspece());
-        dto.setAge(plante.getAge());
-        dto.setAgeMaturite(plante.getAgeMaturite());
-        dto.setEstMature(plante.estMature());
-        dto.setEstDrageonnante(plante.isEstDrageonnante());
-        dto.setProbabiliteColonisation(plante.getProbabiliteColonisation());
-
-        // Ajouter des informations de parcelle pour le frontend
-        if (plante.getParcelle() != null) {
-            dto.setParcelleId(plante.getParcelle().getId());
-            dto.setParcelleCoordX(plante.getParcelle().getX());
-            dto.setParcelleCoordY(plante.getParcelle().getY());
-        }
-
-        return dto;
+    private InstantaneMonde publierInstantane(MoteurSimulation moteurCourant) {
+        InstantaneMonde etat = moteurCourant.getMonde().figer(pasSimulationActuel);
+        instantane.set(etat);
+        return etat;
     }
 
-    private InsecteDTO convertInsecteToDTO(Insecte insecte) {
-        InsecteDTO dto = new InsecteDTO();
-        dto.setId(insecte.getId());
-        dto.setEspece(insecte.getEspece());
-        dto.setSexe(insecte.getSexe());
-        dto.setSante(insecte.getSante());
-        dto.setMobilite(insecte.getMobilite());
-        dto.setResistanceInsecticide(insecte.getResistanceInsecticide());
-        dto.setPassSansManger(insecte.getPassSansManger());
-
-        // Pour la compatibilité avec le frontend
-        if (insecte.getParcelle() != null) {
-            dto.setParcelleId(insecte.getParcelle().getId());
-            dto.setParcelleCoordX(insecte.getParcelle().getX());
-            dto.setParcelleCoordY(insecte.getParcelle().getY());
-        }
-
-        return dto;
+    /**
+     * État du dernier pas, sans attendre le pas en cours ; le modèle n'est chargé
+     * (sous verrou) que si aucun état n'a encore été publié
+     */
+    public InstantaneMonde getInstantane() {
+        InstantaneMonde etat = instantane.get();
+        return etat != null ? etat : chargerInstantane();
     }
 
-    private DispositifTraitementDTO convertDispositifToDTO(DispositifTraitement dispositif) {
-        DispositifTraitementDTO dto = new DispositifTraitementDTO();
-        dto.setId(dispositif.getId());
-        dto.setRayon(dispositif.getRayon());
-
-        if (dispositif.getParcelle() != null) {
-            dto.setParcelleId(dispositif.getParcelle().getId());
-            dto.setParcelleCoordX(dispositif.getParcelle().getX());
-            dto.setParcelleCoordY(dispositif.getParcelle().getY());
-        }
-
-        // Convertir les programmes
-        List<ProgrammeDTO> programmesDTO = dispositif.getProgrammes().stream()
-                .map(this::convertProgrammeToDTO)
-                .collect(Collectors.toList());
-
-        // Pour la compatibilité avec le frontend
-        dto.setProgrammesActifs(programmesDTO);
-
-        return dto;
+    public boolean isSimulationEnCours() {
+        return simulationEnCours;
     }
 
-    private ProgrammeDTO convertProgrammeToDTO(Programme programme) {
-        ProgrammeDTO dto = new ProgrammeDTO();
-        dto.setId(programme.getId());
-        dto.setInstantDebut(programme.getInstantDebut());
-        dto.setDuree(programme.getDuree());
-        dto.setTypeTraitement(programme.getTypeTraitement().name());
-
-        if (programme.getDispositifTraitement() != null) {
-            dto.setDispositifId(programme.getDispositifTraitement().getId());
-        }
-
-        return dto;
+    private synchronized InstantaneMonde chargerInstantane() {
+        InstantaneMonde etat = instantane.get();
+        return etat != null ? etat : publierInstantane(getMoteur());
     }
-}
\ No newline at end of file
+}
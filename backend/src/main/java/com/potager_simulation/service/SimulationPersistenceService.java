@@ -0,0 +1,284 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.engine.FournisseurIdentifiants;
+import com.potager_simulation.engine.GrillePotager;
+import com.potager_simulation.engine.LotModifications;
+import com.potager_simulation.engine.MondeSimulation;
+import com.potager_simulation.model.Parcelle;
+import com.potager_simulation.repository.ParcelleRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fait le lien entre le modèle en mémoire de la simulation et la base de données.
+ * Le chargement passe par JPA ; l'écriture est différée (write-behind) : la simulation
+ * dépose des lots de modifications que le thread "potager-persistance" écrit en JDBC
+ * par batchs. Le thread de simulation n'attend jamais MySQL.
+ */
+@Service
+public class SimulationPersistenceService implements FournisseurIdentifiants {
+    private final ParcelleRepository parcelleRepository;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long intervalleEcritureMs;
+    private final long cellulesMax;
+    private final BlockingQueue<LotModifications> lotsEnAttente;
+    // Un jeton par lot déposé ou par réveil demandé : le thread d'écriture attend ici,
+    // la file ne contient que des lots et sa capacité ne compte qu'eux
+    private final Semaphore signaux = new Semaphore(0);
+    private final AllocateurIdentifiants identifiantsPlantes;
+    private final AllocateurIdentifiants identifiantsInsectes;
+
+    private volatile boolean actif = true;
+    // Vrai après un lot non écrit : le modèle diverge de la base et doit être rechargé.
+    // Tant qu'il l'est, les lots de ce modèle sont refusés sans être écrits.
+    private final AtomicBoolean lotPerdu = new AtomicBoolean();
+    private volatile long prochaineCollecte = 0;
+    private Thread threadEcriture;
+
+    @Autowired
+    public SimulationPersistenceService(
+            ParcelleRepository parcelleRepository,
+            EntityManager entityManager,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${potager.persistance.intervalle-ms:1000}") long intervalleEcritureMs,
+            @Value("${potager.persistance.backlog-max:4}") int backlogMax,
+            @Value("${potager.persistance.taille-bloc-identifiants:1000}") int tailleBlocIdentifiants,
+            @Value("${potager.persistance.taille-bloc-identifiants-max:100000}") int tailleBlocIdentifiantsMax,
+            @Value("${potager.grille.cellules-max:1000000}") long cellulesMax) {
+        this.parcelleRepository = parcelleRepository;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.intervalleEcritureMs = intervalleEcritureMs;
+        this.cellulesMax = cellulesMax;
+        this.lotsEnAttente = new ArrayBlockingQueue<>(Math.max(1, backlogMax));
+
+        TransactionTemplate nouvelleTransaction = new TransactionTemplate(transactionManager);
+        nouvelleTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.identifiantsPlantes = new AllocateurIdentifiants("plante_seq", tailleBlocIdentifiants,
+                tailleBlocIdentifiantsMax, intervalleEcritureMs, jdbcTemplate, nouvelleTransaction, this::reveiller);
+        this.identifiantsInsectes = new AllocateurIdentifiants("insecte_seq", tailleBlocIdentifiants,
+                tailleBlocIdentifiantsMax, intervalleEcritureMs, jdbcTemplate, nouvelleTransaction, this::reveiller);
+    }
+
+    @PostConstruct
+    public void demarrer() {
+        identifiantsPlantes.alignerSur("plante");
+        identifiantsInsectes.alignerSur("insecte");
+
+        threadEcriture = new Thread(this::boucleEcriture, "potager-persistance");
+        threadEcriture.setDaemon(true);
+        threadEcriture.start();
+    }
+
+    @PreDestroy
+    public void arreter() throws InterruptedException {
+        actif = false;
+        threadEcriture.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    /**
+     * Charge tout le potager (parcelles, plantes, insectes, dispositifs et programmes)
+     * en un nombre constant de requêtes.
+     * @param grilleConnue topologie déjà calculée, réutilisée si elle correspond encore
+     *                     aux parcelles en base (peut être null)
+     */
+    @Transactional
+    public MondeSimulation chargerMonde(GrillePotager grilleConnue) {
+        // Les trois requêtes remplissent les mêmes instances de Parcelle dans la session
+        // Les dispositifs d'abord, sinon chaque parcelle chargée lit le sien à part
+        parcelleRepository.findAllFetchDispositifs();
+        parcelleRepository.findAllFetchPlantes();
+        List<Parcelle> parcelles = parcelleRepository.findAllFetchInsectes();
+        // Entités détachées : ce que la simulation en fait n'est jamais écrit par JPA
+        entityManager.clear();
+
+        GrillePotager grille = grilleConnue != null && grilleConnue.correspondA(parcelles)
+                ? grilleConnue
+                : GrillePotager.depuis(parcelles, cellulesMax);
+        return new MondeSimulation(grille, parcelles, this);
+    }
+
+    /**
+     * Appelé en fin de pas : dépose les modifications accumulées si l'intervalle
+     * d'écriture est écoulé et que la file a de la place. Sinon les modifications
+     * restent dans le modèle et seront fusionnées dans un lot ultérieur.
+     * Ne bloque jamais.
+     */
+    public void deposerSiNecessaire(MondeSimulation monde) {
+        if (System.currentTimeMillis() < prochaineCollecte || lotsEnAttente.remainingCapacity() == 0) {
+            return;
+        }
+        LotModifications lot = monde.collecterModifications();
+        if (!lot.estVide() && lotsEnAttente.offer(lot)) {
+            signaux.release();
+            prochaineCollecte = System.currentTimeMillis() + intervalleEcritureMs;
+        }
+    }
+
+    /**
+     * Écrit toutes les modifications du modèle et attend qu'elles soient en base
+     * (arrêt de la simulation, modification du potager hors simulation).
+     * Le lot est déposé même vide : la file est écrite dans l'ordre par un seul thread,
+     * il sert de barrière et n'est terminé qu'après les lots en attente et le lot en cours.
+     */
+    public void sauvegarderMaintenant(MondeSimulation monde) {
+        try {
+            deposerEtAttendre(monde.collecterModifications());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Échec de la sauvegarde de la simulation: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Vrai si un lot n'a pas pu être écrit depuis le dernier appel : le modèle en mémoire
+     * contient des modifications absentes de la base, il doit être abandonné et rechargé.
+     * Dans ce cas, attend d'abord que les lots déjà déposés par ce modèle aient été refusés :
+     * aucun ne peut être écrit après le rechargement. À appeler sous le verrou de la
+     * simulation, qui empêche tout nouveau dépôt pendant l'attente.
+     */
+    public boolean reprendreApresEchec() {
+        if (!lotPerdu.get()) {
+            return false;
+        }
+        try {
+            // Lot vide : il ne passe qu'après tous ceux qui le précèdent dans la file
+            deposerEtAttendre(new LotModifications(List.of(), List.of(), List.of(),
+                    List.of(), List.of(), List.of(), new CompletableFuture<>()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Lot refusé : la file est vidée, c'est ce qui était attendu
+        }
+        lotPerdu.set(false);
+        return true;
+    }
+
+    private void deposerEtAttendre(LotModifications lot) throws Exception {
+        lotsEnAttente.put(lot);
+        signaux.release();
+        lot.ecrit().get();
+    }
+
+    @Override
+    public long prochainIdPlante() {
+        return identifiantsPlantes.suivant();
+    }
+
+    @Override
+    public long prochainIdInsecte() {
+        return identifiantsInsectes.suivant();
+    }
+
+    /**
+     * Appelé par un allocateur à la moitié de son bloc : le thread d'écriture prépare
+     * le bloc suivant dès qu'il a fini le lot en cours
+     */
+    private void reveiller() {
+        signaux.release();
+    }
+
+    private void boucleEcriture() {
+        while (actif || !lotsEnAttente.isEmpty()) {
+            try {
+                identifiantsPlantes.preparer();
+                identifiantsInsectes.preparer();
+
+                // Un lot déposé, un réveil, ou au plus tard l'intervalle d'écriture
+                signaux.tryAcquire(intervalleEcritureMs, TimeUnit.MILLISECONDS);
+                LotModifications lot = lotsEnAttente.poll();
+                if (lot != null) {
+                    ecrire(lot);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("Erreur du thread d'écriture de la simulation: " + e.getMessage());
+            }
+        }
+    }
+
+    private void ecrire(LotModifications lot) {
+        if (lotPerdu.get()) {
+            // Lot du modèle abandonné : il peut dépendre du lot perdu, et le modèle rechargé
+            // ne connaît pas ses insertions
+            lot.ecrit().completeExceptionally(
+                    new IllegalStateException("Lot abandonné après l'échec d'un lot précédent"));
+            return;
+        }
+        if (lot.estVide()) {
+            lot.ecrit().complete(null);
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO plante (id, espece, age, age_maturite, est_drageonnante, " +
+                                "probabilite_colonisation, parcelle_id) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                        lot.plantesInserees().stream()
+                                .map(p -> new Object[]{p.id(), p.espece(), p.age(), p.ageMaturite(),
+                                        p.estDrageonnante(), p.probabiliteColonisation(), p.parcelleId()})
+                                .toList());
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO insecte (id, espece, sexe, sante, mobilite, resistance_insecticide, " +
+                                "pass_sans_manger, parcelle_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                        lot.insectesInseres().stream()
+                                .map(i -> new Object[]{i.id(), i.espece(), i.sexe(), i.sante(), i.mobilite(),
+                                        i.resistanceInsecticide(), i.passSansManger(), i.parcelleId()})
+                                .toList());
+                jdbcTemplate.batchUpdate(
+                        "UPDATE parcelle SET taux_humidite = ? WHERE id = ?",
+                        lot.parcelles().stream()
+                                .map(p -> new Object[]{p.tauxHumidite(), p.id()})
+                                .toList());
+                // Seul l'âge d'une plante évolue pendant la simulation
+                jdbcTemplate.batchUpdate(
+                        "UPDATE plante SET age = ? WHERE id = ?",
+                        lot.plantesModifiees().stream()
+                                .map(p -> new Object[]{p.age(), p.id()})
+                                .toList());
+                jdbcTemplate.batchUpdate(
+                        "UPDATE insecte SET sante = ?, pass_sans_manger = ?, parcelle_id = ? WHERE id = ?",
+                        lot.insectesModifies().stream()
+                                .map(i -> new Object[]{i.sante(), i.passSansManger(), i.parcelleId(), i.id()})
+                                .toList());
+                jdbcTemplate.batchUpdate(
+                        "DELETE FROM insecte WHERE id = ?",
+                        lot.insectesSupprimes().stream()
+                                .map(id -> new Object[]{id})
+                                .toList());
+            });
+        } catch (Exception e) {
+            // Typiquement une parcelle supprimée entre-temps : le lot est abandonné, les lots
+            // suivants du même modèle aussi, et le modèle rechargé depuis la base au prochain pas
+            System.err.println("Lot de " + lot.taille() + " modifications non écrit: " + e.getMessage());
+            lotPerdu.set(true);
+            lot.ecrit().completeExceptionally(e);
+            return;
+        }
+        lot.ecrit().complete(null);
+    }
+}
@@ -0,0 +1,166 @@
+package com.potager_simulation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.potager_simulation.dto.VueDTO;
+import com.potager_simulation.engine.GrillePotager;
+import com.potager_simulation.engine.IndexParCellule;
+import com.potager_simulation.engine.InstantaneMonde;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vues des clients qui n'affichent qu'une partie du potager.
+ * Un client déclare son rectangle sur /app/simulation/vue et s'abonne à
+ * /user/queue/potager-vue : il ne reçoit que les parcelles de son rectangle.
+ * Chaque parcelle est sérialisée au plus une fois par diffusion et partagée par toutes les
+ * vues qui la contiennent ; le message d'une vue est assemblé à partir de ces fragments et
+ * contient exactement les parcelles de son rectangle.
+ */
+@Service
+public class VuesSimulation {
+    public static final String QUEUE = "/queue/potager-vue";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ConvertisseurEtat convertisseur;
+    private final ObjectMapper objectMapper;
+
+    // Session STOMP -> rectangle affiché
+    private final Map<String, VueDTO> vues = new ConcurrentHashMap<>();
+
+    @Autowired
+    public VuesSimulation(
+            SimpMessagingTemplate messagingTemplate,
+            ConvertisseurEtat convertisseur,
+            ObjectMapper objectMapper) {
+        this.messagingTemplate = messagingTemplate;
+        this.convertisseur = convertisseur;
+        this.objectMapper = objectMapper;
+    }
+
+    public void definirVue(String sessionId, VueDTO vue) {
+        if (vue.getX1() < vue.getX0() || vue.getY1() < vue.getY0()) {
+            throw new IllegalArgumentException("Rectangle de vue vide: " + vue);
+        }
+        vues.put(sessionId, vue);
+    }
+
+    @EventListener
+    public void deconnexion(SessionDisconnectEvent event) {
+        vues.remove(event.getSessionId());
+    }
+
+    public boolean aDesVues() {
+        return !vues.isEmpty();
+    }
+
+    /**
+     * Envoie à chaque vue les parcelles de son rectangle
+     */
+    public void diffuser(InstantaneMonde etat, boolean enCours) {
+        Fragments fragments = new Fragments(etat);
+        for (Map.Entry<String, VueDTO> vue : vues.entrySet()) {
+            envoyer(vue.getKey(), vue.getValue(), fragments, etat, enCours);
+        }
+    }
+
+    /**
+     * Envoie sa vue à une seule session, par exemple juste après sa déclaration
+     */
+    public void diffuser(String sessionId, InstantaneMonde etat, boolean enCours) {
+        VueDTO vue = vues.get(sessionId);
+        if (vue != null) {
+            envoyer(sessionId, vue, new Fragments(etat), etat, enCours);
+        }
+    }
+
+    private void envoyer(String sessionId, VueDTO vue, Fragments fragments, InstantaneMonde etat, boolean enCours) {
+        // Le message est assemblé à partir des parcelles déjà sérialisées
+        ByteArrayOutputStream corps = new ByteArrayOutputStream();
+        ecrire(corps, "{\"pasSimulation\":" + etat.getPas() + ",\"enCours\":" + enCours
+                + ",\"x0\":" + vue.getX0() + ",\"y0\":" + vue.getY0()
+                + ",\"x1\":" + vue.getX1() + ",\"y1\":" + vue.getY1() + ",\"parcelles\":[");
+        boolean premiere = true;
+        for (byte[] parcelle : fragments.dans(vue)) {
+            if (!premiere) {
+                corps.write(',');
+            }
+            corps.write(parcelle, 0, parcelle.length);
+            premiere = false;
+        }
+        ecrire(corps, "]}");
+
+        SimpMessageHeaderAccessor entetes = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        entetes.setSessionId(sessionId);
+        entetes.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        entetes.setLeaveMutable(true);
+        // Destination utilisateur résolue par identifiant de session : les clients ne sont pas authentifiés
+        messagingTemplate.send("/user/" + sessionId + QUEUE,
+                MessageBuilder.createMessage(corps.toByteArray(), entetes.getMessageHeaders()));
+    }
+
+    private static void ecrire(ByteArrayOutputStream sortie, String texte) {
+        byte[] octets = texte.getBytes(StandardCharsets.UTF_8);
+        sortie.write(octets, 0, octets.length);
+    }
+
+    /**
+     * Parcelles d'un état sérialisées en JSON, cellule par cellule, à la première demande.
+     * Propre à une diffusion, utilisée par un seul thread.
+     */
+    private class Fragments {
+        private final InstantaneMonde etat;
+        private final GrillePotager grille;
+        private final IndexParCellule plantes;
+        private final IndexParCellule insectes;
+        // Cellule -> parcelle en JSON
+        private final byte[][] serialisees;
+
+        Fragments(InstantaneMonde etat) {
+            this.etat = etat;
+            this.grille = etat.getGrille();
+            this.plantes = etat.indexerPlantes();
+            this.insectes = etat.indexerInsectes();
+            this.serialisees = new byte[grille.getTaille()][];
+        }
+
+        /**
+         * Parcelles du rectangle de la vue, ligne par ligne
+         */
+        List<byte[]> dans(VueDTO vue) {
+            int[] cellules = grille.cellulesDansRectangle(vue.getX0(), vue.getY0(), vue.getX1(), vue.getY1());
+            List<byte[]> resultat = new ArrayList<>(cellules.length);
+            for (int cellule : cellules) {
+                byte[] parcelle = serialisees[cellule];
+                if (parcelle == null) {
+                    parcelle = serialiser(cellule);
+                    serialisees[cellule] = parcelle;
+                }
+                resultat.add(parcelle);
+            }
+            return resultat;
+        }
+
+        private byte[] serialiser(int cellule) {
+            try {
+                return objectMapper.writeValueAsBytes(convertisseur.convertParcelleToDTO(etat, cellule, plantes, insectes));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Sérialisation d'une parcelle impossible", e);
+            }
+        }
+    }
+}
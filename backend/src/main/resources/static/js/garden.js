@@ -79,7 +79,12 @@ function fetchGardenState() {
     $.ajax({
         url: '/simulation/state',
         method: 'GET',
-        success: function(data) {
+        // Send If-None-Match: the server answers 304 while the step has not changed
+        ifModified: true,
+        success: function(data, status) {
+            if (status === 'notmodified') {
+                return;
+            }
             updateGarden(data);
         },
         error: function(xhr, status, error) {
@@ -0,0 +1,240 @@
+package com.potager_simulation.engine;
+
+import com.potager_simulation.model.Insecte;
+import com.potager_simulation.model.Parcelle;
+import com.potager_simulation.model.Plante;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class MoteurSimulationTest {
+
+	@Test
+	void memeGraineMemeEtat() {
+		List<String> etat1 = simuler(42L, false);
+		List<String> etat2 = simuler(42L, true);
+		assertEquals(etat1, etat2);
+	}
+
+	@Test
+	void graineDifferenteEtatDifferent() {
+		assertNotEquals(simuler(42L, false), simuler(43L, false));
+	}
+
+	@Test
+	void executionParalleleIdentiqueASequentielle() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			// Bandes de 16 éléments : chaque phase est découpée même sur ce petit potager
+			List<String> parallele = simuler(42L, false, new ExecutionParallele(pool, 16), false);
+			List<String> sequentielle = simuler(42L, false, ExecutionParallele.sequentielle(), false);
+			assertEquals(sequentielle, parallele);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void statistiquesTenuesEgalesAuRecomptage() {
+		MondeSimulation monde = creerMonde(42L, false);
+		MoteurSimulation moteur = new MoteurSimulation(monde, new AleaSimulation(42L), ExecutionParallele.sequentielle());
+		int insectesAvant = monde.getInsectes().getTaille();
+		int plantesAvant = monde.getPlantes().getTaille();
+		for (int pas = 1; pas <= 15; pas++) {
+			moteur.executerPas(pas);
+			StatistiquesPotager statistiques = monde.figer(pas).getStatistiques();
+
+			PopulationPlantes plantes = monde.getPlantes();
+			int matures = 0;
+			Map<String, Integer> plantesParEspece = new HashMap<>();
+			for (int i = 0; i < plantes.getTaille(); i++) {
+				matures += plantes.estMature(i) ? 1 : 0;
+				plantesParEspece.merge(plantes.getType(i).espece(), 1, Integer::sum);
+			}
+			PopulationInsectes insectes = monde.getInsectes();
+			Map<String, Integer> insectesParEspece = new HashMap<>();
+			for (int i = 0; i < insectes.getTaille(); i++) {
+				insectesParEspece.merge(insectes.getEspece(i), 1, Integer::sum);
+			}
+
+			assertEquals(matures, statistiques.plantesMatures());
+			assertEquals(plantesParEspece, new HashMap<>(statistiques.plantesParEspece()));
+			assertEquals(insectesParEspece, new HashMap<>(statistiques.insectesParEspece()));
+			assertEquals(insectes.getTaille() - insectesAvant, statistiques.naissances() - statistiques.morts());
+			assertEquals(plantes.getTaille() - plantesAvant, statistiques.pousses());
+			assertEquals(400, statistiques.histogrammeHumidite().stream().mapToInt(Integer::intValue).sum());
+			insectesAvant = insectes.getTaille();
+			plantesAvant = plantes.getTaille();
+		}
+	}
+
+	@Test
+	void copieSimuleCommeLOriginalSansLeModifier() {
+		MondeSimulation original = creerMonde(42L, false);
+		MondeSimulation copie = original.copier(new FournisseurIdentifiants() {
+			private long dernier = 0;
+
+			@Override
+			public long prochainIdPlante() {
+				return --dernier;
+			}
+
+			@Override
+			public long prochainIdInsecte() {
+				return --dernier;
+			}
+		});
+		List<String> avant = decrire(original, false);
+
+		MoteurSimulation moteur = new MoteurSimulation(copie, new AleaSimulation(42L), ExecutionParallele.sequentielle());
+		for (int pas = 1; pas <= 15; pas++) {
+			moteur.executerPas(pas);
+		}
+
+		assertEquals(avant, decrire(original, false));
+		assertEquals(simuler(42L, false, ExecutionParallele.sequentielle(), false), decrire(copie, false));
+	}
+
+	@Test
+	void mondeReluSimuleCommeLOriginal() throws IOException {
+		MondeSimulation original = creerMonde(42L, false);
+		MoteurSimulation moteur = new MoteurSimulation(original, new AleaSimulation(42L), ExecutionParallele.sequentielle());
+		for (int pas = 1; pas <= 5; pas++) {
+			moteur.executerPas(pas);
+		}
+
+		ByteArrayOutputStream octets = new ByteArrayOutputStream();
+		original.ecrire(new DataOutputStream(octets));
+		MondeSimulation relu = MondeSimulation.lire(new DataInputStream(new ByteArrayInputStream(octets.toByteArray())),
+				new FournisseurIdentifiants() {
+					private long dernier = 300_000;
+
+					@Override
+					public long prochainIdPlante() {
+						return dernier++;
+					}
+
+					@Override
+					public long prochainIdInsecte() {
+						return dernier++;
+					}
+				});
+		assertEquals(decrire(original, false), decrire(relu, false));
+
+		MoteurSimulation moteurRelu = new MoteurSimulation(relu, new AleaSimulation(42L), ExecutionParallele.sequentielle());
+		for (int pas = 6; pas <= 15; pas++) {
+			moteur.executerPas(pas);
+			moteurRelu.executerPas(pas);
+		}
+		assertEquals(decrire(original, false), decrire(relu, false));
+	}
+
+	/**
+	 * Simule 15 pas sur un potager fixe ; l'ordre des insectes dans les parcelles
+	 * peut être mélangé, il ne doit pas influencer le résultat.
+	 */
+	private static List<String> simuler(long graine, boolean melanger) {
+		return simuler(graine, melanger, ExecutionParallele.sequentielle(), true);
+	}
+
+	/**
+	 * @param trier faux pour comparer aussi les positions dans les populations
+	 */
+	private static List<String> simuler(long graine, boolean melanger, ExecutionParallele execution, boolean trier) {
+		MondeSimulation monde = creerMonde(graine, melanger);
+		MoteurSimulation moteur = new MoteurSimulation(monde, new AleaSimulation(graine), execution);
+		for (int pas = 1; pas <= 15; pas++) {
+			moteur.executerPas(pas);
+		}
+		return decrire(monde, trier);
+	}
+
+	/**
+	 * Les identifiants attribués dépendent de l'ordre des naissances : on compare les clés
+	 */
+	private static List<String> decrire(MondeSimulation monde, boolean trier) {
+		List<String> etat = new ArrayList<>();
+		PopulationPlantes plantes = monde.getPlantes();
+		for (int i = 0; i < plantes.getTaille(); i++) {
+			etat.add("P " + plantes.getCle(i) + " " + plantes.getCellule(i) + " " + plantes.getAge(i));
+		}
+		PopulationInsectes insectes = monde.getInsectes();
+		for (int i = 0; i < insectes.getTaille(); i++) {
+			etat.add("I " + insectes.getCle(i) + " " + insectes.getCellule(i) + " " + insectes.getSexe(i)
+					+ " " + insectes.getSante(i) + " " + insectes.getPassSansManger(i));
+		}
+		if (trier) {
+			Collections.sort(etat);
+		}
+		return etat;
+	}
+
+	/**
+	 * Potager de 20 x 20 parcelles, un tiers plantées de menthe, trois insectes par parcelle
+	 */
+	private static MondeSimulation creerMonde(long graine, boolean melanger) {
+		Random construction = new Random(7);
+		Random ordre = new Random(graine + 1);
+		List<Parcelle> parcelles = new ArrayList<>();
+		long id = 1;
+		for (int x = 0; x < 20; x++) {
+			for (int y = 0; y < 20; y++) {
+				Parcelle parcelle = new Parcelle();
+				parcelle.setId(id++);
+				parcelle.setX(x);
+				parcelle.setY(y);
+				if (construction.nextInt(3) == 0) {
+					Plante plante = new Plante();
+					plante.setId(id++);
+					plante.setEspece("Menthe");
+					plante.setAgeMaturite(3);
+					plante.setEstDrageonnante(true);
+					plante.setProbabiliteColonisation(0.2);
+					plante.setParcelle(parcelle);
+					parcelle.getPlantes().add(plante);
+				}
+				for (int k = 0; k < 3; k++) {
+					Insecte insecte = new Insecte();
+					insecte.setId(id++);
+					insecte.setEspece(k % 2 == 0 ? "Puceron" : "Coccinelle");
+					insecte.setSexe(construction.nextBoolean() ? "M" : "F");
+					insecte.setMobilite(0.4);
+					insecte.setParcelle(parcelle);
+					parcelle.getInsectes().add(insecte);
+				}
+				if (melanger) {
+					Collections.shuffle(parcelle.getInsectes(), ordre);
+				}
+				parcelles.add(parcelle);
+			}
+		}
+
+		long[] identifiants = {100_000, 200_000};
+		FournisseurIdentifiants fournisseur = new FournisseurIdentifiants() {
+			@Override
+			public long prochainIdPlante() {
+				return identifiants[0]++;
+			}
+
+			@Override
+			public long prochainIdInsecte() {
+				return identifiants[1]++;
+			}
+		};
+		return new MondeSimulation(GrillePotager.depuis(parcelles), parcelles, fournisseur);
+	}
+}
@@ -0,0 +1,73 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.dto.MesuresOrdonnanceurDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrdonnanceurPasTest {
+
+	@Test
+	void sauterAbandonneLesEcheancesDepassees() throws InterruptedException {
+		// Pas de 30 ms pour une période de 10 ms
+		MesuresOrdonnanceurDTO mesures = mesurer(OrdonnanceurPas.Politique.SAUTER, 30);
+		assertTrue(mesures.getDepassements() > 0);
+		assertTrue(mesures.getPasAbandonnes() >= mesures.getPasExecutes());
+	}
+
+	@Test
+	void etirerNAbandonneAucunPas() throws InterruptedException {
+		MesuresOrdonnanceurDTO mesures = mesurer(OrdonnanceurPas.Politique.ETIRER, 30);
+		assertTrue(mesures.getDepassements() > 0);
+		assertEquals(0, mesures.getPasAbandonnes());
+	}
+
+	@Test
+	void rattraperLimiteLaRafale() throws InterruptedException {
+		MesuresOrdonnanceurDTO mesures = mesurer(OrdonnanceurPas.Politique.RATTRAPER, 30);
+		assertTrue(mesures.getPasAbandonnes() > 0);
+	}
+
+	@Test
+	void vitesseModifieeSansArret() throws InterruptedException {
+		AtomicInteger pas = new AtomicInteger();
+		OrdonnanceurPas ordonnanceur = new OrdonnanceurPas(2);
+		ordonnanceur.demarrer(pas::incrementAndGet, OrdonnanceurPas.enNanos(1000), OrdonnanceurPas.Politique.SAUTER);
+		try {
+			Thread.sleep(100);
+			// Premier pas immédiat, le suivant dans une seconde
+			assertEquals(1, pas.get());
+			ordonnanceur.modifier(OrdonnanceurPas.enNanos(10), null);
+			Thread.sleep(300);
+			assertTrue(pas.get() > 5);
+			assertEquals(10.0, ordonnanceur.getMesures().getPeriodeMs());
+		} finally {
+			ordonnanceur.arreter();
+		}
+		int apresArret = pas.get();
+		Thread.sleep(50);
+		assertEquals(apresArret, pas.get());
+		assertFalse(ordonnanceur.getMesures().isEnCours());
+	}
+
+	private static MesuresOrdonnanceurDTO mesurer(OrdonnanceurPas.Politique politique, long dureePasMs)
+			throws InterruptedException {
+		OrdonnanceurPas ordonnanceur = new OrdonnanceurPas(2);
+		ordonnanceur.demarrer(() -> dormir(dureePasMs), OrdonnanceurPas.enNanos(10), politique);
+		Thread.sleep(300);
+		ordonnanceur.arreter();
+		return ordonnanceur.getMesures();
+	}
+
+	private static void dormir(long ms) {
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.dto.PageDTO;
+import com.potager_simulation.dto.ParcelleDTO;
+import com.potager_simulation.dto.ParcelleResumeDTO;
+import com.potager_simulation.model.DispositifTraitement;
+import com.potager_simulation.model.Insecte;
+import com.potager_simulation.model.Parcelle;
+import com.potager_simulation.model.Plante;
+import com.potager_simulation.model.Programme;
+import com.potager_simulation.model.enums.TypeTraitement;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Le nombre de requêtes d'une lecture du potager ne dépend pas de sa taille
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class ParcelleServiceTest {
+
+	@Autowired
+	private ParcelleService parcelleService;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void lectureDuPotagerEnNombreConstantDeRequetes() {
+		creerPotager(1000, 3);
+		long petit = requetesDeLecture();
+
+		creerPotager(1100, 12);
+		long grand = requetesDeLecture();
+
+		assertEquals(petit, grand);
+		assertTrue(grand <= 3, "Requêtes pour lire le potager: " + grand);
+	}
+
+	@Test
+	void lectureDesVoisinesEnNombreConstantDeRequetes() {
+		creerPotager(2000, 3);
+		Long centre = parcelleService.getParcelleByCoordinates(2001, 2001).getId();
+		entityManager.clear();
+
+		Statistics statistiques = statistiques();
+		statistiques.clear();
+		List<ParcelleDTO> voisines = parcelleService.getParcellesVoisines(centre);
+
+		assertEquals(8, voisines.size());
+		assertTrue(statistiques.getPrepareStatementCount() <= 5,
+				"Requêtes pour lire les voisines: " + statistiques.getPrepareStatementCount());
+	}
+
+	@Test
+	void listesPagineesParIdentifiant() {
+		creerPotager(3000, 4);
+		// Une parcelle sur deux porte un dispositif : 8 sur 16, en plus de celles déjà en base
+		List<Long> ids = new ArrayList<>();
+		Long apres = null;
+		do {
+			PageDTO<ParcelleResumeDTO> page = parcelleService.getParcellesWithDispositifs(apres, 3);
+			assertTrue(page.getElements().size() <= 3);
+			page.getElements().forEach(resume -> {
+				assertNotNull(resume.getDispositifId());
+				ids.add(resume.getId());
+			});
+			apres = page.getSuivant();
+		} while (apres != null);
+
+		List<Long> tries = new ArrayList<>(ids);
+		Collections.sort(tries);
+		assertEquals(tries, ids);
+		assertEquals(ids.size(), new HashSet<>(ids).size());
+		assertTrue(ids.size() >= 8);
+	}
+
+	private long requetesDeLecture() {
+		Statistics statistiques = statistiques();
+		statistiques.clear();
+		List<ParcelleDTO> parcelles = parcelleService.getAllParcelles();
+		assertFalse(parcelles.isEmpty());
+		return statistiques.getPrepareStatementCount();
+	}
+
+	/**
+	 * Carré de cote x cote parcelles à partir de (origine, origine), chacune avec une plante,
+	 * deux insectes et, une sur deux, un dispositif programmé ; la session est vidée ensuite
+	 */
+	private void creerPotager(int origine, int cote) {
+		for (int x = origine; x < origine + cote; x++) {
+			for (int y = origine; y < origine + cote; y++) {
+				Parcelle parcelle = new Parcelle();
+				parcelle.setX(x);
+				parcelle.setY(y);
+
+				Plante plante = new Plante();
+				plante.setEspece("Tomate");
+				plante.setAgeMaturite(5);
+				plante.setParcelle(parcelle);
+				parcelle.getPlantes().add(plante);
+
+				for (String sexe : List.of("M", "F")) {
+					Insecte insecte = new Insecte();
+					insecte.setEspece("Puceron");
+					insecte.setSexe(sexe);
+					insecte.setParcelle(parcelle);
+					parcelle.getInsectes().add(insecte);
+				}
+
+				if ((x + y) % 2 == 0) {
+					DispositifTraitement dispositif = new DispositifTraitement();
+					Programme programme = new Programme();
+					programme.setInstantDebut(1);
+					programme.setDuree(3);
+					programme.setTypeTraitement(TypeTraitement.EAU);
+					programme.setDispositifTraitement(dispositif);
+					dispositif.getProgrammes().add(programme);
+					dispositif.setParcelle(parcelle);
+					parcelle.setDispositifTraitement(dispositif);
+				}
+				entityManager.persist(parcelle);
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	private Statistics statistiques() {
+		return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+}
@@ -0,0 +1,191 @@
+package com.potager_simulation.service;
+
+import com.potager_simulation.dto.EtatPotagerDTO;
+import com.potager_simulation.dto.InsecteDTO;
+import com.potager_simulation.dto.MiseAJourPotagerDTO;
+import com.potager_simulation.dto.ParcelleDTO;
+import com.potager_simulation.dto.PlanteDTO;
+import com.potager_simulation.engine.AleaSimulation;
+import com.potager_simulation.engine.ExecutionParallele;
+import com.potager_simulation.engine.FournisseurIdentifiants;
+import com.potager_simulation.engine.GrillePotager;
+import com.potager_simulation.engine.InstantaneMonde;
+import com.potager_simulation.engine.MondeSimulation;
+import com.potager_simulation.engine.MoteurSimulation;
+import com.potager_simulation.model.Insecte;
+import com.potager_simulation.model.Parcelle;
+import com.potager_simulation.model.Plante;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulationEventPublisherTest {
+	private final ConvertisseurEtat convertisseur = new ConvertisseurEtat();
+	private final SimulationEventPublisher publisher = new SimulationEventPublisher(
+			null, convertisseur, null, null, null, null, 50, 10, 10);
+
+	/**
+	 * Les différences appliquées (comme applyUpdate.js côté client) à une image complète
+	 * redonnent l'image complète de l'état suivant, y compris quand plusieurs pas les séparent
+	 * et que des morts ont déplacé des insectes dans la population
+	 */
+	@Test
+	void differencesAppliqueesEgalesALImageComplete() {
+		MondeSimulation monde = creerMonde();
+		MoteurSimulation moteur = new MoteurSimulation(monde, new AleaSimulation(42L), ExecutionParallele.sequentielle());
+		InstantaneMonde avant = monde.figer(0);
+		EtatPotagerDTO client = convertisseur.creerEtatPotagerDTO(avant, false);
+		int retires = 0;
+		int deplaces = 0;
+		int pas = 0;
+		for (int message = 1; message <= 20; message++) {
+			// Un, deux ou trois pas entre deux messages : le vieillissement varie
+			for (int k = 0; k <= message % 3; k++) {
+				moteur.executerPas(++pas);
+			}
+			InstantaneMonde apres = monde.figer(pas);
+			MiseAJourPotagerDTO differences = publisher.creerDifferences(avant, apres);
+			retires += differences.getInsectesRetires().size();
+			deplaces += differences.getInsectesDeplaces().size();
+
+			client = appliquer(client, differences);
+			assertEquals(normaliser(convertisseur.creerEtatPotagerDTO(apres, false)), normaliser(client));
+			avant = apres;
+		}
+		assertTrue(retires > 0);
+		assertTrue(deplaces > 0);
+	}
+
+	/**
+	 * Même algorithme que applyDelta (frontend/src/utils/applyUpdate.js)
+	 */
+	private static EtatPotagerDTO appliquer(EtatPotagerDTO etat, MiseAJourPotagerDTO differences) {
+		Map<Long, ParcelleDTO> parcelles = new HashMap<>();
+		etat.getParcelles().forEach(parcelle -> parcelles.put(parcelle.getId(), parcelle));
+
+		differences.getParcellesModifiees().forEach(modifiee -> {
+			ParcelleDTO parcelle = parcelles.get(modifiee.getId());
+			parcelle.setTauxHumidite(modifiee.getTauxHumidite());
+			parcelle.setCategorieHumidite(modifiee.getCategorieHumidite());
+		});
+
+		Map<Long, Integer> ages = new HashMap<>();
+		differences.getPlantesModifiees().forEach(age -> ages.put(age.getId(), age.getAge()));
+		for (ParcelleDTO parcelle : etat.getParcelles()) {
+			for (PlanteDTO plante : parcelle.getPlantes()) {
+				plante.setAge(ages.getOrDefault(plante.getId(), plante.getAge() + differences.getVieillissement()));
+				plante.setEstMature(plante.getAge() >= plante.getAgeMaturite());
+			}
+		}
+		differences.getPlantesAjoutees().forEach(plante -> parcelles.get(plante.getParcelleId()).getPlantes().add(plante));
+
+		Set<Long> retires = new HashSet<>(differences.getInsectesRetires());
+		Map<Long, MiseAJourPotagerDTO.DeplacementInsecte> deplaces = new HashMap<>();
+		differences.getInsectesDeplaces().forEach(deplacement -> deplaces.put(deplacement.getId(), deplacement));
+		Map<Long, MiseAJourPotagerDTO.SanteInsecte> modifies = new HashMap<>();
+		differences.getInsectesModifies().forEach(sante -> modifies.put(sante.getId(), sante));
+		List<InsecteDTO> arrivees = new ArrayList<>();
+		for (ParcelleDTO parcelle : etat.getParcelles()) {
+			List<InsecteDTO> restent = new ArrayList<>();
+			for (InsecteDTO insecte : parcelle.getInsectes()) {
+				if (retires.contains(insecte.getId())) {
+					continue;
+				}
+				MiseAJourPotagerDTO.SanteInsecte sante = modifies.get(insecte.getId());
+				if (sante != null) {
+					insecte.setSante(sante.getSante());
+					insecte.setPassSansManger(sante.getPassSansManger());
+				}
+				MiseAJourPotagerDTO.DeplacementInsecte deplacement = deplaces.get(insecte.getId());
+				if (deplacement != null) {
+					insecte.setParcelleId(deplacement.getParcelleId());
+					insecte.setParcelleCoordX(deplacement.getParcelleCoordX());
+					insecte.setParcelleCoordY(deplacement.getParcelleCoordY());
+					arrivees.add(insecte);
+				} else {
+					restent.add(insecte);
+				}
+			}
+			parcelle.setInsectes(restent);
+		}
+		arrivees.addAll(differences.getInsectesAjoutes());
+		arrivees.forEach(insecte -> parcelles.get(insecte.getParcelleId()).getInsectes().add(insecte));
+
+		etat.setPasSimulation(differences.getPasSimulation());
+		etat.setEnCours(differences.isEnCours());
+		return etat;
+	}
+
+	/**
+	 * L'ordre des plantes et des insectes d'une parcelle dépend des positions dans les
+	 * populations, que le client ne connaît pas : on compare par identifiant
+	 */
+	private static EtatPotagerDTO normaliser(EtatPotagerDTO etat) {
+		for (ParcelleDTO parcelle : etat.getParcelles()) {
+			parcelle.getPlantes().sort(Comparator.comparing(PlanteDTO::getId));
+			parcelle.getInsectes().sort(Comparator.comparing(InsecteDTO::getId));
+		}
+		return etat;
+	}
+
+	/**
+	 * Potager de 12 x 12 parcelles, un tiers plantées de menthe, trois insectes par parcelle
+	 */
+	private static MondeSimulation creerMonde() {
+		Random construction = new Random(7);
+		List<Parcelle> parcelles = new ArrayList<>();
+		long id = 1;
+		for (int x = 0; x < 12; x++) {
+			for (int y = 0; y < 12; y++) {
+				Parcelle parcelle = new Parcelle();
+				parcelle.setId(id++);
+				parcelle.setX(x);
+				parcelle.setY(y);
+				if (construction.nextInt(3) == 0) {
+					Plante plante = new Plante();
+					plante.setId(id++);
+					plante.setEspece("Menthe");
+					plante.setAgeMaturite(3);
+					plante.setEstDrageonnante(true);
+					plante.setProbabiliteColonisation(0.2);
+					plante.setParcelle(parcelle);
+					parcelle.getPlantes().add(plante);
+				}
+				for (int k = 0; k < 3; k++) {
+					Insecte insecte = new Insecte();
+					insecte.setId(id++);
+					insecte.setEspece(k % 2 == 0 ? "Puceron" : "Coccinelle");
+					insecte.setSexe(construction.nextBoolean() ? "M" : "F");
+					insecte.setMobilite(0.4);
+					insecte.setParcelle(parcelle);
+					parcelle.getInsectes().add(insecte);
+				}
+				parcelles.add(parcelle);
+			}
+		}
+
+		long[] identifiants = {100_000, 200_000};
+		FournisseurIdentifiants fournisseur = new FournisseurIdentifiants() {
+			@Override
+			public long prochainIdPlante() {
+				return identifiants[0]++;
+			}
+
+			@Override
+			public long prochainIdInsecte() {
+				return identifiants[1]++;
+			}
+		};
+		return new MondeSimulation(GrillePotager.depuis(parcelles), parcelles, fournisseur);
+	}
+}
@@ -19,6 +19,8 @@ function App() {
     // Récupération des données de simulation
     const {
         etatPotager,
+        statistiques,
+        historiqueStatistiques,
         isRunning,
         speed,
         currentStep,
@@ -29,7 +31,9 @@ function App() {
         resetSimulation,
         advanceOneStep,
         setSpeed,
-        fetchState
+        fetchState,
+        viewport,
+        moveViewport
     } = useSimulation();
 
     // Afficher les erreurs comme notifications toast
@@ -49,7 +53,14 @@ function App() {
                 </div>
             );
         } else if (etatPotager) {
-            return <PotagerGrid etatPotager={etatPotager} onRefresh={fetchState} />;
+            return (
+                <PotagerGrid
+                    etatPotager={etatPotager}
+                    onRefresh={fetchState}
+                    viewport={viewport}
+                    onMoveViewport={moveViewport}
+                />
+            );
         } else {
             return (
                 <div className="error-message">
@@ -107,7 +118,7 @@ function App() {
 
                 {/* Section inférieure : Statistics Panel */}
                 <div className="bottom-section">
-                    <StatisticsPanel etatPotager={etatPotager} />
+                    <StatisticsPanel statistiques={statistiques} historique={historiqueStatistiques} />
                 </div>
             </div>
 
@@ -16,10 +16,9 @@ const ControlPanel = ({
         const newSpeed = parseInt(e.target.value, 10);
         onSpeedChange(newSpeed);
 
-        // If simulation is running, update it with the new speed
+        // If simulation is running, update its speed without stopping it
         if (isRunning) {
-            onStop();
-            setTimeout(() => onStart(newSpeed), 100);
+            onStart(newSpeed);
         }
     };
 
@@ -3,12 +3,13 @@ import React from 'react';
 import { getHumidityColor, getPlantColor, getInsectColor } from '../utils/helpers';
 import '../styles/ParcelleItem.css';
 
-const ParcelleItem = ({ parcelle, selected, onClick }) => {
+// originX / originY: garden coordinates of the first grid cell (the viewport corner)
+const ParcelleItem = ({ parcelle, selected, onClick, originX = 0, originY = 0 }) => {
     const { coordX, coordY, tauxHumidite, plantes, insectes, dispositifTraitement } = parcelle;
 
     const gridStyle = {
-        gridColumn: coordX + 1,
-        gridRow: coordY + 1
+        gridColumn: coordX - originX + 1,
+        gridRow: coordY - originY + 1
     };
 
     const humidityPercentage = typeof tauxHumidite === 'number' ?
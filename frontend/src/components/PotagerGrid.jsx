@@ -6,7 +6,9 @@ import InsectInfo from './InsectInfo';
 import DeviceConfig from './DeviceConfig';
 import '../styles/PotagerGrid.css';
 
-const PotagerGrid = ({ etatPotager, onRefresh }) => {
+// viewport: displayed rectangle ({ x0, y0, x1, y1 }) of a large garden, null to show it all;
+// onMoveViewport(x0, y0) moves it
+const PotagerGrid = ({ etatPotager, onRefresh, viewport, onMoveViewport }) => {
     const [selectedParcelle, setSelectedParcelle] = useState(null);
     const [activeTab, setActiveTab] = useState('plantes');
     const [gridData, setGridData] = useState([]);
@@ -79,10 +81,23 @@ const PotagerGrid = ({ etatPotager, onRefresh }) => {
     const maxX = etatPotager.largeur - 1 || 4;  // Default to 5x5 grid
     const maxY = etatPotager.hauteur - 1 || 4;
 
+    // Displayed cells: the viewport, or the whole garden
+    const minShownX = viewport ? viewport.x0 : 0;
+    const minShownY = viewport ? viewport.y0 : 0;
+    const maxShownX = viewport ? Math.min(viewport.x1, maxX) : maxX;
+    const maxShownY = viewport ? Math.min(viewport.y1, maxY) : maxY;
+
     // Create a grid with the proper dimensions
     const gridStyle = {
-        gridTemplateColumns: `repeat(${maxX + 1}, 1fr)`,
-        gridTemplateRows: `repeat(${maxY + 1}, 1fr)`
+        gridTemplateColumns: `repeat(${maxShownX - minShownX + 1}, 1fr)`,
+        gridTemplateRows: `repeat(${maxShownY - minShownY + 1}, 1fr)`
+    };
+
+    // Move the viewport by half its size
+    const moveBy = (dx, dy) => {
+        const stepX = Math.max(1, Math.floor((viewport.x1 - viewport.x0 + 1) / 2));
+        const stepY = Math.max(1, Math.floor((viewport.y1 - viewport.y0 + 1) / 2));
+        onMoveViewport(viewport.x0 + dx * stepX, viewport.y0 + dy * stepY);
     };
 
     // Handle clicking on a parcelle
@@ -107,8 +122,8 @@ const PotagerGrid = ({ etatPotager, onRefresh }) => {
             parcelleMap[`${p.coordX}-${p.coordY}`] = p;
         });
 
-        for (let y = 0; y <= maxY; y++) {
-            for (let x = 0; x <= maxX; x++) {
+        for (let y = minShownY; y <= maxShownY; y++) {
+            for (let x = minShownX; x <= maxShownX; x++) {
                 const key = `${x}-${y}`;
                 const parcelle = parcelleMap[key];
 
@@ -117,6 +132,8 @@ const PotagerGrid = ({ etatPotager, onRefresh }) => {
                         <ParcelleItem
                             key={key}
                             parcelle={parcelle}
+                            originX={minShownX}
+                            originY={minShownY}
                             selected={selectedParcelle && selectedParcelle.id === parcelle.id}
                             onClick={() => handleParcelleClick(parcelle)}
                         />
@@ -127,7 +144,7 @@ const PotagerGrid = ({ etatPotager, onRefresh }) => {
                         <div
                             key={key}
                             className="parcelle-item empty"
-                            style={{ gridColumn: x + 1, gridRow: y + 1 }}
+                            style={{ gridColumn: x - minShownX + 1, gridRow: y - minShownY + 1 }}
                         />
                     );
                 }
@@ -143,7 +160,18 @@ const PotagerGrid = ({ etatPotager, onRefresh }) => {
                 <div className="potager-stats">
                     <span>Dimensions: {maxX + 1}x{maxY + 1}</span>
                     <span>Pas de simulation: {etatPotager.pasSimulation || 0}</span>
+                    {viewport && (
+                        <span>Vue: ({minShownX}, {minShownY}) - ({maxShownX}, {maxShownY})</span>
+                    )}
                 </div>
+                {viewport && onMoveViewport && (
+                    <div className="viewport-controls">
+                        <button onClick={() => moveBy(-1, 0)} title="Gauche">←</button>
+                        <button onClick={() => moveBy(0, -1)} title="Haut">↑</button>
+                        <button onClick={() => moveBy(0, 1)} title="Bas">↓</button>
+                        <button onClick={() => moveBy(1, 0)} title="Droite">→</button>
+                    </div>
+                )}
             </div>
 
             <div className="potager-grid" style={gridStyle}>
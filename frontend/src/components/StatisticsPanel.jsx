@@ -1,7 +1,7 @@
 // src/components/StatisticsPanel.jsx
 import React, { useState, useEffect } from 'react';
 import {
-    BarChart, Bar, XAxis, YAxis, Tooltip, PieChart, Pie, Cell, ResponsiveContainer
+    BarChart, Bar, LineChart, Line, XAxis, YAxis, Tooltip, Legend, PieChart, Pie, Cell, ResponsiveContainer
 } from 'recharts';
 import {
     getPlantColor, getInsectColor
@@ -11,7 +11,7 @@ import {
 } from '../utils/constants';
 import '../styles/StatisticsPanel.css';
 
-const StatisticsPanel = ({ etatPotager }) => {
+const StatisticsPanel = ({ statistiques, historique = [] }) => {
     const [activeTab, setActiveTab] = useState('plantes');
     const [plantStats, setPlantStats] = useState([]);
     const [insectStats, setInsectStats] = useState([]);
@@ -21,114 +21,56 @@ const StatisticsPanel = ({ etatPotager }) => {
         totalInsectes: 0,
         plantesMatures: 0,
         humiditeAvg: 0,
-        parcellesCount: 0
+        parcellesCount: 0,
+        naissances: 0,
+        morts: 0,
+        dispositifsActifs: 0
     });
 
-    // Calculate statistics when etatPotager changes
+    // Statistics are aggregated by the server at each step (/topic/stats)
     useEffect(() => {
-        if (!etatPotager) return;
+        if (!statistiques) return;
 
-        // Count plants by species
+        // Show every known species, even with no individuals left
         const plantsBySpecies = {};
-        // Count insects by species
-        const insectsBySpecies = {};
-        // Count parcelles by humidity range
-        const humidityRanges = [
-            { name: '0-20%', count: 0 },
-            { name: '21-40%', count: 0 },
-            { name: '41-60%', count: 0 },
-            { name: '61-80%', count: 0 },
-            { name: '81-100%', count: 0 }
-        ];
-
-        let totalPlantes = 0;
-        let totalInsectes = 0;
-        let totalHumidity = 0;
-        let maturePlants = 0;
-
-        // Initialize all plant species with 0 count
         ESPECES_PLANTES.forEach(espece => {
             plantsBySpecies[espece] = 0;
         });
+        Object.assign(plantsBySpecies, statistiques.plantesParEspece);
 
-        // Initialize all insect species with 0 count
+        const insectsBySpecies = {};
         ESPECES_INSECTES.forEach(espece => {
             insectsBySpecies[espece] = 0;
         });
+        Object.assign(insectsBySpecies, statistiques.insectesParEspece);
 
-        // Process parcelles data
-        etatPotager.parcelles.forEach(parcelle => {
-            // Add to total humidity
-            totalHumidity += parcelle.tauxHumidite;
-
-            // Count humidity by range
-            const humidityIndex = Math.min(4, Math.floor(parcelle.tauxHumidite / 20));
-            humidityRanges[humidityIndex].count++;
+        const humidityLabels = ['0-20%', '21-40%', '41-60%', '61-80%', '81-100%'];
+        const humidityRanges = humidityLabels.map((name, index) => ({
+            name,
+            count: statistiques.histogrammeHumidite[index] || 0
+        }));
 
-            // Process plants
-            if (parcelle.plantes && parcelle.plantes.length > 0) {
-                parcelle.plantes.forEach(plante => {
-                    // Count by species
-                    if (plantsBySpecies[plante.espece] !== undefined) {
-                        plantsBySpecies[plante.espece]++;
-                    } else {
-                        plantsBySpecies[plante.espece] = 1;
-                    }
-
-                    // Count mature plants
-                    if (plante.age >= plante.ageMaturite) {
-                        maturePlants++;
-                    }
-
-                    totalPlantes++;
-                });
-            }
-
-            // Process insects
-            if (parcelle.insectes && parcelle.insectes.length > 0) {
-                parcelle.insectes.forEach(insecte => {
-                    // Count by species
-                    if (insectsBySpecies[insecte.espece] !== undefined) {
-                        insectsBySpecies[insecte.espece]++;
-                    } else {
-                        insectsBySpecies[insecte.espece] = 1;
-                    }
-
-                    totalInsectes++;
-                });
-            }
-        });
-
-        // Convert plant stats to array format for charts
-        const plantStatsArray = Object.entries(plantsBySpecies)
-            .map(([espece, count]) => ({ name: espece, value: count }))
-            .filter(item => item.value > 0)
-            .sort((a, b) => b.value - a.value);
-
-        // Convert insect stats to array format for charts
-        const insectStatsArray = Object.entries(insectsBySpecies)
+        // Convert species counts to array format for charts
+        const toChartData = (bySpecies) => Object.entries(bySpecies)
             .map(([espece, count]) => ({ name: espece, value: count }))
             .filter(item => item.value > 0)
             .sort((a, b) => b.value - a.value);
 
-        // Calculate average humidity
-        const avgHumidity = etatPotager.parcelles.length > 0
-            ? totalHumidity / etatPotager.parcelles.length
-            : 0;
-
-        // Update states
-        setPlantStats(plantStatsArray);
-        setInsectStats(insectStatsArray);
+        setPlantStats(toChartData(plantsBySpecies));
+        setInsectStats(toChartData(insectsBySpecies));
         setHumidityStats(humidityRanges);
         setGeneralStats({
-            totalPlantes,
-            totalInsectes,
-            plantesMatures: maturePlants,
-            humiditeAvg: avgHumidity.toFixed(1),
-            parcellesCount: etatPotager.parcelles.length
+            totalPlantes: statistiques.nombrePlantes,
+            totalInsectes: statistiques.nombreInsectes,
+            plantesMatures: statistiques.plantesMatures,
+            humiditeAvg: statistiques.humiditeMoyenne.toFixed(1),
+            parcellesCount: statistiques.nombreParcelles,
+            naissances: statistiques.naissances,
+            morts: statistiques.morts,
+            dispositifsActifs: statistiques.dispositifsActifs
         });
 
-    }, [etatPotager]);
+    }, [statistiques]);
 
     // Custom tooltip for charts
     const CustomTooltip = ({ active, payload, label }) => {
@@ -167,6 +109,14 @@ const StatisticsPanel = ({ etatPotager }) => {
                     <span className="stat-value">{generalStats.humiditeAvg}%</span>
                     <span className="stat-label">Humidité</span>
                 </div>
+                <div className="stat-item">
+                    <span className="stat-value">+{generalStats.naissances} / -{generalStats.morts}</span>
+                    <span className="stat-label">Naissances / Morts</span>
+                </div>
+                <div className="stat-item">
+                    <span className="stat-value">{generalStats.dispositifsActifs}</span>
+                    <span className="stat-label">Dispositifs actifs</span>
+                </div>
             </div>
 
             <div className="stat-tabs">
@@ -188,6 +138,12 @@ const StatisticsPanel = ({ etatPotager }) => {
                 >
                     Humidité
                 </button>
+                <button
+                    className={`tab-button ${activeTab === 'evolution' ? 'active' : ''}`}
+                    onClick={() => setActiveTab('evolution')}
+                >
+                    Évolution
+                </button>
             </div>
 
             <div className="stat-content">
@@ -315,6 +271,36 @@ const StatisticsPanel = ({ etatPotager }) => {
                         </div>
                     </>
                 )}
+
+                {activeTab === 'evolution' && (
+                    <>
+                        <h3>Évolution des Populations</h3>
+                        {historique.length > 1 ? (
+                            <div className="chart-container">
+                                <ResponsiveContainer width="100%" height={300}>
+                                    <LineChart
+                                        data={historique}
+                                        margin={{ top: 5, right: 30, left: 20, bottom: 5 }}
+                                    >
+                                        <XAxis dataKey="pas" />
+                                        <YAxis />
+                                        <Tooltip />
+                                        <Legend />
+                                        {/* No dots: the history holds up to several hundred steps */}
+                                        <Line type="monotone" dataKey="nombrePlantes" name="Plantes"
+                                              stroke="#27ae60" dot={false} isAnimationActive={false} />
+                                        <Line type="monotone" dataKey="plantesMatures" name="Matures"
+                                              stroke="#f39c12" dot={false} isAnimationActive={false} />
+                                        <Line type="monotone" dataKey="nombreInsectes" name="Insectes"
+                                              stroke="#e74c3c" dot={false} isAnimationActive={false} />
+                                    </LineChart>
+                                </ResponsiveContainer>
+                            </div>
+                        ) : (
+                            <p className="no-data">Pas encore d'historique : lancez la simulation</p>
+                        )}
+                    </>
+                )}
             </div>
         </div>
     );
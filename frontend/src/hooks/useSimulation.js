@@ -2,9 +2,21 @@
 import { useState, useEffect, useCallback, useRef } from 'react';
 import * as api from '../services/api';
 import websocketService from '../services/websocketService';
+import { applyDelta } from '../utils/applyUpdate';
+
+// Number of steps of statistics kept on the client
+const HISTORY_SIZE = 600;
+// A resync request without an answer is repeated at most once per this delay (ms)
+const RESYNC_DELAY = 1000;
+// Gardens wider or taller than this (in cells) are shown through a viewport of this size:
+// the server then only sends the cells of the displayed rectangle
+const VIEWPORT_SIZE = 32;
 
 const useSimulation = () => {
     const [etatPotager, setEtatPotager] = useState(null);
+    // Latest aggregated statistics, and the recent history (one entry per step)
+    const [statistiques, setStatistiques] = useState(null);
+    const [historiqueStatistiques, setHistoriqueStatistiques] = useState([]);
     const [isRunning, setIsRunning] = useState(false);
     const [speed, setSpeed] = useState(1);
     const [currentStep, setCurrentStep] = useState(0);
@@ -13,6 +25,15 @@ const useSimulation = () => {
 
     // Use a ref to track if any WebSocket update has been received
     const webSocketUpdatedRef = useRef(false);
+    // Last applied update sequence and state, to apply deltas on top of them
+    const sequenceRef = useRef(null);
+    const etatRef = useRef(null);
+    // Time of the pending resync request, null once its keyframe has arrived
+    const resyncRef = useRef(null);
+    // Displayed rectangle ({ x0, y0, x1, y1 }), null when the whole garden is shown
+    const [viewport, setViewport] = useState(null);
+    const viewportRef = useRef(null);
+    const dimensionsRef = useRef(null);
 
     // Fetch current state
     const fetchState = useCallback(async () => {
@@ -33,6 +54,18 @@ const useSimulation = () => {
         }
     }, []);
 
+    // Fetch the statistics history kept by the server
+    const fetchStats = useCallback(async () => {
+        try {
+            const response = await api.getSimulationStats();
+            const historique = response.data;
+            setHistoriqueStatistiques(historique);
+            setStatistiques(historique.length > 0 ? historique[historique.length - 1] : null);
+        } catch (err) {
+            console.error('Erreur lors de la récupération des statistiques:', err);
+        }
+    }, []);
+
     // Start simulation
     const startSimulation = useCallback(async (speedValue = speed) => {
         try {
@@ -41,7 +74,12 @@ const useSimulation = () => {
                 return;
             }
 
-            await api.startSimulation({ speed: speedValue });
+            // While running, the server changes the tick period in place
+            if (isRunning) {
+                await api.setSimulationSpeed({ speed: speedValue });
+            } else {
+                await api.startSimulation({ speed: speedValue });
+            }
             setSpeed(speedValue);
             setIsRunning(true);
             setError(null);
@@ -85,6 +123,7 @@ const useSimulation = () => {
 
             // Fetch updated state from backend
             await fetchState();
+            await fetchStats();
             setError(null);
             setLoading(false);
         } catch (err) {
@@ -92,7 +131,7 @@ const useSimulation = () => {
             setError('Impossible de réinitialiser la simulation');
             setLoading(false);
         }
-    }, [isRunning, fetchState]);
+    }, [isRunning, fetchState, fetchStats]);
 
     // Advance one step
     const advanceOneStep = useCallback(async () => {
@@ -114,9 +153,31 @@ const useSimulation = () => {
         }
     }, [isRunning, fetchState]);
 
-    // Handle WebSocket update
-    const handleWebSocketUpdate = useCallback((data) => {
-        if (!data) return;
+    // Handle WebSocket update: a keyframe (imageCle) or the differences since the previous message
+    const handleWebSocketUpdate = useCallback((message) => {
+        if (!message) return;
+
+        let data;
+        if (message.imageCle) {
+            data = message.etat;
+        } else if (etatRef.current && sequenceRef.current !== null && message.sequence === sequenceRef.current + 1) {
+            data = applyDelta(etatRef.current, message);
+        } else {
+            // Missed a message (or no keyframe yet): ask the server for a full state, once
+            // until it arrives; the deltas received meanwhile are dropped
+            sequenceRef.current = null;
+            const now = Date.now();
+            if (resyncRef.current === null || now - resyncRef.current >= RESYNC_DELAY) {
+                resyncRef.current = now;
+                websocketService.send('/app/simulation/resync', {});
+            }
+            return;
+        }
+        if (message.imageCle) {
+            resyncRef.current = null;
+        }
+        sequenceRef.current = message.sequence;
+        etatRef.current = data;
 
         setEtatPotager(data);
         setCurrentStep(data.pasSimulation || 0);
@@ -124,6 +185,72 @@ const useSimulation = () => {
         webSocketUpdatedRef.current = true;
     }, []);
 
+    // Handle viewport messages: the cells of the displayed rectangle only
+    const handleViewportUpdate = useCallback((message) => {
+        if (!message) return;
+        setEtatPotager(previous => ({
+            ...previous,
+            pasSimulation: message.pasSimulation,
+            enCours: message.enCours,
+            parcelles: message.parcelles
+        }));
+        setCurrentStep(message.pasSimulation || 0);
+        setIsRunning(message.enCours || false);
+        webSocketUpdatedRef.current = true;
+    }, []);
+
+    // Subscribe to the whole garden (keyframe then deltas), or to the viewport only
+    const subscribeUpdates = useCallback(() => {
+        if (viewportRef.current) {
+            websocketService.unsubscribe('/topic/potager-updates');
+            websocketService.unsubscribe('/user/queue/potager-updates');
+            // No more deltas to apply: the next full-garden update must be a keyframe
+            sequenceRef.current = null;
+            etatRef.current = null;
+            websocketService.subscribeViewport(viewportRef.current, handleViewportUpdate);
+        } else {
+            // Subscribe to updates, then ask for a keyframe to apply the next deltas on;
+            // it is sent to this client only, on its user queue
+            websocketService.subscribe('/topic/potager-updates', handleWebSocketUpdate);
+            websocketService.subscribe('/user/queue/potager-updates', handleWebSocketUpdate);
+            resyncRef.current = Date.now();
+            websocketService.send('/app/simulation/resync', {});
+        }
+    }, [handleWebSocketUpdate, handleViewportUpdate]);
+
+    // Move the viewport so that its top-left cell is (x0, y0), kept inside the garden
+    const moveViewport = useCallback((x0, y0) => {
+        const { largeur, hauteur } = dimensionsRef.current || { largeur: VIEWPORT_SIZE, hauteur: VIEWPORT_SIZE };
+        const left = Math.max(0, Math.min(x0, largeur - VIEWPORT_SIZE));
+        const top = Math.max(0, Math.min(y0, hauteur - VIEWPORT_SIZE));
+        const next = { x0: left, y0: top, x1: left + VIEWPORT_SIZE - 1, y1: top + VIEWPORT_SIZE - 1 };
+        viewportRef.current = next;
+        setViewport(next);
+        if (websocketService.connected) {
+            subscribeUpdates();
+        }
+    }, [subscribeUpdates]);
+
+    // Large gardens switch to a viewport as soon as their size is known
+    useEffect(() => {
+        if (!etatPotager) return;
+        dimensionsRef.current = { largeur: etatPotager.largeur, hauteur: etatPotager.hauteur };
+        if (!viewportRef.current && (etatPotager.largeur > VIEWPORT_SIZE || etatPotager.hauteur > VIEWPORT_SIZE)) {
+            moveViewport(0, 0);
+        }
+    }, [etatPotager, moveViewport]);
+
+    // Handle statistics messages: the steps since the previous message, oldest first
+    const handleStatsUpdate = useCallback((message) => {
+        if (!message || message.length === 0) return;
+        setStatistiques(message[message.length - 1]);
+        setHistoriqueStatistiques(previous => {
+            // After a reset the steps start again from 1
+            const kept = previous.filter(s => s.pas < message[0].pas);
+            return kept.concat(message).slice(-HISTORY_SIZE);
+        });
+    }, []);
+
     // Setup WebSocket connection and subscription
     useEffect(() => {
         let didUnsubscribe = false;
@@ -134,9 +261,8 @@ const useSimulation = () => {
                 if (didUnsubscribe) return;
                 console.log('WebSocket connected');
 
-                // Subscribe to both possible topics for updates
-                websocketService.subscribe('/topic/simulation', handleWebSocketUpdate);
-                websocketService.subscribe('/topic/potager-updates', handleWebSocketUpdate);
+                subscribeUpdates();
+                websocketService.subscribe('/topic/stats', handleStatsUpdate);
             },
             (error) => {
                 if (didUnsubscribe) return;
@@ -149,13 +275,14 @@ const useSimulation = () => {
         if (!webSocketUpdatedRef.current) {
             fetchState();
         }
+        fetchStats();
 
         // Cleanup on unmount
         return () => {
             didUnsubscribe = true;
             websocketService.disconnect();
         };
-    }, [fetchState, handleWebSocketUpdate]);
+    }, [fetchState, fetchStats, subscribeUpdates, handleStatsUpdate]);
 
     // Refresh data regularly if we're not getting WebSocket updates
     useEffect(() => {
@@ -165,16 +292,19 @@ const useSimulation = () => {
             // If simulation is running but we're not getting WebSocket updates, poll every second
             intervalId = setInterval(() => {
                 fetchState();
+                fetchStats();
             }, 1000);
         }
 
         return () => {
             if (intervalId) clearInterval(intervalId);
         };
-    }, [isRunning, fetchState, webSocketUpdatedRef]);
+    }, [isRunning, fetchState, fetchStats, webSocketUpdatedRef]);
 
     return {
         etatPotager,
+        statistiques,
+        historiqueStatistiques,
         isRunning,
         speed,
         currentStep,
@@ -185,7 +315,9 @@ const useSimulation = () => {
         resetSimulation,
         advanceOneStep,
         setSpeed,
-        fetchState
+        fetchState,
+        viewport,
+        moveViewport
     };
 };
 
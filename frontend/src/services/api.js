@@ -12,21 +12,31 @@ const api = axios.create({
 
 // Simulation endpoints
 export const startSimulation = (config) => api.post('/simulation/start', config);
+export const setSimulationSpeed = (config) => api.post('/simulation/vitesse', config);
+export const getSchedulerMetrics = () => api.get('/simulation/ordonnanceur');
 export const stopSimulation = () => api.post('/simulation/stop');
 export const resetSimulation = () => api.post('/simulation/reset');
 export const advanceOneStep = () => api.post('/simulation/pas');
 export const getSimulationState = () => api.get('/simulation/state');
+export const getSimulationStats = () => api.get('/simulation/stats');
 
 // Parcelle endpoints
 export const getAllParcelles = () => api.get('/parcelles');
 export const getParcelle = (id) => api.get(`/parcelles/${id}`);
 export const getParcellesVoisines = (id) => api.get(`/parcelles/${id}/voisines`);
+// Cells of the rectangle [x0, x1] x [y0, y1] with their plants and insects
+export const getRegion = (x0, y0, x1, y1) => api.get('/parcelles/region', { params: { x0, y0, x1, y1 } });
+// Paginated summaries: pass the previous page's `suivant` as `apres`
+export const getParcellesAvecPlantes = (apres, limite = 100) => api.get('/parcelles/avec-plantes', { params: { apres, limite } });
+export const getParcellesAvecInsectes = (apres, limite = 100) => api.get('/parcelles/avec-insectes', { params: { apres, limite } });
+export const getParcellesAvecDispositifs = (apres, limite = 100) => api.get('/parcelles/avec-dispositifs', { params: { apres, limite } });
 export const createParcelle = (parcelle) => api.post('/parcelles', parcelle);
 export const updateParcelle = (id, parcelle) => api.put(`/parcelles/${id}`, parcelle);
 export const deleteParcelle = (id) => api.delete(`/parcelles/${id}`);
 
 // Plante endpoints
-export const getAllPlantes = () => api.get('/plantes');
+// Paginated by id: pass the previous page's `suivant` as `apres`; /plantes/flux streams all plants as NDJSON
+export const getPlantes = (apres, limite = 100) => api.get('/plantes', { params: { apres, limite } });
 export const getPlante = (id) => api.get(`/plantes/${id}`);
 export const getPlantesByParcelle = (parcelleId) => api.get(`/plantes/parcelle/${parcelleId}`);
 export const getPlantesByEspece = (espece) => api.get(`/plantes/espece/${espece}`);
@@ -39,7 +49,8 @@ export const deletePlante = (id) => api.delete(`/plantes/${id}`);
 export const countPlantesByEspece = () => api.get('/plantes/count-by-espece');
 
 // Insecte endpoints
-export const getAllInsectes = () => api.get('/insectes');
+// Paginated by id: pass the previous page's `suivant` as `apres`; /insectes/flux streams all insects as NDJSON
+export const getInsectes = (apres, limite = 100) => api.get('/insectes', { params: { apres, limite } });
 export const getInsecte = (id) => api.get(`/insectes/${id}`);
 export const getInsectesByParcelle = (parcelleId) => api.get(`/insectes/parcelle/${parcelleId}`);
 export const getInsectesByEspece = (espece) => api.get(`/insectes/espece/${espece}`);
@@ -59,4 +70,17 @@ export const ajouterProgramme = (dispositifId, programme) =>
 export const supprimerProgramme = (dispositifId, programmeId) =>
     api.delete(`/dispositifs/${dispositifId}/programmes/${programmeId}`);
 
+// Session endpoints: each session is a private copy of the shared garden,
+// broadcast on /topic/sessions/{id}/potager-updates and /topic/sessions/{id}/stats;
+// a keyframe asked on /app/sessions/{id}/resync comes on /user/queue/sessions/{id}/potager-updates
+export const createSession = (graine) => api.post('/sessions', null, { params: { graine } });
+export const getSessions = () => api.get('/sessions');
+export const getSession = (id) => api.get(`/sessions/${id}`);
+export const deleteSession = (id) => api.delete(`/sessions/${id}`);
+export const startSession = (id, config) => api.post(`/sessions/${id}/start`, config);
+export const stopSession = (id) => api.post(`/sessions/${id}/stop`);
+export const stepSession = (id) => api.post(`/sessions/${id}/pas`);
+export const getSessionState = (id) => api.get(`/sessions/${id}/state`);
+export const getSessionStats = (id) => api.get(`/sessions/${id}/stats`);
+
 export default api;
\ No newline at end of file
@@ -6,6 +6,8 @@ class WebSocketService {
     constructor() {
         this.stompClient = null;
         this.subscriptions = {};
+        // STOMP subscription of each id, to unsubscribe from the server
+        this.handles = {};
         this.connected = false;
         this.connecting = false;
         this.reconnectTimer = null;
@@ -115,6 +117,7 @@ class WebSocketService {
             });
 
             this.subscriptions[id] = callback;
+            this.handles[id] = subscription;
             return subscription;
         } catch (e) {
             console.error('Error subscribing to', destination, e);
@@ -125,9 +128,9 @@ class WebSocketService {
     unsubscribe(id) {
         if (this.subscriptions[id]) {
             try {
-                // The actual subscription object might not be available if disconnected
-                const subscription = this.stompClient._subscriptions[id];
-                if (subscription) {
+                // The subscription object is not available if it was made while disconnected
+                const subscription = this.handles[id];
+                if (subscription && this.connected) {
                     subscription.unsubscribe();
                 }
             } catch (e) {
@@ -135,9 +138,18 @@ class WebSocketService {
             }
 
             delete this.subscriptions[id];
+            delete this.handles[id];
         }
     }
 
+    // Receive only the cells of a rectangle of the garden ({ x0, y0, x1, y1 }, bounds included).
+    // Call again with a new rectangle to move the viewport.
+    subscribeViewport(viewport, callback) {
+        const subscription = this.subscribe('/user/queue/potager-vue', callback);
+        this.send('/app/simulation/vue', viewport);
+        return subscription;
+    }
+
     send(destination, body) {
         if (!this.connected) {
             console.warn('Cannot send message: WebSocket not connected');
@@ -0,0 +1,72 @@
+// src/utils/applyUpdate.js
+
+// Apply a delta message (MiseAJourPotagerDTO with imageCle = false) to the previous state.
+// Returns a new state object; the previous one is left untouched.
+export function applyDelta(state, delta) {
+    const parcelles = state.parcelles.map(p => ({
+        ...p,
+        plantes: p.plantes.map(plante => ({ ...plante })),
+        insectes: [...p.insectes]
+    }));
+    const parcelleById = new Map(parcelles.map(p => [p.id, p]));
+
+    // Cells: only humidity changes during the simulation
+    delta.parcellesModifiees.forEach(({ id, tauxHumidite, categorieHumidite }) => {
+        const parcelle = parcelleById.get(id);
+        if (parcelle) {
+            parcelle.tauxHumidite = tauxHumidite;
+            parcelle.categorieHumidite = categorieHumidite;
+        }
+    });
+
+    // Plants: every plant ages by `vieillissement`, except those listed with their new age
+    const ages = new Map(delta.plantesModifiees.map(({ id, age }) => [id, age]));
+    parcelles.forEach(parcelle => {
+        parcelle.plantes.forEach(plante => {
+            plante.age = ages.has(plante.id) ? ages.get(plante.id) : plante.age + delta.vieillissement;
+            plante.estMature = plante.age >= plante.ageMaturite;
+        });
+    });
+    delta.plantesAjoutees.forEach(plante => {
+        const parcelle = parcelleById.get(plante.parcelleId);
+        if (parcelle) parcelle.plantes.push(plante);
+    });
+
+    // Insects: removals, moves, health changes, then births
+    const retires = new Set(delta.insectesRetires);
+    const deplaces = new Map(delta.insectesDeplaces.map(d => [d.id, d]));
+    const modifies = new Map(delta.insectesModifies.map(m => [m.id, m]));
+    const arrivees = [];
+    parcelles.forEach(parcelle => {
+        parcelle.insectes = parcelle.insectes.filter(insecte => !retires.has(insecte.id))
+            .map(insecte => {
+                const sante = modifies.get(insecte.id);
+                const updated = sante
+                    ? { ...insecte, sante: sante.sante, indiceBonneSante: sante.sante, passSansManger: sante.passSansManger }
+                    : insecte;
+                const deplacement = deplaces.get(insecte.id);
+                if (deplacement) {
+                    arrivees.push({
+                        ...updated,
+                        parcelleId: deplacement.parcelleId,
+                        parcelleCoordX: deplacement.parcelleCoordX,
+                        parcelleCoordY: deplacement.parcelleCoordY
+                    });
+                    return null;
+                }
+                return updated;
+            })
+            .filter(insecte => insecte !== null);
+    });
+    arrivees.concat(delta.insectesAjoutes).forEach(insecte => {
+        const parcelle = parcelleById.get(insecte.parcelleId);
+        if (parcelle) parcelle.insectes.push(insecte);
+    });
+
+    return {
+        ...state,
+        pasSimulation: delta.pasSimulation,
+        enCours: delta.enCours,
+        parcelles
+    };
+}